@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.Coin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import wtf.harvest.btcops.AddressBalance;
+
+/**
+ * Balance benchmarks.
+ * <p>
+ * Wallet ones are how balances were computed before the address index,
+ * index and cache ones are what {@code TkBalance} and
+ * {@code TkBalanceTotal} do now.
+ * </p>
+ * @since 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BalanceBench {
+
+    /**
+     * Address balance by wallet scan.
+     * @param wallet Synthetic wallet
+     * @return Balance
+     */
+    @Benchmark
+    public Coin walletAddress(final SyntheticWallet wallet) {
+        return wallet.wallet().getBalance(
+            new AddressBalance(wallet.address())
+        );
+    }
+
+    /**
+     * Total balance by wallet scan.
+     * @param wallet Synthetic wallet
+     * @return Balance
+     */
+    @Benchmark
+    public Coin walletTotal(final SyntheticWallet wallet) {
+        return wallet.wallet().getBalance();
+    }
+
+    /**
+     * Address balance from the index.
+     * @param wallet Synthetic wallet
+     * @return Balance
+     */
+    @Benchmark
+    public Coin indexAddress(final SyntheticWallet wallet) {
+        return wallet.index().balance(wallet.address());
+    }
+
+    /**
+     * Address balance from the cache.
+     * @param wallet Synthetic wallet
+     * @return Balance
+     */
+    @Benchmark
+    public Coin cachedAddress(final SyntheticWallet wallet) {
+        return wallet.balances().balance(wallet.address());
+    }
+
+    /**
+     * Total balance from the cache.
+     * @param wallet Synthetic wallet
+     * @return Balance
+     */
+    @Benchmark
+    public Coin cachedTotal(final SyntheticWallet wallet) {
+        return wallet.balances().total();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.CoinSelection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import wtf.harvest.btcops.AddressBalance;
+import wtf.harvest.btcops.coins.CoinDaysSelector;
+
+/**
+ * Coin selection benchmarks.
+ *
+ * @since 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SelectionBench {
+
+    /**
+     * Select outputs of one address, highest coin days first.
+     * @param wallet Synthetic wallet
+     * @return Selection
+     */
+    @Benchmark
+    public CoinSelection select(final SyntheticWallet wallet) {
+        return new AddressBalance(wallet.address()).select(
+            NetworkParameters.MAX_MONEY, wallet.candidates()
+        );
+    }
+
+    /**
+     * Sort all outputs by coin days.
+     * @param wallet Synthetic wallet
+     * @return Selection
+     */
+    @Benchmark
+    public CoinSelection sort(final SyntheticWallet wallet) {
+        return new CoinDaysSelector().select(
+            NetworkParameters.MAX_MONEY, wallet.candidates()
+        );
+    }
+
+    /**
+     * Filter all outputs by address.
+     * @param wallet Synthetic wallet
+     * @param hole Blackhole
+     */
+    @Benchmark
+    public void shouldSelect(final SyntheticWallet wallet,
+        final Blackhole hole) {
+        final SelectionBench.Filter filter =
+            new SelectionBench.Filter(wallet);
+        for (final TransactionOutput out : wallet.candidates()) {
+            hole.consume(filter.matches(out));
+        }
+    }
+
+    /**
+     * Address selector exposing its filter.
+     * @since 1.0
+     */
+    private static final class Filter extends AddressBalance {
+
+        /**
+         * Ctor.
+         * @param wallet Synthetic wallet
+         */
+        Filter(final SyntheticWallet wallet) {
+            super(wallet.address());
+        }
+
+        /**
+         * Whether the output is selected.
+         * @param out Output
+         * @return True if selected
+         */
+        boolean matches(final TransactionOutput out) {
+            return this.shouldSelect(out);
+        }
+    }
+}
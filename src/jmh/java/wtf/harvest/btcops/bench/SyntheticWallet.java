@@ -0,0 +1,243 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import wtf.harvest.btcops.wallet.BalanceCache;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+import wtf.harvest.btcops.wallet.WalletVersion;
+
+/**
+ * Synthetic wallet.
+ * <p>
+ * Outputs are spread evenly over 100 addresses, in transactions of up
+ * to 1000 outputs, with random values and depths, so some of them are
+ * too shallow to be selected. Random seed is fixed, so every run gets
+ * the same wallet. Transactions are put to the unspent pool directly,
+ * since receiving a million outputs one by one takes too long.
+ * </p>
+ * @since 1.0
+ * @checkstyle VisibilityModifierCheck (500 lines)
+ */
+@State(Scope.Benchmark)
+public class SyntheticWallet {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Number of addresses.
+     */
+    private static final int ADDRESSES = 100;
+
+    /**
+     * Max outputs of transaction.
+     */
+    private static final int TX_OUTPUTS = 1000;
+
+    /**
+     * Max depth of transaction.
+     */
+    private static final int DEPTH = 1000;
+
+    /**
+     * Number of outputs.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int outputs;
+
+    /**
+     * Wallet.
+     */
+    private Wallet wlt;
+
+    /**
+     * Addresses having outputs.
+     */
+    private List<Address> addrs;
+
+    /**
+     * Spend candidates.
+     */
+    private List<TransactionOutput> cands;
+
+    /**
+     * Address index.
+     */
+    private UtxoIndex idx;
+
+    /**
+     * Wallet version.
+     */
+    private WalletVersion ver;
+
+    /**
+     * Balances.
+     */
+    private BalanceCache cache;
+
+    /**
+     * Ctor for JMH, which sets the number of outputs.
+     */
+    public SyntheticWallet() {
+        this(0);
+    }
+
+    /**
+     * Ctor.
+     * @param outputs Number of outputs
+     */
+    public SyntheticWallet(final int outputs) {
+        this.outputs = outputs;
+    }
+
+    /**
+     * Build the wallet.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.wlt = new Wallet(SyntheticWallet.NET);
+        this.addrs = new ArrayList<>(SyntheticWallet.ADDRESSES);
+        for (int num = 0; num < SyntheticWallet.ADDRESSES; ++num) {
+            this.addrs.add(this.wlt.freshReceiveAddress());
+        }
+        final Random rnd = new Random(0L);
+        int left = this.outputs;
+        long num = 0L;
+        while (left > 0) {
+            final Transaction txn = new Transaction(SyntheticWallet.NET);
+            txn.addInput(
+                new TransactionInput(
+                    SyntheticWallet.NET, txn, new byte[0],
+                    new TransactionOutPoint(
+                        SyntheticWallet.NET, num, Sha256Hash.ZERO_HASH
+                    )
+                )
+            );
+            final int count = Math.min(left, SyntheticWallet.TX_OUTPUTS);
+            for (int out = 0; out < count; ++out) {
+                txn.addOutput(
+                    Coin.valueOf(
+                        Coin.MILLICOIN.value + rnd.nextInt(100_000_000)
+                    ),
+                    this.addrs.get(
+                        (this.outputs - left + out) % this.addrs.size()
+                    )
+                );
+            }
+            final TransactionConfidence conf = txn.getConfidence();
+            conf.setConfidenceType(
+                TransactionConfidence.ConfidenceType.BUILDING
+            );
+            conf.setAppearedAtChainHeight(1);
+            conf.setDepthInBlocks(1 + rnd.nextInt(SyntheticWallet.DEPTH));
+            this.wlt.addWalletTransaction(
+                new WalletTransaction(WalletTransaction.Pool.UNSPENT, txn)
+            );
+            left -= count;
+            ++num;
+        }
+        this.cands = this.wlt.calculateAllSpendCandidates(true, true);
+        this.idx = new UtxoIndex(this.wlt).attach();
+        this.ver = new WalletVersion(this.wlt).attach();
+        this.cache = new BalanceCache(this.wlt, this.idx, this.ver);
+    }
+
+    /**
+     * Wallet.
+     * @return Wallet
+     */
+    public Wallet wallet() {
+        return this.wlt;
+    }
+
+    /**
+     * Address having 1/100 of outputs.
+     * @return Address
+     */
+    public Address address() {
+        return this.addrs.get(0);
+    }
+
+    /**
+     * Addresses having outputs.
+     * @return Addresses
+     */
+    public List<Address> addresses() {
+        return this.addrs;
+    }
+
+    /**
+     * Spend candidates of the wallet.
+     * @return Outputs
+     */
+    public List<TransactionOutput> candidates() {
+        return this.cands;
+    }
+
+    /**
+     * Address index.
+     * @return Index
+     */
+    public UtxoIndex index() {
+        return this.idx;
+    }
+
+    /**
+     * Wallet version.
+     * @return Version
+     */
+    public WalletVersion version() {
+        return this.ver;
+    }
+
+    /**
+     * Balances.
+     * @return Balance cache
+     */
+    public BalanceCache balances() {
+        return this.cache;
+    }
+}
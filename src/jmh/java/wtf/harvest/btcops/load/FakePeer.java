@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.load;
+
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionBroadcast;
+import org.bitcoinj.core.TransactionBroadcaster;
+
+/**
+ * Fake peer acknowledging broadcasts.
+ * <p>
+ * Stands in for the network: every broadcast completes after the delay
+ * a real peer takes to announce the transaction back.
+ * </p>
+ * @since 1.0
+ */
+public final class FakePeer implements TransactionBroadcaster {
+
+    /**
+     * Delay of acknowledgement in milliseconds.
+     */
+    private final long delay;
+
+    /**
+     * Acknowledgement timer.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Broadcasts.
+     */
+    private final LongAdder count;
+
+    /**
+     * Ctor.
+     * @param delay Delay of acknowledgement in milliseconds
+     */
+    public FakePeer(final long delay) {
+        this.delay = delay;
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-fake-peer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.count = new LongAdder();
+    }
+
+    @Override
+    public TransactionBroadcast broadcastTransaction(final Transaction txn) {
+        this.count.increment();
+        final SettableFuture<Transaction> future = SettableFuture.create();
+        this.timer.schedule(
+            () -> future.set(txn), this.delay, TimeUnit.MILLISECONDS
+        );
+        return TransactionBroadcast.createMockBroadcast(txn, future);
+    }
+
+    /**
+     * Broadcasts.
+     * @return Number of broadcast transactions
+     */
+    public long broadcasts() {
+        return this.count.sum();
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.load;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.takes.Take;
+import org.takes.http.BkBasic;
+import org.takes.http.BkSafe;
+import org.takes.http.Exit;
+import org.takes.http.FtBasic;
+import wtf.harvest.btcops.bench.SyntheticWallet;
+import wtf.harvest.btcops.chain.FilterPeerGroup;
+import wtf.harvest.btcops.chain.PeerCache;
+import wtf.harvest.btcops.chain.PeerManager;
+import wtf.harvest.btcops.chain.ScanChain;
+import wtf.harvest.btcops.chain.Sync;
+import wtf.harvest.btcops.fees.FeeEstimator;
+import wtf.harvest.btcops.metrics.Metrics;
+import wtf.harvest.btcops.send.Consolidator;
+import wtf.harvest.btcops.send.Jobs;
+import wtf.harvest.btcops.send.Receipts;
+import wtf.harvest.btcops.send.WalletPayments;
+import wtf.harvest.btcops.tk.BkShed;
+import wtf.harvest.btcops.tk.Pool;
+import wtf.harvest.btcops.tk.TkApp;
+import wtf.harvest.btcops.wallet.AddressPool;
+import wtf.harvest.btcops.wallet.TxHistory;
+import wtf.harvest.btcops.watch.Imports;
+import wtf.harvest.btcops.watch.Watchlist;
+
+/**
+ * Load test of the service.
+ * <p>
+ * Serves {@link TkApp} over a synthetic wallet on a local port, with
+ * a fake peer acknowledging payments, drives {@code /send},
+ * {@code /receive} and {@code /balance} at fixed rates and reports
+ * throughput and latency percentiles of every route. Options are
+ * {@code --name=value} pairs: {@code outputs}, {@code seconds},
+ * {@code send-rate}, {@code receive-rate}, {@code balance-rate},
+ * {@code clients}, {@code ack-delay} (milliseconds).
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+public final class Load {
+
+    /**
+     * Number of HTTP workers.
+     */
+    private static final int THREADS = 16;
+
+    /**
+     * Max connections waiting for a worker.
+     */
+    private static final int QUEUE = 100;
+
+    /**
+     * Options.
+     */
+    private final Map<String, String> opts;
+
+    /**
+     * Ctor.
+     * @param args Command line arguments
+     */
+    public Load(final String... args) {
+        this.opts = new HashMap<>(args.length);
+        for (final String arg : args) {
+            final String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException(
+                    String.format("Expected --name=value, got: %s", arg)
+                );
+            }
+            this.opts.put(pair[0], pair[1]);
+        }
+    }
+
+    /**
+     * Entry point.
+     * @param args Command line arguments
+     * @throws Exception If fails
+     */
+    public static void main(final String... args) throws Exception {
+        new Load(args).run();
+    }
+
+    /**
+     * Run the test and log the report.
+     * @throws Exception If fails
+     */
+    public void run() throws Exception {
+        final long seconds = this.option("seconds", 30L);
+        final SyntheticWallet synth = new SyntheticWallet(
+            (int) this.option("outputs", 10_000L)
+        );
+        Logger.info(this, "Building wallet of %d outputs", synth.outputs);
+        synth.setup();
+        final FakePeer peer = new FakePeer(this.option("ack-delay", 50L));
+        synth.wallet().setTransactionBroadcaster(peer);
+        final Path dir = Files.createTempDirectory("btcops-load");
+        final Take app = Load.app(synth, dir);
+        final ServerSocket socket = new ServerSocket(0);
+        final Thread front = new Thread(
+            () -> {
+                try {
+                    new FtBasic(
+                        new BkShed(
+                            new BkSafe(new BkBasic(app)),
+                            Load.THREADS, Load.QUEUE
+                        ),
+                        socket
+                    ).start(Exit.NEVER);
+                } catch (final IOException err) {
+                    throw new UncheckedIOException(err);
+                }
+            },
+            "btcops-http"
+        );
+        front.setDaemon(true);
+        front.start();
+        final NetworkParameters net = synth.wallet().getParams();
+        final Address dest = new ECKey().toAddress(net);
+        final List<Address> addrs = synth.addresses();
+        final List<Route> routes = new ArrayList<>(3);
+        routes.add(
+            new Route(
+                "/send", "POST",
+                () -> String.format("/send?to=%s&amount=0.0001", dest),
+                (int) this.option("send-rate", 5L), seconds
+            )
+        );
+        routes.add(
+            new Route(
+                "/receive", "GET", () -> "/receive",
+                (int) this.option("receive-rate", 50L), seconds
+            )
+        );
+        routes.add(
+            new Route(
+                "/balance", "GET",
+                () -> String.format(
+                    "/balance?address=%s",
+                    addrs.get(ThreadLocalRandom.current().nextInt(addrs.size()))
+                ),
+                (int) this.option("balance-rate", 500L), seconds
+            )
+        );
+        this.drive(routes, socket.getLocalPort(), seconds);
+        Logger.info(this, "Results of %d s:", seconds);
+        Logger.info(this, Route.header());
+        for (final Route route : routes) {
+            Logger.info(this, route.report(seconds));
+        }
+        Logger.info(this, "Transactions broadcast: %d", peer.broadcasts());
+    }
+
+    /**
+     * Drive traffic of routes.
+     * @param routes Routes
+     * @param port Server port
+     * @param seconds Duration of test
+     * @throws InterruptedException If interrupted
+     */
+    private void drive(final List<Route> routes, final int port,
+        final long seconds) throws InterruptedException {
+        final ScheduledExecutorService timer =
+            Executors.newScheduledThreadPool(1);
+        final ExecutorService clients = Executors.newFixedThreadPool(
+            (int) this.option("clients", 256L)
+        );
+        final List<ScheduledFuture<?>> running = new ArrayList<>(routes.size());
+        for (final Route route : routes) {
+            running.add(route.start(timer, clients, port));
+        }
+        TimeUnit.SECONDS.sleep(seconds);
+        for (final ScheduledFuture<?> future : running) {
+            future.cancel(false);
+        }
+        timer.shutdown();
+        timer.awaitTermination(1L, TimeUnit.MINUTES);
+        clients.shutdown();
+        clients.awaitTermination(1L, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Numeric option.
+     * @param name Option name
+     * @param def Default value
+     * @return Value
+     */
+    private long option(final String name, final long def) {
+        final String value = this.opts.get(name);
+        long res = def;
+        if (value != null) {
+            res = Long.parseLong(value);
+        }
+        return res;
+    }
+
+    /**
+     * The service over the wallet.
+     * <p>
+     * Wired the same way as in {@code BtcOps}, except that peers are not
+     * started and the chain is taken as synced.
+     * </p>
+     * @param synth Synthetic wallet
+     * @param dir Data directory
+     * @return Take
+     * @throws IOException If fails to load send receipts
+     * @throws BlockStoreException If fails to create block store
+     */
+    private static Take app(final SyntheticWallet synth, final Path dir)
+        throws IOException, BlockStoreException {
+        final Wallet wlt = synth.wallet();
+        final NetworkParameters net = wlt.getParams();
+        final ScanChain chain = new ScanChain(net, new MemoryBlockStore(net));
+        final FilterPeerGroup peers = new FilterPeerGroup(net, chain, 1000L);
+        final Sync sync = new Sync(peers, chain);
+        sync.onChainDownloadStarted(null, 0);
+        final FeeEstimator fees = new FeeEstimator(peers, chain, wlt);
+        final Jobs jobs = new Jobs(
+            new WalletPayments(wlt), Load.THREADS, 1000, 1000,
+            new Receipts(dir.resolve("btcops.keys"), 1000).load()
+        );
+        return new TkApp(
+            wlt, synth.index(), new TxHistory(wlt).attach(), synth.version(),
+            jobs, fees,
+            new Consolidator(
+                wlt, synth.index(), fees, jobs, Coin.parseCoin("0.00005")
+            ),
+            new Imports(
+                wlt, new Watchlist(wlt, dir.resolve("btcops.xpubs")), peers,
+                chain, 1, 1
+            ),
+            new AddressPool(wlt, 100).start(),
+            sync,
+            new PeerManager(
+                peers, chain, new PeerCache(dir.resolve("btcops.peers"), 1),
+                1
+            ),
+            peers,
+            new Pool("read", Load.THREADS, Load.QUEUE, 5000L),
+            new Pool("send", 4, 4, 60_000L),
+            new Metrics()
+        );
+    }
+}
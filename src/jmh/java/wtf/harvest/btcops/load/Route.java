@@ -0,0 +1,221 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Traffic of one route at a fixed rate.
+ * <p>
+ * Requests are issued on schedule whether or not previous ones have
+ * completed, and latency is counted from the scheduled time, so requests
+ * delayed by a slow server are not left out of percentiles.
+ * </p>
+ * @since 1.0
+ */
+final class Route {
+
+    /**
+     * Size of buffer for response bodies.
+     */
+    private static final int BUFFER = 4096;
+
+    /**
+     * Route name.
+     */
+    private final String name;
+
+    /**
+     * HTTP method.
+     */
+    private final String method;
+
+    /**
+     * Paths with query to request.
+     */
+    private final Supplier<String> paths;
+
+    /**
+     * Requests per second.
+     */
+    private final int rate;
+
+    /**
+     * Latencies in nanoseconds.
+     */
+    private final long[] latencies;
+
+    /**
+     * Recorded latencies.
+     */
+    private final AtomicInteger recorded;
+
+    /**
+     * Failed requests and error responses.
+     */
+    private final LongAdder errors;
+
+    /**
+     * Scheduled requests.
+     */
+    private final AtomicLong ticks;
+
+    /**
+     * Ctor.
+     * @param name Route name
+     * @param method HTTP method
+     * @param paths Paths with query to request
+     * @param rate Requests per second
+     * @param seconds Duration of test
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    Route(final String name, final String method,
+        final Supplier<String> paths, final int rate, final long seconds) {
+        this.name = name;
+        this.method = method;
+        this.paths = paths;
+        this.rate = rate;
+        this.latencies = new long[(int) (rate * seconds) + 1];
+        this.recorded = new AtomicInteger();
+        this.errors = new LongAdder();
+        this.ticks = new AtomicLong();
+    }
+
+    /**
+     * Start issuing requests.
+     * @param timer Request timer
+     * @param clients Client threads
+     * @param port Server port
+     * @return Future to cancel to stop issuing requests
+     */
+    ScheduledFuture<?> start(final ScheduledExecutorService timer,
+        final ExecutorService clients, final int port) {
+        final long period = TimeUnit.SECONDS.toNanos(1L) / this.rate;
+        final long begin = System.nanoTime() + period;
+        return timer.scheduleAtFixedRate(
+            () -> {
+                final long intended = begin
+                    + this.ticks.getAndIncrement() * period;
+                final String path = this.paths.get();
+                clients.execute(() -> this.request(port, path, intended));
+            },
+            period, period, TimeUnit.NANOSECONDS
+        );
+    }
+
+    /**
+     * Report of the route.
+     * @param seconds Duration of test
+     * @return Report line
+     */
+    String report(final long seconds) {
+        final int count = Math.min(this.recorded.get(), this.latencies.length);
+        final long[] sorted = Arrays.copyOf(this.latencies, count);
+        Arrays.sort(sorted);
+        return String.format(
+            "%-10s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f",
+            this.name, count, this.errors.sum(), (double) count / seconds,
+            Route.percentile(sorted, 0.5), Route.percentile(sorted, 0.99),
+            Route.percentile(sorted, 0.999), Route.percentile(sorted, 1.0)
+        );
+    }
+
+    /**
+     * Header of the report.
+     * @return Header line
+     */
+    static String header() {
+        return String.format(
+            "%-10s %8s %7s %9s %9s %9s %9s %9s",
+            "route", "requests", "errors", "req/s",
+            "p50 ms", "p99 ms", "p999 ms", "max ms"
+        );
+    }
+
+    /**
+     * Issue request and record its latency.
+     * @param port Server port
+     * @param path Path with query
+     * @param intended Scheduled time in nanoseconds
+     */
+    private void request(final int port, final String path,
+        final long intended) {
+        try {
+            final HttpURLConnection conn = (HttpURLConnection) new URL(
+                String.format("http://127.0.0.1:%d%s", port, path)
+            ).openConnection();
+            conn.setRequestMethod(this.method);
+            final int status = conn.getResponseCode();
+            final InputStream body;
+            if (status < HttpURLConnection.HTTP_BAD_REQUEST) {
+                body = conn.getInputStream();
+            } else {
+                this.errors.increment();
+                body = conn.getErrorStream();
+            }
+            if (body != null) {
+                final byte[] buf = new byte[Route.BUFFER];
+                try (InputStream in = body) {
+                    while (in.read(buf) >= 0) {
+                        continue;
+                    }
+                }
+            }
+        } catch (final IOException err) {
+            this.errors.increment();
+        }
+        final int idx = this.recorded.getAndIncrement();
+        if (idx < this.latencies.length) {
+            this.latencies[idx] = System.nanoTime() - intended;
+        }
+    }
+
+    /**
+     * Percentile of sorted latencies.
+     * @param sorted Sorted latencies in nanoseconds
+     * @param rank Rank from 0 to 1
+     * @return Latency in milliseconds
+     */
+    private static double percentile(final long[] sorted, final double rank) {
+        double res = 0.0;
+        if (sorted.length > 0) {
+            res = sorted[
+                Math.min(sorted.length - 1, (int) (sorted.length * rank))
+            ] / 1.0e6;
+        }
+        return res;
+    }
+}
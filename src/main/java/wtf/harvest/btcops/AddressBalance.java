@@ -23,20 +23,15 @@
  */
 package wtf.harvest.btcops;
 
-import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Coin;
-import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.Transaction;
 import org.bitcoinj.core.TransactionConfidence;
 import org.bitcoinj.core.TransactionOutput;
 import org.bitcoinj.wallet.CoinSelection;
 import org.bitcoinj.wallet.CoinSelector;
+import wtf.harvest.btcops.coins.CoinDaysSelector;
 
 /**
  * This class implements a {@link CoinSelector} which attempts to select all outputs
@@ -55,58 +50,8 @@ public class AddressBalance implements CoinSelector {
 
     @Override
     public CoinSelection select(Coin biTarget, List<TransactionOutput> candidates) {
-        long target = biTarget.longValue();
-        HashSet<TransactionOutput> selected = new HashSet<>();
-        // Sort the inputs by age*value so we get the highest "coindays" spent.
-        // TODO: Consider changing the wallets internal format to track just outputs and keep them ordered.
-        ArrayList<TransactionOutput> sortedOutputs = new ArrayList<TransactionOutput>(candidates);
-        // When calculating the wallet balance, we may be asked to select all possible coins, if so, avoid sorting
-        // them in order to improve performance.
-        if (!biTarget.equals(NetworkParameters.MAX_MONEY)) {
-            this.sortOutputs(sortedOutputs);
-        }
-        // Now iterate over the sorted outputs until we have got as close to the target as possible or a little
-        // bit over (excessive value will be change).
-        long totalOutputValue = 0;
-        for (TransactionOutput output : sortedOutputs) {
-            if (totalOutputValue >= target) break;
-            // Only pick chain-included transactions, or transactions that are ours and pending.
-            if (!this.shouldSelect(output)) continue;
-            selected.add(output);
-            totalOutputValue += output.getValue().longValue();
-        }
-        // Total may be lower than target here, if the given candidates were insufficient to create to requested
-        // transaction.
-        return new CoinSelection(Coin.valueOf(totalOutputValue), selected);
-    }
-
-    void sortOutputs(ArrayList<TransactionOutput> outputs) {
-        Collections.sort(outputs, new Comparator<TransactionOutput>() {
-            @Override
-            public int compare(TransactionOutput a, TransactionOutput b) {
-                int depth1 = 0;
-                int depth2 = 0;
-                TransactionConfidence conf1 = a.getParentTransaction().getConfidence();
-                TransactionConfidence conf2 = b.getParentTransaction().getConfidence();
-                if (conf1.getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING)
-                    depth1 = conf1.getDepthInBlocks();
-                if (conf2.getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING)
-                    depth2 = conf2.getDepthInBlocks();
-                Coin aValue = a.getValue();
-                Coin bValue = b.getValue();
-                BigInteger aCoinDepth = BigInteger.valueOf(aValue.value).multiply(BigInteger.valueOf(depth1));
-                BigInteger bCoinDepth = BigInteger.valueOf(bValue.value).multiply(BigInteger.valueOf(depth2));
-                int c1 = bCoinDepth.compareTo(aCoinDepth);
-                if (c1 != 0) return c1;
-                // The "coin*days" destroyed are equal, sort by value alone to get the lowest transaction size.
-                int c2 = bValue.compareTo(aValue);
-                if (c2 != 0) return c2;
-                // They are entirely equivalent (possibly pending) so sort by hash to ensure a total ordering.
-                BigInteger aHash = a.getParentTransaction().getHash().toBigInteger();
-                BigInteger bHash = b.getParentTransaction().getHash().toBigInteger();
-                return aHash.compareTo(bHash);
-            }
-        });
+        // Highest "coindays" first, sort keys are computed once per output by the selector.
+        return new CoinDaysSelector(this::shouldSelect).select(biTarget, candidates);
     }
 
     /** Sub-classes can override this to just customize whether transactions are usable, but keep age sorting. */
@@ -26,11 +26,13 @@ package wtf.harvest.btcops;
 import java.io.File;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.TestNet3Params;
@@ -61,6 +63,61 @@ public final class Arguments {
      */
     private static final String P_PORT = "port";
 
+    /**
+     * Send batch window argument name.
+     */
+    private static final String P_BATCH_WINDOW = "batch-window";
+
+    /**
+     * Send batch size argument name.
+     */
+    private static final String P_BATCH_SIZE = "batch-size";
+
+    /**
+     * Consolidation interval argument name.
+     */
+    private static final String P_CONSOLIDATE = "consolidate-interval";
+
+    /**
+     * Consolidation max fee rate argument name.
+     */
+    private static final String P_CONSOLIDATE_FEE = "consolidate-fee";
+
+    /**
+     * Checkpoints file argument name.
+     */
+    private static final String P_CHECKPOINTS = "checkpoints";
+
+    /**
+     * HTTP workers argument name.
+     */
+    private static final String P_HTTP_THREADS = "http-threads";
+
+    /**
+     * HTTP accept queue argument name.
+     */
+    private static final String P_HTTP_QUEUE = "http-queue";
+
+    /**
+     * Read routes timeout argument name.
+     */
+    private static final String P_READ_TIMEOUT = "read-timeout";
+
+    /**
+     * Send handlers argument name.
+     */
+    private static final String P_SEND_THREADS = "send-threads";
+
+    /**
+     * Send queue argument name.
+     */
+    private static final String P_SEND_QUEUE = "send-queue";
+
+    /**
+     * Send route timeout argument name.
+     */
+    private static final String P_SEND_TIMEOUT = "send-timeout";
+
     /**
      * Command line arguments.
      */
@@ -125,6 +182,143 @@ public final class Arguments {
         return Integer.parseInt(this.args.getOptionValue(Arguments.P_PORT));
     }
 
+    /**
+     * Time window to batch send requests in.
+     *
+     * @return Milliseconds, 500 if not set
+     */
+    public long batchWindow() {
+        return Long.parseLong(
+            this.args.getOptionValue(Arguments.P_BATCH_WINDOW, "500")
+        );
+    }
+
+    /**
+     * Max number of send requests in one batch.
+     *
+     * @return Batch size, one if batching is not set
+     */
+    public int batchSize() {
+        return Integer.parseInt(
+            this.args.getOptionValue(Arguments.P_BATCH_SIZE, "1")
+        );
+    }
+
+    /**
+     * Minutes between output consolidation runs.
+     *
+     * @return Minutes, zero if consolidation is off
+     */
+    public long consolidateInterval() {
+        return Long.parseLong(
+            this.args.getOptionValue(Arguments.P_CONSOLIDATE, "0")
+        );
+    }
+
+    /**
+     * Max fee rate to consolidate outputs at.
+     *
+     * @return Fee rate per kB, 0.00005 BTC if not set, which is below
+     *  the fallback rate, so consolidation waits for fee estimates
+     */
+    public Coin consolidateFee() {
+        return Coin.parseCoin(
+            this.args.getOptionValue(Arguments.P_CONSOLIDATE_FEE, "0.00005")
+        );
+    }
+
+    /**
+     * Custom checkpoints file.
+     *
+     * @return File, empty to use checkpoints bundled with bitcoinj
+     */
+    public Optional<File> checkpoints() {
+        return Optional.ofNullable(
+            this.args.getOptionValue(Arguments.P_CHECKPOINTS)
+        ).map(File::new);
+    }
+
+    /**
+     * HTTP workers, also handlers of read routes.
+     *
+     * @return Number of threads
+     */
+    public int httpThreads() {
+        return Integer.parseInt(
+            this.args.getOptionValue(Arguments.P_HTTP_THREADS, "16")
+        );
+    }
+
+    /**
+     * Max connections and requests waiting for a thread.
+     *
+     * @return Queue depth
+     */
+    public int httpQueue() {
+        return Integer.parseInt(
+            this.args.getOptionValue(Arguments.P_HTTP_QUEUE, "100")
+        );
+    }
+
+    /**
+     * Timeout of read routes.
+     *
+     * @return Milliseconds
+     */
+    public long readTimeout() {
+        return Long.parseLong(
+            this.args.getOptionValue(Arguments.P_READ_TIMEOUT, "5000")
+        );
+    }
+
+    /**
+     * Handlers of send route.
+     *
+     * @return Number of threads
+     */
+    public int sendThreads() {
+        return Integer.parseInt(
+            this.args.getOptionValue(Arguments.P_SEND_THREADS, "4")
+        );
+    }
+
+    /**
+     * Max send requests waiting for a handler.
+     * <p>
+     * Waiting and running sends hold HTTP workers, so together they must
+     * leave some workers to read routes.
+     * </p>
+     *
+     * @return Queue depth
+     * @throws IllegalStateException If sends could take all HTTP workers
+     */
+    public int sendQueue() {
+        final int queue = Integer.parseInt(
+            this.args.getOptionValue(Arguments.P_SEND_QUEUE, "4")
+        );
+        if (this.sendThreads() + queue >= this.httpThreads()) {
+            throw new IllegalStateException(
+                String.format(
+                    "%s plus %s must be less than %s",
+                    Arguments.P_SEND_THREADS, Arguments.P_SEND_QUEUE,
+                    Arguments.P_HTTP_THREADS
+                )
+            );
+        }
+        return queue;
+    }
+
+    /**
+     * Timeout of send route.
+     *
+     * @return Milliseconds
+     */
+    public long sendTimeout() {
+        return Long.parseLong(
+            this.args.getOptionValue(Arguments.P_SEND_TIMEOUT, "60000")
+        );
+    }
+
     /**
      * Convert the provided arguments into commons.cli CommandLine object.
      * @param args Arguments to parse.
@@ -133,11 +327,22 @@ public final class Arguments {
      */
     private static CommandLine parse(final String... args) {
         final Options options = new Options();
-        //@checkstyle LineLengthCheck (3 lines)
+        //@checkstyle LineLengthCheck (14 lines)
         options.addOption("", Arguments.P_NET, true, "Net arg: can be either main or test3, if main then bot should use main network, test3 otherwise ");
         options.addOption("", Arguments.P_DATA, true, "Data arg: data directory");
         options.addOption("", Arguments.P_DISCOVERY, true, "Discovery args: host name (list) of peers discovery");
         options.addOption("", Arguments.P_PORT, true, "Web service port");
+        options.addOption("", Arguments.P_BATCH_WINDOW, true, "Send batch window in milliseconds");
+        options.addOption("", Arguments.P_BATCH_SIZE, true, "Max send requests in one batch, batching is off if not greater than one");
+        options.addOption("", Arguments.P_CONSOLIDATE, true, "Minutes between small outputs consolidation runs, consolidation is off if zero");
+        options.addOption("", Arguments.P_CONSOLIDATE_FEE, true, "Max fee rate in BTC per kB to consolidate outputs at");
+        options.addOption("", Arguments.P_CHECKPOINTS, true, "Checkpoints file to start new block chain from, bundled checkpoints are used by default");
+        options.addOption("", Arguments.P_HTTP_THREADS, true, "HTTP workers and read route handlers");
+        options.addOption("", Arguments.P_HTTP_QUEUE, true, "Max connections or requests waiting for a thread before shedding");
+        options.addOption("", Arguments.P_READ_TIMEOUT, true, "Read routes timeout in milliseconds");
+        options.addOption("", Arguments.P_SEND_THREADS, true, "Send route handlers");
+        options.addOption("", Arguments.P_SEND_QUEUE, true, "Max send requests waiting for a handler");
+        options.addOption("", Arguments.P_SEND_TIMEOUT, true, "Send route timeout in milliseconds");
         final CommandLineParser parser = new DefaultParser();
         try {
             return parser.parse(options, args);
@@ -25,18 +25,61 @@ package wtf.harvest.btcops;
 
 import com.jcabi.log.Logger;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import org.bitcoinj.core.BlockChain;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.CheckpointManager;
 import org.bitcoinj.core.NetworkParameters;
-import org.bitcoinj.core.PeerGroup;
 import org.bitcoinj.net.discovery.DnsDiscovery;
+import org.bitcoinj.net.discovery.PeerDiscovery;
 import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.BlockStoreException;
 import org.bitcoinj.store.SPVBlockStore;
-import org.bitcoinj.wallet.UnreadableWalletException;
 import org.bitcoinj.wallet.Wallet;
+import org.takes.Take;
+import org.takes.http.BkBasic;
+import org.takes.http.BkSafe;
 import org.takes.http.Exit;
-import org.takes.http.FtCli;
+import org.takes.http.FtBasic;
+import wtf.harvest.btcops.chain.CachedDiscovery;
+import wtf.harvest.btcops.chain.FilterPeerGroup;
+import wtf.harvest.btcops.chain.PeerCache;
+import wtf.harvest.btcops.chain.PeerManager;
+import wtf.harvest.btcops.chain.ScanChain;
+import wtf.harvest.btcops.chain.Sync;
+import wtf.harvest.btcops.events.Events;
+import wtf.harvest.btcops.fees.FeeEstimator;
+import wtf.harvest.btcops.metrics.LockProbe;
+import wtf.harvest.btcops.metrics.Metrics;
+import wtf.harvest.btcops.send.BatchPayments;
+import wtf.harvest.btcops.send.Consolidator;
+import wtf.harvest.btcops.send.Jobs;
+import wtf.harvest.btcops.send.Payments;
+import wtf.harvest.btcops.send.Receipts;
+import wtf.harvest.btcops.send.WalletPayments;
+import wtf.harvest.btcops.tk.BkEvents;
+import wtf.harvest.btcops.tk.BkShed;
+import wtf.harvest.btcops.tk.BkSwap;
+import wtf.harvest.btcops.tk.Pool;
 import wtf.harvest.btcops.tk.TkApp;
+import wtf.harvest.btcops.tk.TkStarting;
+import wtf.harvest.btcops.wallet.AddressPool;
+import wtf.harvest.btcops.wallet.Journal;
+import wtf.harvest.btcops.wallet.Snapshot;
+import wtf.harvest.btcops.wallet.TxHistory;
+import wtf.harvest.btcops.wallet.UtxoFile;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+import wtf.harvest.btcops.wallet.UtxoView;
+import wtf.harvest.btcops.wallet.WalletVersion;
+import wtf.harvest.btcops.watch.Imports;
+import wtf.harvest.btcops.watch.Watchlist;
 
 /**
  * Bot entry point.
@@ -46,6 +89,61 @@ import wtf.harvest.btcops.tk.TkApp;
  */
 public final class BtcOps {
 
+    /**
+     * Min number of send workers.
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Send requests waiting for a worker.
+     */
+    private static final int SEND_QUEUE = 1000;
+
+    /**
+     * Send jobs kept for status polling.
+     */
+    private static final int SEND_HISTORY = 100_000;
+
+    /**
+     * Idempotency keys kept for send deduplication.
+     */
+    private static final int SEND_KEYS = 100_000;
+
+    /**
+     * Imports waiting for the worker.
+     */
+    private static final int IMPORT_QUEUE = 100;
+
+    /**
+     * Imports kept for status polling.
+     */
+    private static final int IMPORT_HISTORY = 1000;
+
+    /**
+     * Receive addresses derived per pool refill.
+     */
+    private static final int ADDRESSES = 100;
+
+    /**
+     * Target number of peer connections.
+     */
+    private static final int PEERS = 8;
+
+    /**
+     * Window to merge Bloom filter recalculations in, milliseconds.
+     */
+    private static final long FILTER_WINDOW = 1000L;
+
+    /**
+     * Known good peers kept for restart.
+     */
+    private static final int PEER_CACHE = 200;
+
+    /**
+     * Checkpoint clock drift margin in seconds.
+     */
+    private static final long WEEK = TimeUnit.DAYS.toSeconds(7L);
+
     /**
      * Data folder.
      */
@@ -99,19 +197,180 @@ public final class BtcOps {
     /**
      * Wallet from the network.
      * @param net Network
-     * @return Wallet
+     * @return Wallet with its journal replayed
      * @throws IOException If something goes wrong
      */
     private Wallet walletFrom(final NetworkParameters net) throws IOException {
         if (!this.wfile.exists() || this.wfile.isDirectory()) {
             this.wfile.delete();
+            this.journal().delete();
             new Wallet(net).saveToFile(this.wfile);
         }
-        try {
-            return Wallet.loadFromFile(this.wfile);
-        } catch (final UnreadableWalletException err) {
-            throw new IOException("Failed to read wfile", err);
+        return new Snapshot(this.wfile, this.journal()).load();
+    }
+
+    /**
+     * Block store of the network.
+     * <p>
+     * New store starts from the checkpoint before the earliest key of
+     * the wallet, so only headers after it are downloaded.
+     * @param net Network
+     * @param wlt Wallet
+     * @return Block store
+     * @throws IOException If fails to read checkpoints
+     * @throws BlockStoreException If fails to create the store
+     */
+    private BlockStore store(final NetworkParameters net, final Wallet wlt)
+        throws IOException, BlockStoreException {
+        final File file = new File(this.data, "btcops.chain");
+        final boolean fresh = !file.exists();
+        final BlockStore store = new SPVBlockStore(net, file);
+        final long time = wlt.getEarliestKeyCreationTime();
+        if (fresh && time > BtcOps.WEEK && time < Long.MAX_VALUE) {
+            try (InputStream checkpoints = this.checkpoints(net)) {
+                CheckpointManager.checkpoint(net, checkpoints, store, time);
+            }
+            Logger.info(
+                this, "Block chain starts from checkpoint at height %d",
+                store.getChainHead().getHeight()
+            );
         }
+        return store;
+    }
+
+    /**
+     * Checkpoints of the network.
+     * @param net Network
+     * @return Custom checkpoints if configured, bundled ones otherwise
+     * @throws IOException If fails to open checkpoints
+     */
+    private InputStream checkpoints(final NetworkParameters net)
+        throws IOException {
+        final Optional<File> custom = this.params.arg().checkpoints();
+        final InputStream stream;
+        if (custom.isPresent()) {
+            stream = new FileInputStream(custom.get());
+        } else {
+            stream = CheckpointManager.openStream(net);
+        }
+        if (stream == null) {
+            throw new IOException(
+                String.format("No checkpoints bundled for %s", net.getId())
+            );
+        }
+        return stream;
+    }
+
+    /**
+     * Wallet journal file.
+     * @return File
+     */
+    private File journal() {
+        return new File(this.data, "btcops.wlt.journal");
+    }
+
+    /**
+     * Outputs snapshot file.
+     * @return File
+     */
+    private UtxoFile utxos() {
+        return new UtxoFile(new File(this.data, "btcops.wlt.utxo"));
+    }
+
+    /**
+     * Routing while the wallet is loading.
+     * @param net Network
+     * @return Take serving balances from outputs snapshot, if there is one
+     */
+    private Take starting(final NetworkParameters net) {
+        final UtxoFile file = this.utxos();
+        Take take = new TkStarting();
+        if (file.exists() && this.wfile.isFile()) {
+            try {
+                final UtxoView view = file.view();
+                Logger.info(
+                    this, "Serving %d outputs snapshot at height %d",
+                    view.size(), view.height()
+                );
+                take = new TkStarting(net, view);
+            } catch (final IOException err) {
+                Logger.warn(
+                    this, "Outputs snapshot ignored: %[exception]s", err
+                );
+            }
+        }
+        return take;
+    }
+
+    /**
+     * Payments of the wallet, batched if batching is configured.
+     * @param wlt Wallet
+     * @return Payments
+     */
+    private Payments payments(final Wallet wlt) {
+        final int size = this.params.arg().batchSize();
+        final Payments payments;
+        if (size > 1) {
+            final long window = this.params.arg().batchWindow();
+            Logger.info(
+                this, "Batching send requests: %d in %d ms", size, window
+            );
+            payments = new BatchPayments(wlt, window, size);
+        } else {
+            payments = new WalletPayments(wlt);
+        }
+        return payments;
+    }
+
+    /**
+     * Send pipeline of the wallet.
+     * <p>
+     * Batched payments park their caller until the batch is closed, so
+     * there are at least as many workers as payments in a batch.
+     * @param wlt Wallet
+     * @return Jobs
+     * @throws IOException If fails to load send receipts
+     */
+    private Jobs jobs(final Wallet wlt) throws IOException {
+        return new Jobs(
+            this.payments(wlt),
+            Math.max(BtcOps.THREADS, this.params.arg().batchSize()),
+            BtcOps.SEND_QUEUE,
+            BtcOps.SEND_HISTORY,
+            new Receipts(
+                new File(this.data, "btcops.keys").toPath(),
+                BtcOps.SEND_KEYS
+            ).load()
+        );
+    }
+
+    /**
+     * Metrics of the wallet and the chain.
+     * @param wlt Wallet
+     * @param index Address index
+     * @param peers Peer group
+     * @param sync Chain sync
+     * @return Metrics
+     */
+    private static Metrics metrics(final Wallet wlt, final UtxoIndex index,
+        final FilterPeerGroup peers, final Sync sync) {
+        final Metrics metrics = new Metrics()
+            .gauge(
+                "btcops_peers_connected", "Connected peers",
+                peers::numConnectedPeers
+            )
+            .gauge("btcops_chain_height", "Best chain height", sync::height)
+            .gauge(
+                "btcops_chain_blocks_left", "Blocks left to download",
+                sync::left
+            )
+            .gauge("btcops_utxo_count", "Wallet outputs", index::size)
+            .counter(
+                "btcops_filter_recalculations_total",
+                "Bloom filter recalculations", peers::recalculations
+            );
+        new LockProbe(wlt, metrics).start();
+        return metrics;
     }
 
     /**
@@ -121,30 +380,98 @@ public final class BtcOps {
     private void run() throws Exception {
         final NetworkParameters net = this.params.arg().net();
         Logger.info(this, "Using network: %s", net);
-        final BlockStore store = new SPVBlockStore(
-            net,
-            new File(this.data, "btcops.chain")
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(this.params.arg().port()));
+        final BkSwap back = new BkSwap(new BkBasic(this.starting(net)));
+        final Thread front = new Thread(
+            () -> {
+                try {
+                    new FtBasic(
+                        new BkShed(
+                            new BkSafe(back),
+                            this.params.arg().httpThreads(),
+                            this.params.arg().httpQueue()
+                        ),
+                        server.socket()
+                    ).start(Exit.NEVER);
+                } catch (final IOException err) {
+                    throw new UncheckedIOException(err);
+                }
+            },
+            "btcops-http"
         );
-        final BlockChain chain = new BlockChain(net, store);
-        final PeerGroup peers = new PeerGroup(net, chain);
+        front.start();
+        final Wallet wlt = this.walletFrom(net);
+        final ScanChain chain = new ScanChain(net, this.store(net, wlt));
+        final FilterPeerGroup peers = new FilterPeerGroup(
+            net, chain, BtcOps.FILTER_WINDOW
+        );
+        final PeerCache cache = new PeerCache(
+            new File(this.data, "btcops.peers").toPath(), BtcOps.PEER_CACHE
+        ).load();
+        final List<PeerDiscovery> seeds = new ArrayList<>(0);
         for (final String seed : this.params.arg().discovery()) {
             Logger.info(
                 this,
                 "Using peer discovery seed: %s", seed
             );
-            peers.addPeerDiscovery(
-                new DnsDiscovery.DnsSeedDiscovery(net, seed)
-            );
+            seeds.add(new DnsDiscovery.DnsSeedDiscovery(net, seed));
         }
-        final Wallet wlt = this.walletFrom(net);
+        Logger.info(
+            this, "Trying %d cached peers first", cache.addresses().size()
+        );
+        peers.addPeerDiscovery(
+            new CachedDiscovery(cache, seeds, BtcOps.PEERS)
+        );
         peers.addWallet(wlt);
+        peers.setFastCatchupTimeSecs(wlt.getEarliestKeyCreationTime());
         chain.addWallet(wlt);
+        final Watchlist watchlist = new Watchlist(
+            wlt, new File(this.data, "btcops.xpubs").toPath()
+        ).load().attach();
+        new Journal(wlt, this.wfile, this.journal(), this.utxos()).attach();
+        final UtxoIndex index = new UtxoIndex(wlt).attach();
+        final TxHistory history = new TxHistory(wlt).attach();
+        final WalletVersion version = new WalletVersion(wlt).attach();
+        final Events events = new Events(wlt, index).attach();
+        final FeeEstimator fees = new FeeEstimator(peers, chain, wlt).attach();
+        final Jobs jobs = this.jobs(wlt);
+        final AddressPool pool = new AddressPool(
+            wlt, BtcOps.ADDRESSES
+        ).start();
+        final Consolidator consolidator = new Consolidator(
+            wlt, index, fees, jobs, this.params.arg().consolidateFee()
+        ).start(this.params.arg().consolidateInterval());
+        final Imports imports = new Imports(
+            wlt, watchlist, peers, chain,
+            BtcOps.IMPORT_QUEUE, BtcOps.IMPORT_HISTORY
+        );
+        final PeerManager manager = new PeerManager(
+            peers, chain, cache, BtcOps.PEERS
+        ).start();
         peers.start();
-        peers.downloadBlockChain();
-        new FtCli(
-            new TkApp(wlt),
-            String.format("--port=%d", this.params.arg().port()),
-            "--threads=4"
-        ).start(Exit.NEVER);
+        final Sync sync = new Sync(peers, chain).start();
+        back.swap(
+            new BkEvents(
+                new TkApp(
+                    wlt, index, history, version, jobs, fees, consolidator,
+                    imports, pool, sync, manager, peers,
+                    new Pool(
+                        "read", this.params.arg().httpThreads(),
+                        this.params.arg().httpQueue(),
+                        this.params.arg().readTimeout()
+                    ),
+                    new Pool(
+                        "send", this.params.arg().sendThreads(),
+                        this.params.arg().sendQueue(),
+                        this.params.arg().sendTimeout()
+                    ),
+                    BtcOps.metrics(wlt, index, peers, sync)
+                ),
+                net, events
+            )
+        );
+        Logger.info(this, "Wallet is ready");
+        front.join();
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import com.jcabi.log.Logger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bitcoinj.net.discovery.PeerDiscovery;
+import org.bitcoinj.net.discovery.PeerDiscoveryException;
+
+/**
+ * Peer discovery trying cached peers first.
+ * <p>
+ * The first discovery returns cached addresses only, if there are enough
+ * of them. Later discoveries, which mean cached peers were not enough,
+ * ask fallback discoveries too. Failing fallback doesn't fail discovery
+ * while there are cached addresses, so startup survives DNS seed outage.
+ * </p>
+ * @since 1.0
+ */
+public final class CachedDiscovery implements PeerDiscovery {
+
+    /**
+     * Cached peers.
+     */
+    private final PeerCache cache;
+
+    /**
+     * Fallback discoveries.
+     */
+    private final List<PeerDiscovery> fallback;
+
+    /**
+     * Number of cached addresses enough to skip fallback.
+     */
+    private final int enough;
+
+    /**
+     * Whether cached addresses were returned already.
+     */
+    private final AtomicBoolean tried;
+
+    /**
+     * Ctor.
+     * @param cache Cached peers
+     * @param fallback Fallback discoveries
+     * @param enough Number of cached addresses enough to skip fallback
+     */
+    public CachedDiscovery(final PeerCache cache,
+        final List<PeerDiscovery> fallback, final int enough) {
+        this.cache = cache;
+        this.fallback = fallback;
+        this.enough = enough;
+        this.tried = new AtomicBoolean();
+    }
+
+    @Override
+    public InetSocketAddress[] getPeers(final long services,
+        final long timeout, final TimeUnit unit)
+        throws PeerDiscoveryException {
+        final List<InetSocketAddress> found = new ArrayList<>(
+            this.cache.addresses()
+        );
+        if (this.tried.getAndSet(true) || found.size() < this.enough) {
+            for (final PeerDiscovery discovery : this.fallback) {
+                try {
+                    found.addAll(
+                        Arrays.asList(
+                            discovery.getPeers(services, timeout, unit)
+                        )
+                    );
+                } catch (final PeerDiscoveryException err) {
+                    Logger.warn(
+                        this, "Peer discovery failed: %[exception]s", err
+                    );
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            throw new PeerDiscoveryException("No peers discovered");
+        }
+        return found.toArray(new InetSocketAddress[found.size()]);
+    }
+
+    @Override
+    public void shutdown() {
+        for (final PeerDiscovery discovery : this.fallback) {
+            discovery.shutdown();
+        }
+    }
+}
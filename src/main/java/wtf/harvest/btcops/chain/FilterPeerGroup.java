@@ -0,0 +1,288 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.jcabi.log.Logger;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.BloomFilter;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerFilterProvider;
+import org.bitcoinj.core.PeerGroup;
+
+/**
+ * Peer group with throttled Bloom filter recalculation.
+ * <p>
+ * bitcoinj recalculates the filter and sends it to all peers on every
+ * key or script added to the wallet. Here such requests are merged
+ * within a time window into one recalculation. Before recalculating,
+ * false positive rate is sized to the number of filter elements:
+ * filter size is limited by the protocol, so a rate lower than the full
+ * filter can give makes bitcoinj see too many false positives and
+ * refresh the filter again and again. Forced refreshes and recalculations
+ * which don't send the filter are not delayed.
+ * </p>
+ * @since 1.0
+ */
+public final class FilterPeerGroup extends PeerGroup {
+
+    /**
+     * Max filter size in bits, see BIP 37.
+     */
+    private static final double MAX_BITS = 36_000.0 * 8.0;
+
+    /**
+     * Max false positive rate to size the filter to.
+     */
+    private static final double MAX_RATE = 0.1;
+
+    /**
+     * Merge window in milliseconds.
+     */
+    private final long window;
+
+    /**
+     * Filter providers.
+     */
+    private final List<PeerFilterProvider> providers;
+
+    /**
+     * Pending recalculation.
+     */
+    private final AtomicReference<SettableFuture<BloomFilter>> pending;
+
+    /**
+     * Recalculation requested by this group itself.
+     */
+    private final AtomicBoolean direct;
+
+    /**
+     * Recalculation requests.
+     */
+    private final AtomicLong requests;
+
+    /**
+     * Recalculations done.
+     */
+    private final AtomicLong done;
+
+    /**
+     * Total recalculation time in milliseconds.
+     */
+    private final AtomicLong millis;
+
+    /**
+     * Filter elements at last recalculation.
+     */
+    private final AtomicLong elements;
+
+    /**
+     * False positive rate.
+     */
+    private final AtomicReference<Double> rate;
+
+    /**
+     * Recalculation thread.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Ctor.
+     * @param net Network
+     * @param chain Block chain
+     * @param window Merge window in milliseconds
+     */
+    public FilterPeerGroup(final NetworkParameters net,
+        final AbstractBlockChain chain, final long window) {
+        super(net, chain);
+        this.window = window;
+        this.providers = new CopyOnWriteArrayList<>();
+        this.pending = new AtomicReference<>();
+        this.direct = new AtomicBoolean();
+        this.requests = new AtomicLong();
+        this.done = new AtomicLong();
+        this.millis = new AtomicLong();
+        this.elements = new AtomicLong();
+        this.rate = new AtomicReference<>(
+            PeerGroup.DEFAULT_BLOOM_FILTER_FP_RATE
+        );
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-filter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    @Override
+    public ListenableFuture<BloomFilter> addPeerFilterProvider(
+        final PeerFilterProvider provider) {
+        this.providers.add(provider);
+        return super.addPeerFilterProvider(provider);
+    }
+
+    @Override
+    public void removePeerFilterProvider(final PeerFilterProvider provider) {
+        this.providers.remove(provider);
+        super.removePeerFilterProvider(provider);
+    }
+
+    @Override
+    public ListenableFuture<BloomFilter> recalculateFastCatchupAndFilter(
+        final PeerGroup.FilterRecalculateMode mode) {
+        final ListenableFuture<BloomFilter> future;
+        if (mode == PeerGroup.FilterRecalculateMode.SEND_IF_CHANGED
+            && !this.direct.get()) {
+            this.requests.incrementAndGet();
+            final SettableFuture<BloomFilter> next = SettableFuture.create();
+            if (this.pending.compareAndSet(null, next)) {
+                this.timer.schedule(
+                    this::recalculate, this.window, TimeUnit.MILLISECONDS
+                );
+                future = next;
+            } else {
+                future = this.pending.get();
+            }
+        } else {
+            future = super.recalculateFastCatchupAndFilter(mode);
+        }
+        return future;
+    }
+
+    /**
+     * Recalculation requests.
+     * @return Count
+     */
+    public long requests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Recalculations done.
+     * @return Count
+     */
+    public long recalculations() {
+        return this.done.get();
+    }
+
+    /**
+     * Total recalculation time.
+     * @return Milliseconds
+     */
+    public long millis() {
+        return this.millis.get();
+    }
+
+    /**
+     * Filter elements at last recalculation.
+     * @return Count
+     */
+    public long elements() {
+        return this.elements.get();
+    }
+
+    /**
+     * Current false positive rate.
+     * @return Rate
+     */
+    public double rate() {
+        return this.rate.get();
+    }
+
+    /**
+     * False positive rate the filter can give for the number of elements.
+     * @param count Number of elements
+     * @return Rate, not lower than bitcoinj default
+     */
+    static double sized(final long count) {
+        final double fit = Math.exp(
+            -FilterPeerGroup.MAX_BITS * Math.log(2.0) * Math.log(2.0)
+                / Math.max(count, 1L)
+        );
+        return Math.min(
+            Math.max(fit, PeerGroup.DEFAULT_BLOOM_FILTER_FP_RATE),
+            FilterPeerGroup.MAX_RATE
+        );
+    }
+
+    /**
+     * Merged recalculation, runs on recalculation thread.
+     */
+    private void recalculate() {
+        final SettableFuture<BloomFilter> future = this.pending.getAndSet(null);
+        final long start = System.currentTimeMillis();
+        long count = 0L;
+        for (final PeerFilterProvider provider : this.providers) {
+            count += provider.getBloomFilterElementCount();
+        }
+        this.elements.set(count);
+        final double sized = FilterPeerGroup.sized(count);
+        this.direct.set(true);
+        try {
+            if (!this.rate.getAndSet(sized).equals(sized)) {
+                Logger.info(
+                    this, "Bloom filter of %d elements, false positive rate %f",
+                    count, sized
+                );
+                this.setBloomFilterFalsePositiveRate(sized);
+            }
+            Futures.addCallback(
+                super.recalculateFastCatchupAndFilter(
+                    PeerGroup.FilterRecalculateMode.SEND_IF_CHANGED
+                ),
+                new FutureCallback<BloomFilter>() {
+                    @Override
+                    public void onSuccess(final BloomFilter filter) {
+                        FilterPeerGroup.this.millis.addAndGet(
+                            System.currentTimeMillis() - start
+                        );
+                        FilterPeerGroup.this.done.incrementAndGet();
+                        future.set(filter);
+                    }
+
+                    @Override
+                    public void onFailure(final Throwable err) {
+                        future.setException(err);
+                    }
+                },
+                MoreExecutors.directExecutor()
+            );
+        } finally {
+            this.direct.set(false);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent cache of known good peer addresses.
+ * <p>
+ * Addresses are stored as {@code host port ping} lines with average ping
+ * of the peer in milliseconds, and returned fastest first. Only the latest
+ * seen addresses are kept.
+ * </p>
+ * @since 1.0
+ */
+public final class PeerCache {
+
+    /**
+     * Cache file.
+     */
+    private final Path file;
+
+    /**
+     * Ping times by address.
+     */
+    private final Map<InetSocketAddress, Long> pings;
+
+    /**
+     * Ctor.
+     * @param file Cache file
+     * @param capacity Max number of addresses
+     */
+    public PeerCache(final Path file, final int capacity) {
+        this.file = file;
+        this.pings = new LinkedHashMap<InetSocketAddress, Long>(
+            capacity, 0.75f, true
+        ) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<InetSocketAddress, Long> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Load addresses from the file.
+     * @return This
+     * @throws IOException If fails to read the file
+     */
+    public synchronized PeerCache load() throws IOException {
+        this.pings.clear();
+        if (Files.exists(this.file)) {
+            for (final String line
+                : Files.readAllLines(this.file, StandardCharsets.UTF_8)) {
+                final String[] parts = line.split(" ");
+                // @checkstyle MagicNumberCheck (1 line)
+                if (parts.length == 3) {
+                    this.pings.put(
+                        new InetSocketAddress(
+                            parts[0], Integer.parseInt(parts[1])
+                        ),
+                        Long.parseLong(parts[2])
+                    );
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Known addresses, fastest first.
+     * @return Addresses
+     */
+    public synchronized List<InetSocketAddress> addresses() {
+        return this.pings.entrySet().stream()
+            .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Remember good peer.
+     * @param addr Address
+     * @param ping Average ping in milliseconds
+     */
+    public synchronized void good(final InetSocketAddress addr,
+        final long ping) {
+        this.pings.put(addr, ping);
+    }
+
+    /**
+     * Forget bad peer.
+     * @param addr Address
+     */
+    public synchronized void bad(final InetSocketAddress addr) {
+        this.pings.remove(addr);
+    }
+
+    /**
+     * Write addresses to the file.
+     * @throws IOException If fails to write the file
+     */
+    public synchronized void save() throws IOException {
+        final List<String> all = new ArrayList<>(this.pings.size());
+        for (final Map.Entry<InetSocketAddress, Long> ent
+            : this.pings.entrySet()) {
+            all.add(
+                String.format(
+                    "%s %d %d",
+                    ent.getKey().getAddress().getHostAddress(),
+                    ent.getKey().getPort(),
+                    ent.getValue()
+                )
+            );
+        }
+        final Path tmp = this.file.resolveSibling(
+            String.format("%s.tmp", this.file.getFileName())
+        );
+        Files.write(
+            tmp, all, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        Files.move(
+            tmp, this.file,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE
+        );
+    }
+}
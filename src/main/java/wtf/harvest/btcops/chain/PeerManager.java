@@ -0,0 +1,313 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.FilteredBlock;
+import org.bitcoinj.core.InventoryItem;
+import org.bitcoinj.core.InventoryMessage;
+import org.bitcoinj.core.Message;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TxConfidenceTable;
+import org.bitcoinj.core.listeners.BlocksDownloadedEventListener;
+import org.bitcoinj.core.listeners.PeerConnectedEventListener;
+import org.bitcoinj.core.listeners.PeerDisconnectedEventListener;
+import org.bitcoinj.core.listeners.PreMessageReceivedEventListener;
+import org.bitcoinj.utils.Threading;
+
+/**
+ * Peer manager scoring peers by latency and throughput.
+ * <p>
+ * Counts blocks and headers delivered by every peer and announcements
+ * of our own transactions, which acknowledge broadcasts, and reads ping
+ * times measured by bitcoinj. Every evaluation the download peer is
+ * dropped if it delivers too slowly while the chain is behind, so peer
+ * group picks another one, and peers which didn't reply to pings in time
+ * for several evaluations in a row are disconnected. Peer group replaces
+ * dropped peers from discovery to keep the target number of connections.
+ * Responsive peers are remembered in {@link PeerCache}, dropped ones
+ * are forgotten.
+ * </p>
+ * @since 1.0
+ */
+public final class PeerManager implements PeerConnectedEventListener,
+    PeerDisconnectedEventListener, BlocksDownloadedEventListener,
+    PreMessageReceivedEventListener {
+
+    /**
+     * Evaluation interval in seconds.
+     */
+    private static final long INTERVAL = 30L;
+
+    /**
+     * Min download rate in blocks per second while behind.
+     */
+    private static final double MIN_RATE = 1.0;
+
+    /**
+     * Blocks behind the peers to consider the chain behind.
+     */
+    private static final int BEHIND = 6;
+
+    /**
+     * Max acceptable ping in milliseconds.
+     */
+    private static final long SLOW = 5000L;
+
+    /**
+     * Bad evaluations in a row to disconnect a peer after.
+     */
+    private static final int STRIKES = 3;
+
+    /**
+     * Peer group.
+     */
+    private final PeerGroup peers;
+
+    /**
+     * Block chain.
+     */
+    private final AbstractBlockChain chain;
+
+    /**
+     * Transaction confidences.
+     */
+    private final TxConfidenceTable confidences;
+
+    /**
+     * Known good peers.
+     */
+    private final PeerCache cache;
+
+    /**
+     * Target number of connections.
+     */
+    private final int target;
+
+    /**
+     * Scores of connected peers.
+     */
+    private final Map<Peer, PeerScore> scores;
+
+    /**
+     * Time of previous evaluation.
+     */
+    private final AtomicLong previous;
+
+    /**
+     * Evaluation thread.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Ctor.
+     * @param peers Peer group
+     * @param chain Block chain
+     * @param cache Known good peers
+     * @param target Target number of connections
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public PeerManager(final PeerGroup peers, final AbstractBlockChain chain,
+        final PeerCache cache, final int target) {
+        this(peers, chain, Context.get().getConfidenceTable(), cache, target);
+    }
+
+    /**
+     * Ctor.
+     * @param peers Peer group
+     * @param chain Block chain
+     * @param confidences Transaction confidences
+     * @param cache Known good peers
+     * @param target Target number of connections
+     * @checkstyle ParameterNumberCheck (4 lines)
+     */
+    PeerManager(final PeerGroup peers, final AbstractBlockChain chain,
+        final TxConfidenceTable confidences, final PeerCache cache,
+        final int target) {
+        this.peers = peers;
+        this.chain = chain;
+        this.confidences = confidences;
+        this.cache = cache;
+        this.target = target;
+        this.scores = new ConcurrentHashMap<>(0);
+        this.previous = new AtomicLong(System.currentTimeMillis());
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-peers");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    /**
+     * Subscribe to peer events and start evaluations.
+     * @return This manager
+     */
+    public PeerManager start() {
+        this.peers.setMaxConnections(this.target);
+        this.peers.addConnectedEventListener(this);
+        this.peers.addDisconnectedEventListener(this);
+        this.peers.addBlocksDownloadedEventListener(
+            Threading.SAME_THREAD, this
+        );
+        this.peers.addPreMessageReceivedEventListener(
+            Threading.SAME_THREAD, this
+        );
+        this.timer.scheduleWithFixedDelay(
+            this::evaluate, PeerManager.INTERVAL, PeerManager.INTERVAL,
+            TimeUnit.SECONDS
+        );
+        return this;
+    }
+
+    /**
+     * Scores of connected peers.
+     * @return Scores
+     */
+    public Collection<PeerScore> scores() {
+        return new ArrayList<>(this.scores.values());
+    }
+
+    @Override
+    public void onPeerConnected(final Peer peer, final int count) {
+        this.scores.putIfAbsent(peer, new PeerScore(peer));
+    }
+
+    @Override
+    public void onPeerDisconnected(final Peer peer, final int count) {
+        this.scores.remove(peer);
+    }
+
+    @Override
+    public void onBlocksDownloaded(final Peer peer, final Block block,
+        final FilteredBlock filtered, final int left) {
+        // Headers of fast catch-up come here too, with no filtered block
+        this.score(peer).ifPresent(PeerScore::block);
+    }
+
+    @Override
+    public Message onPreMessageReceived(final Peer peer, final Message msg) {
+        if (msg instanceof InventoryMessage) {
+            for (final InventoryItem item
+                : ((InventoryMessage) msg).getItems()) {
+                if (item.type == InventoryItem.Type.Transaction) {
+                    final TransactionConfidence conf =
+                        this.confidences.get(item.hash);
+                    if (conf != null && conf.getSource()
+                        == TransactionConfidence.Source.SELF) {
+                        this.score(peer).ifPresent(PeerScore::ack);
+                    }
+                }
+            }
+        }
+        return msg;
+    }
+
+    /**
+     * Score of the peer.
+     * <p>
+     * Scores are created only when peers connect, so an event racing
+     * with the disconnection doesn't bring the score of a gone peer back.
+     * </p>
+     * @param peer Peer
+     * @return Score, empty if the peer is not connected
+     */
+    private Optional<PeerScore> score(final Peer peer) {
+        return Optional.ofNullable(this.scores.get(peer));
+    }
+
+    /**
+     * Evaluate peers, runs on evaluation thread.
+     * <p>
+     * Failures are logged and never thrown, otherwise scheduled
+     * evaluations would stop.
+     * </p>
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    void evaluate() {
+        try {
+            this.review();
+        } catch (final IOException err) {
+            Logger.warn(this, "Failed to save peers: %[exception]s", err);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final RuntimeException err) {
+            Logger.error(this, "Peers evaluation failed: %[exception]s", err);
+        }
+    }
+
+    /**
+     * Score peers, drop slow ones and remember good ones.
+     * @throws IOException If fails to save known peers
+     */
+    private void review() throws IOException {
+        final long now = System.currentTimeMillis();
+        final long millis = now - this.previous.getAndSet(now);
+        final Peer download = this.peers.getDownloadPeer();
+        final int connected = this.peers.numConnectedPeers();
+        final boolean behind = this.peers.getMostCommonChainHeight()
+            - this.chain.getBestChainHeight() > PeerManager.BEHIND;
+        for (final Map.Entry<Peer, PeerScore> entry
+            : this.scores.entrySet()) {
+            final PeerScore score = entry.getValue();
+            final boolean current = entry.getKey().equals(download);
+            score.evaluate(millis, current, PeerManager.SLOW);
+            if (connected > 1 && current && behind && score.downloads() > 1
+                && score.rate() < PeerManager.MIN_RATE) {
+                Logger.info(
+                    this, "Download peer %s is too slow: %.2f blocks/s",
+                    score.address(), score.rate()
+                );
+                this.cache.bad(score.socket());
+                score.close();
+            } else if (connected > 1
+                && score.strikes() >= PeerManager.STRIKES) {
+                Logger.info(
+                    this, "Peer %s is not responsive, ping %d ms",
+                    score.address(), score.ping()
+                );
+                this.cache.bad(score.socket());
+                score.close();
+            } else if (score.strikes() == 0) {
+                this.cache.good(score.socket(), score.ping());
+            }
+        }
+        this.cache.save();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bitcoinj.core.Peer;
+
+/**
+ * Performance score of a connected peer.
+ * <p>
+ * Counters are updated from peer threads, rate and strikes are
+ * updated by {@link PeerManager} on every evaluation.
+ * </p>
+ * @since 1.0
+ */
+public final class PeerScore {
+
+    /**
+     * Rate scale, rate is kept in thousandths of block per second.
+     */
+    private static final long SCALE = 1000L;
+
+    /**
+     * Peer.
+     */
+    private final Peer peer;
+
+    /**
+     * Blocks and headers delivered.
+     */
+    private final AtomicLong blocks;
+
+    /**
+     * Blocks delivered at previous evaluation.
+     */
+    private final AtomicLong previous;
+
+    /**
+     * Delivery rate in thousandths of block per second.
+     */
+    private final AtomicLong rate;
+
+    /**
+     * Announcements of our own transactions.
+     */
+    private final AtomicLong acks;
+
+    /**
+     * Consecutive bad evaluations.
+     */
+    private final AtomicInteger strikes;
+
+    /**
+     * Consecutive evaluations as download peer.
+     */
+    private final AtomicInteger downloads;
+
+    /**
+     * Ctor.
+     * @param peer Peer
+     */
+    PeerScore(final Peer peer) {
+        this.peer = peer;
+        this.blocks = new AtomicLong();
+        this.previous = new AtomicLong();
+        this.rate = new AtomicLong();
+        this.acks = new AtomicLong();
+        this.strikes = new AtomicInteger();
+        this.downloads = new AtomicInteger();
+    }
+
+    /**
+     * Peer address.
+     * @return Address
+     */
+    public String address() {
+        return this.peer.getAddress().toString();
+    }
+
+    /**
+     * Peer socket address.
+     * @return Address
+     */
+    public InetSocketAddress socket() {
+        return this.peer.getAddress().toSocketAddress();
+    }
+
+    /**
+     * Best block height announced by the peer.
+     * @return Height
+     */
+    public long height() {
+        return this.peer.getBestHeight();
+    }
+
+    /**
+     * Average ping time.
+     * @return Milliseconds, negative if the peer didn't reply to pings yet
+     */
+    public long ping() {
+        long ping = this.peer.getPingTime();
+        if (ping == Long.MAX_VALUE) {
+            ping = -1L;
+        }
+        return ping;
+    }
+
+    /**
+     * Block delivery rate at last evaluation.
+     * @return Blocks per second
+     */
+    public double rate() {
+        return (double) this.rate.get() / PeerScore.SCALE;
+    }
+
+    /**
+     * Blocks and headers delivered.
+     * @return Count
+     */
+    public long blocks() {
+        return this.blocks.get();
+    }
+
+    /**
+     * Announcements of our own transactions.
+     * @return Count
+     */
+    public long acks() {
+        return this.acks.get();
+    }
+
+    /**
+     * Consecutive bad evaluations.
+     * @return Count
+     */
+    public int strikes() {
+        return this.strikes.get();
+    }
+
+    /**
+     * Whether it was the download peer at last evaluation.
+     * @return True if it was the download peer
+     */
+    public boolean download() {
+        return this.downloads.get() > 0;
+    }
+
+    /**
+     * Count delivered block or header.
+     */
+    void block() {
+        this.blocks.incrementAndGet();
+    }
+
+    /**
+     * Count announcement of our own transaction.
+     */
+    void ack() {
+        this.acks.incrementAndGet();
+    }
+
+    /**
+     * Evaluate the peer.
+     * @param millis Milliseconds since previous evaluation
+     * @param download Whether it's the download peer
+     * @param slow Max acceptable ping in milliseconds
+     */
+    void evaluate(final long millis, final boolean download, final long slow) {
+        final long now = this.blocks.get();
+        this.rate.set(
+            (now - this.previous.getAndSet(now))
+                * TimeUnit.SECONDS.toMillis(PeerScore.SCALE)
+                / Math.max(millis, 1L)
+        );
+        if (download) {
+            this.downloads.incrementAndGet();
+        } else {
+            this.downloads.set(0);
+        }
+        final long ping = this.ping();
+        if (ping < 0L || ping > slow) {
+            this.strikes.incrementAndGet();
+        } else {
+            this.strikes.set(0);
+        }
+    }
+
+    /**
+     * Consecutive evaluations as download peer.
+     * @return Count
+     */
+    int downloads() {
+        return this.downloads.get();
+    }
+
+    /**
+     * Disconnect the peer.
+     */
+    void close() {
+        this.peer.close();
+    }
+}
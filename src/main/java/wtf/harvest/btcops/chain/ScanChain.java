@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.VerificationException;
+import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Block chain which can be scanned again from a recent height.
+ * <p>
+ * Blocks after the height are fetched again in full and only their
+ * transactions which the wallet doesn't know yet and which are relevant
+ * to it are added, so outputs of newly watched scripts are found without
+ * replaying blocks the wallet has already seen. The chain head and depth
+ * of known transactions stay as they are. Only heights still kept by the
+ * block store can be scanned again.
+ * </p>
+ * @since 1.0
+ */
+public final class ScanChain extends BlockChain {
+
+    /**
+     * Transactions found by scan since last best block, guarded by
+     * the chain lock.
+     */
+    private final List<Transaction> found;
+
+    /**
+     * Ctor.
+     * @param net Network
+     * @param store Block store
+     * @throws BlockStoreException If fails to read the store
+     */
+    public ScanChain(final NetworkParameters net, final BlockStore store)
+        throws BlockStoreException {
+        super(net, store);
+        this.found = new ArrayList<>(0);
+        this.addNewBestBlockListener(
+            Threading.SAME_THREAD, head -> this.settle()
+        );
+    }
+
+    /**
+     * Block of best chain at the height.
+     * @param height Height
+     * @return Stored block
+     * @throws BlockStoreException If the height is not in the store
+     */
+    public StoredBlock block(final int height) throws BlockStoreException {
+        if (height < 0 || height > this.getBestChainHeight()) {
+            throw new BlockStoreException(
+                String.format("Height %d is not in the chain", height)
+            );
+        }
+        StoredBlock block = this.getChainHead();
+        while (block != null && block.getHeight() > height) {
+            block = block.getPrev(this.getBlockStore());
+        }
+        if (block == null) {
+            throw new BlockStoreException(
+                String.format("Height %d is not in the block store", height)
+            );
+        }
+        return block;
+    }
+
+    /**
+     * Blocks of best chain after the height up to the head.
+     * @param height Height
+     * @return Stored blocks, oldest first
+     * @throws BlockStoreException If the height is not in the store
+     */
+    public List<StoredBlock> after(final int height)
+        throws BlockStoreException {
+        final List<StoredBlock> blocks = new ArrayList<>(0);
+        StoredBlock block = this.getChainHead();
+        while (block != null && block.getHeight() > height) {
+            blocks.add(block);
+            block = block.getPrev(this.getBlockStore());
+        }
+        if (block == null || height < 0) {
+            throw new BlockStoreException(
+                String.format("Height %d is not in the block store", height)
+            );
+        }
+        Collections.reverse(blocks);
+        return blocks;
+    }
+
+    /**
+     * Add transactions of the block fetched again to the wallet.
+     * <p>
+     * Transactions the wallet already knows are skipped. Depth of added
+     * ones is set from the current head, as if they were received when
+     * the block was connected.
+     * </p>
+     * @param wallet Wallet
+     * @param stored Stored block of best chain
+     * @param block Full block
+     * @return Number of added transactions
+     * @throws BlockStoreException If fails to read the store
+     * @throws VerificationException If the block doesn't match the stored
+     *  one or is not in the best chain anymore
+     */
+    public int scan(final Wallet wallet, final StoredBlock stored,
+        final Block block) throws BlockStoreException, VerificationException {
+        if (!block.getHash().equals(stored.getHeader().getHash())) {
+            throw new VerificationException(
+                String.format(
+                    "Got block %s instead of %s",
+                    block.getHashAsString(),
+                    stored.getHeader().getHashAsString()
+                )
+            );
+        }
+        block.verifyTransactions(
+            stored.getHeight(), EnumSet.noneOf(Block.VerifyFlag.class)
+        );
+        int added = 0;
+        this.lock.lock();
+        try {
+            if (!this.block(stored.getHeight()).equals(stored)) {
+                throw new VerificationException(
+                    String.format(
+                        "Block %s is not in the best chain anymore",
+                        stored.getHeader().getHashAsString()
+                    )
+                );
+            }
+            final int depth = this.getBestChainHeight()
+                - stored.getHeight() + 1;
+            final List<Transaction> txs = block.getTransactions();
+            for (int idx = 0; idx < txs.size(); ++idx) {
+                final Transaction txn = txs.get(idx);
+                if (wallet.getTransaction(txn.getHash()) == null
+                    && wallet.isTransactionRelevant(txn)) {
+                    wallet.receiveFromBlock(
+                        txn, stored, BlockChain.NewBlockType.BEST_CHAIN, idx
+                    );
+                    final Transaction known =
+                        wallet.getTransaction(txn.getHash());
+                    known.getConfidence().setDepthInBlocks(depth);
+                    this.found.add(known);
+                    ++added;
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return added;
+    }
+
+    /**
+     * Count next best block in depth of transactions found by scan.
+     * <p>
+     * The wallet skips them once on the next best block, because it
+     * expects them to be received from that block.
+     * </p>
+     */
+    private void settle() {
+        for (final Transaction txn : this.found) {
+            final TransactionConfidence conf = txn.getConfidence();
+            if (conf.getConfidenceType()
+                == TransactionConfidence.ConfidenceType.BUILDING) {
+                conf.incrementDepthInBlocks();
+                conf.queueListeners(
+                    TransactionConfidence.Listener.ChangeReason.DEPTH
+                );
+            }
+        }
+        this.found.clear();
+    }
+}
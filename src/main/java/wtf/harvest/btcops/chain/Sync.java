@@ -0,0 +1,163 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.FilteredBlock;
+import org.bitcoinj.core.GetDataMessage;
+import org.bitcoinj.core.Message;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.listeners.PeerDataEventListener;
+
+/**
+ * Block chain download in background.
+ * <p>
+ * Starts the download without waiting for it and tracks blocks left
+ * as reported by the download peer, so requests can be served while
+ * the chain is catching up. Download rate is the average since the
+ * download peer was picked.
+ * </p>
+ * @since 1.0
+ */
+public final class Sync implements PeerDataEventListener {
+
+    /**
+     * Peers.
+     */
+    private final PeerGroup peers;
+
+    /**
+     * Block chain.
+     */
+    private final AbstractBlockChain chain;
+
+    /**
+     * Blocks left to download, negative until download is started.
+     */
+    private final AtomicInteger left;
+
+    /**
+     * Blocks downloaded since download start.
+     */
+    private final AtomicLong blocks;
+
+    /**
+     * Download start time.
+     */
+    private final AtomicLong since;
+
+    /**
+     * Ctor.
+     * @param peers Peers
+     * @param chain Block chain
+     */
+    public Sync(final PeerGroup peers, final AbstractBlockChain chain) {
+        this.peers = peers;
+        this.chain = chain;
+        this.left = new AtomicInteger(-1);
+        this.blocks = new AtomicLong();
+        this.since = new AtomicLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Start block chain download.
+     * @return This sync
+     */
+    public Sync start() {
+        this.peers.startBlockChainDownload(this);
+        return this;
+    }
+
+    @Override
+    public void onChainDownloadStarted(final Peer peer, final int count) {
+        this.since.set(System.currentTimeMillis());
+        this.blocks.set(0L);
+        this.left.set(Math.max(count, 0));
+    }
+
+    @Override
+    public void onBlocksDownloaded(final Peer peer, final Block block,
+        final FilteredBlock filtered, final int count) {
+        this.blocks.incrementAndGet();
+        this.left.set(Math.max(count, 0));
+    }
+
+    @Override
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+    public List<Message> getData(final Peer peer, final GetDataMessage msg) {
+        // Null means this listener has no data for the peer
+        return null;
+    }
+
+    @Override
+    public Message onPreMessageReceived(final Peer peer, final Message msg) {
+        return msg;
+    }
+
+    /**
+     * Whether the chain is caught up with the download peer.
+     * @return True if no blocks left to download
+     */
+    public boolean synced() {
+        return this.left.get() == 0;
+    }
+
+    /**
+     * Blocks left to download.
+     * @return Count, negative if download is not started yet
+     */
+    public int left() {
+        return this.left.get();
+    }
+
+    /**
+     * Height of the best known block.
+     * @return Height
+     */
+    public int height() {
+        return this.chain.getBestChainHeight();
+    }
+
+    /**
+     * Connected peers.
+     * @return Count
+     */
+    public int connected() {
+        return this.peers.numConnectedPeers();
+    }
+
+    /**
+     * Average download rate.
+     * @return Blocks per second
+     */
+    public double rate() {
+        return this.blocks.get() * 1000.0
+            / Math.max(System.currentTimeMillis() - this.since.get(), 1L);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.coins;
+
+import java.util.List;
+import java.util.function.Predicate;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.CoinSelector;
+
+/**
+ * Largest coin-days first selection.
+ * <p>
+ * Picks outputs in order of highest value multiplied by confirmations,
+ * the same order bitcoinj default selector uses, until target is reached.
+ * </p>
+ * @since 1.0
+ */
+public final class CoinDaysSelector implements CoinSelector {
+
+    /**
+     * Eligible outputs filter.
+     */
+    private final Predicate<TransactionOutput> filter;
+
+    /**
+     * Ctor.
+     */
+    public CoinDaysSelector() {
+        this(new Spendable());
+    }
+
+    /**
+     * Ctor.
+     * @param filter Eligible outputs filter
+     */
+    public CoinDaysSelector(final Predicate<TransactionOutput> filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public CoinSelection select(final Coin target,
+        final List<TransactionOutput> candidates) {
+        final Outputs outs = new Outputs(candidates, this.filter);
+        final int[] order;
+        if (target.compareTo(NetworkParameters.MAX_MONEY) < 0) {
+            order = outs.byCoinDays();
+        } else {
+            order = outs.unordered();
+        }
+        return outs.selection(order, outs.prefix(order, target.value));
+    }
+}
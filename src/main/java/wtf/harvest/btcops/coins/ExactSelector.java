@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.coins;
+
+import java.util.List;
+import java.util.function.Predicate;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.CoinSelector;
+
+/**
+ * Branch-and-bound exact match selection.
+ * <p>
+ * Searches for a set of outputs which sum is between target and target
+ * plus cost of change, so the transaction doesn't need a change output.
+ * Falls back to {@link CoinDaysSelector} order if no such set was found
+ * in the given number of tries.
+ * </p>
+ * @since 1.0
+ */
+public final class ExactSelector implements CoinSelector {
+
+    /**
+     * Default number of search steps.
+     */
+    private static final int TRIES = 100_000;
+
+    /**
+     * Eligible outputs filter.
+     */
+    private final Predicate<TransactionOutput> filter;
+
+    /**
+     * Max value over target to accept instead of change.
+     */
+    private final long window;
+
+    /**
+     * Max number of search steps.
+     */
+    private final int tries;
+
+    /**
+     * Ctor.
+     */
+    public ExactSelector() {
+        this(
+            new Spendable(), Transaction.MIN_NONDUST_OUTPUT.value,
+            ExactSelector.TRIES
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param filter Eligible outputs filter
+     * @param window Max value over target to accept instead of change
+     * @param tries Max number of search steps
+     */
+    public ExactSelector(final Predicate<TransactionOutput> filter,
+        final long window, final int tries) {
+        this.filter = filter;
+        this.window = window;
+        this.tries = tries;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    public CoinSelection select(final Coin coin,
+        final List<TransactionOutput> candidates) {
+        final Outputs outs = new Outputs(candidates, this.filter);
+        final int[] order = outs.byValue();
+        final long target = coin.value;
+        final boolean[] current = new boolean[order.length];
+        boolean[] best = null;
+        long waste = Long.MAX_VALUE;
+        long available = outs.total();
+        long value = 0L;
+        int depth = 0;
+        for (int step = 0; step < this.tries && waste > 0L; ++step) {
+            boolean back = value + available < target
+                || value > target + this.window;
+            if (!back && value >= target) {
+                if (value - target < waste) {
+                    waste = value - target;
+                    best = current.clone();
+                }
+                back = true;
+            }
+            if (back) {
+                while (depth > 0 && !current[depth - 1]) {
+                    depth -= 1;
+                    available += outs.value(order[depth]);
+                }
+                if (depth == 0) {
+                    break;
+                }
+                current[depth - 1] = false;
+                value -= outs.value(order[depth - 1]);
+            } else {
+                available -= outs.value(order[depth]);
+                current[depth] = true;
+                value += outs.value(order[depth]);
+                depth += 1;
+            }
+        }
+        final CoinSelection res;
+        if (best == null) {
+            final int[] days = outs.byCoinDays();
+            res = outs.selection(days, outs.prefix(days, target));
+        } else {
+            int count = 0;
+            for (int idx = 0; idx < best.length; ++idx) {
+                if (best[idx]) {
+                    order[count] = order[idx];
+                    count += 1;
+                }
+            }
+            res = outs.selection(order, count);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.coins;
+
+import java.util.List;
+import java.util.function.Predicate;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.CoinSelector;
+
+/**
+ * Transaction size minimising selection.
+ * <p>
+ * Picks the smallest possible number of inputs: the largest outputs
+ * but the last one, and then the smallest output which still covers
+ * the rest of the target, to keep change low.
+ * </p>
+ * @since 1.0
+ */
+public final class KnapsackSelector implements CoinSelector {
+
+    /**
+     * Eligible outputs filter.
+     */
+    private final Predicate<TransactionOutput> filter;
+
+    /**
+     * Ctor.
+     */
+    public KnapsackSelector() {
+        this(new Spendable());
+    }
+
+    /**
+     * Ctor.
+     * @param filter Eligible outputs filter
+     */
+    public KnapsackSelector(final Predicate<TransactionOutput> filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public CoinSelection select(final Coin coin,
+        final List<TransactionOutput> candidates) {
+        final Outputs outs = new Outputs(candidates, this.filter);
+        final int[] order = outs.byValue();
+        final long target = coin.value;
+        final int count = outs.prefix(order, target);
+        long sum = 0L;
+        for (int idx = 0; idx < count; ++idx) {
+            sum += outs.value(order[idx]);
+        }
+        if (count > 0 && sum >= target) {
+            final long rest = target - sum + outs.value(order[count - 1]);
+            int low = count - 1;
+            int high = order.length - 1;
+            while (low < high) {
+                final int mid = (low + high + 1) >>> 1;
+                if (outs.value(order[mid]) >= rest) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            final int last = order[low];
+            order[low] = order[count - 1];
+            order[count - 1] = last;
+        }
+        return outs.selection(order, count);
+    }
+}
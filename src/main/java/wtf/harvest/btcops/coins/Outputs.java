@@ -0,0 +1,315 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.coins;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.CoinSelection;
+
+/**
+ * Primitive view of spend candidates.
+ * <p>
+ * Filters candidates once and reads value, confirmation depth and parent
+ * hash of every output up front, so sorting compares plain longs and
+ * doesn't allocate or touch transaction confidence per comparison.
+ * </p>
+ * @since 1.0
+ */
+public final class Outputs {
+
+    /**
+     * Bits of coin-days key kept in the low part.
+     */
+    private static final int LOW_BITS = 62;
+
+    /**
+     * Mask of coin-days key low part.
+     */
+    private static final long LOW_MASK = (1L << Outputs.LOW_BITS) - 1L;
+
+    /**
+     * Bits of output value multiplied separately.
+     */
+    private static final int SPLIT = 31;
+
+    /**
+     * Mask of output value low part.
+     */
+    private static final long SPLIT_MASK = (1L << Outputs.SPLIT) - 1L;
+
+    /**
+     * Eligible outputs.
+     */
+    private final TransactionOutput[] outs;
+
+    /**
+     * Output values in satoshi.
+     */
+    private final long[] values;
+
+    /**
+     * High part of value multiplied by depth.
+     */
+    private final long[] high;
+
+    /**
+     * Low part of value multiplied by depth.
+     */
+    private final long[] low;
+
+    /**
+     * Ctor.
+     * @param candidates Spend candidates
+     * @param filter Eligible outputs filter
+     */
+    public Outputs(final Collection<TransactionOutput> candidates,
+        final Predicate<TransactionOutput> filter) {
+        final TransactionOutput[] all =
+            new TransactionOutput[candidates.size()];
+        int size = 0;
+        for (final TransactionOutput out : candidates) {
+            if (filter.test(out)) {
+                all[size] = out;
+                size += 1;
+            }
+        }
+        this.outs = all;
+        this.values = new long[size];
+        this.high = new long[size];
+        this.low = new long[size];
+        for (int idx = 0; idx < size; ++idx) {
+            this.index(idx);
+        }
+    }
+
+    /**
+     * Number of eligible outputs.
+     * @return Size
+     */
+    public int size() {
+        return this.values.length;
+    }
+
+    /**
+     * Output by position.
+     * @param idx Position
+     * @return Output
+     */
+    public TransactionOutput output(final int idx) {
+        return this.outs[idx];
+    }
+
+    /**
+     * Output value by position.
+     * @param idx Position
+     * @return Value in satoshi
+     */
+    public long value(final int idx) {
+        return this.values[idx];
+    }
+
+    /**
+     * Sum of all eligible outputs.
+     * @return Value in satoshi
+     */
+    public long total() {
+        long sum = 0L;
+        for (final long val : this.values) {
+            sum += val;
+        }
+        return sum;
+    }
+
+    /**
+     * Selection of outputs at positions.
+     * @param order Positions
+     * @param count Number of positions to take from the beginning
+     * @return Coin selection
+     */
+    public CoinSelection selection(final int[] order, final int count) {
+        final List<TransactionOutput> picked = new ArrayList<>(count);
+        long sum = 0L;
+        for (int idx = 0; idx < count; ++idx) {
+            picked.add(this.outs[order[idx]]);
+            sum += this.values[order[idx]];
+        }
+        return new CoinSelection(Coin.valueOf(sum), picked);
+    }
+
+    /**
+     * Number of positions from the beginning of the order to reach
+     * the target, or all positions if the target is not reachable.
+     * @param order Positions
+     * @param target Target value in satoshi
+     * @return Number of positions
+     */
+    public int prefix(final int[] order, final long target) {
+        int count = 0;
+        long sum = 0L;
+        while (count < order.length && sum < target) {
+            sum += this.values[order[count]];
+            count += 1;
+        }
+        return count;
+    }
+
+    /**
+     * Positions in natural order.
+     * @return Positions
+     */
+    public int[] unordered() {
+        final int[] order = new int[this.values.length];
+        for (int idx = 0; idx < order.length; ++idx) {
+            order[idx] = idx;
+        }
+        return order;
+    }
+
+    /**
+     * Positions ordered by highest coin-days first, then by highest value,
+     * then by parent transaction hash.
+     * @return Positions
+     */
+    public int[] byCoinDays() {
+        return this.sorted(this::compareDays);
+    }
+
+    /**
+     * Positions ordered by highest value first.
+     * @return Positions
+     */
+    public int[] byValue() {
+        return this.sorted(this::compareValues);
+    }
+
+    /**
+     * Read output at position into primitive keys.
+     * @param idx Position
+     */
+    private void index(final int idx) {
+        final TransactionOutput out = this.outs[idx];
+        final long val = out.getValue().value;
+        final TransactionConfidence conf =
+            out.getParentTransaction().getConfidence();
+        long depth = 0L;
+        if (conf.getConfidenceType()
+            == TransactionConfidence.ConfidenceType.BUILDING) {
+            depth = conf.getDepthInBlocks();
+        }
+        final long upper = (val >>> Outputs.SPLIT) * depth;
+        long lower = ((upper & Outputs.SPLIT_MASK) << Outputs.SPLIT)
+            + (val & Outputs.SPLIT_MASK) * depth;
+        final long carry = lower >>> Outputs.LOW_BITS;
+        lower &= Outputs.LOW_MASK;
+        this.values[idx] = val;
+        this.high[idx] = (upper >>> Outputs.SPLIT) + carry;
+        this.low[idx] = lower;
+    }
+
+    /**
+     * Compare two positions by coin-days.
+     * @param left Left position
+     * @param right Right position
+     * @return Comparison result
+     */
+    private int compareDays(final int left, final int right) {
+        int res = Long.compare(this.high[right], this.high[left]);
+        if (res == 0) {
+            res = Long.compare(this.low[right], this.low[left]);
+        }
+        if (res == 0) {
+            res = this.compareValues(left, right);
+        }
+        if (res == 0) {
+            final byte[] lhash = this.outs[left].getParentTransactionHash()
+                .getBytes();
+            final byte[] rhash = this.outs[right].getParentTransactionHash()
+                .getBytes();
+            for (int pos = 0; pos < lhash.length && res == 0; ++pos) {
+                res = Integer.compare(lhash[pos] & 0xff, rhash[pos] & 0xff);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Compare two positions by value, highest first.
+     * @param left Left position
+     * @param right Right position
+     * @return Comparison result
+     */
+    private int compareValues(final int left, final int right) {
+        return Long.compare(this.values[right], this.values[left]);
+    }
+
+    /**
+     * Stable merge sort of positions.
+     * @param cmp Positions comparator
+     * @return Sorted positions
+     */
+    private int[] sorted(final Order cmp) {
+        int[] src = this.unordered();
+        int[] dst = new int[src.length];
+        for (int width = 1; width < src.length; width <<= 1) {
+            for (int left = 0; left < src.length; left += width << 1) {
+                final int mid = Math.min(left + width, src.length);
+                final int end = Math.min(left + (width << 1), src.length);
+                int lpos = left;
+                int rpos = mid;
+                for (int pos = left; pos < end; ++pos) {
+                    if (lpos < mid && (rpos >= end
+                        || cmp.compare(src[lpos], src[rpos]) <= 0)) {
+                        dst[pos] = src[lpos];
+                        lpos += 1;
+                    } else {
+                        dst[pos] = src[rpos];
+                        rpos += 1;
+                    }
+                }
+            }
+            final int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+        return src;
+    }
+
+    /**
+     * Positions comparator.
+     */
+    private interface Order {
+        /**
+         * Compare positions.
+         * @param left Left position
+         * @param right Right position
+         * @return Comparison result
+         */
+        int compare(int left, int right);
+    }
+}
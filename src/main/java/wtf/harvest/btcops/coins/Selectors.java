@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.coins;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.bitcoinj.wallet.CoinSelector;
+
+/**
+ * Coin selection strategies by name.
+ *
+ * @since 1.0
+ */
+public final class Selectors {
+
+    /**
+     * Default strategy name.
+     */
+    public static final String DEFAULT = "coindays";
+
+    /**
+     * Strategies.
+     */
+    private final Map<String, CoinSelector> all;
+
+    /**
+     * Ctor.
+     */
+    public Selectors() {
+        this.all = new HashMap<>(3);
+        this.all.put(Selectors.DEFAULT, new CoinDaysSelector());
+        this.all.put("exact", new ExactSelector());
+        this.all.put("knapsack", new KnapsackSelector());
+    }
+
+    /**
+     * Strategy by name.
+     * @param name Strategy name
+     * @return Coin selector
+     * @throws IllegalArgumentException If there is no such strategy
+     */
+    public CoinSelector get(final String name) {
+        final CoinSelector sel = this.all.get(name);
+        if (sel == null) {
+            throw new IllegalArgumentException(
+                String.format("Unknown coin selector: %s", name)
+            );
+        }
+        return sel;
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.events;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.listeners.TransactionConfidenceEventListener;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.listeners.WalletCoinsReceivedEventListener;
+import org.bitcoinj.wallet.listeners.WalletCoinsSentEventListener;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+
+/**
+ * Balance and payment notifications dispatcher.
+ * <p>
+ * Wallet listeners only queue work, a single dispatcher thread fans
+ * each event out to all subscribed connections, so subscribers don't
+ * hold HTTP worker threads nor touch the wallet lock.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+public final class Events implements WalletCoinsReceivedEventListener,
+    WalletCoinsSentEventListener, TransactionConfidenceEventListener {
+
+    /**
+     * Confirmations after which address balance doesn't change.
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * Keep-alive interval in seconds.
+     */
+    private static final long PING = 15L;
+
+    /**
+     * Max number of queued events.
+     */
+    private static final int QUEUE = 10_000;
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Address index.
+     */
+    private final UtxoIndex index;
+
+    /**
+     * Dispatcher tasks.
+     */
+    private final BlockingQueue<Runnable> tasks;
+
+    /**
+     * Subscribers, modified by dispatcher thread only.
+     */
+    private final List<Subscriber> subs;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param index Address index
+     */
+    public Events(final Wallet wallet, final UtxoIndex index) {
+        this.wlt = wallet;
+        this.index = index;
+        this.tasks = new LinkedBlockingQueue<>(Events.QUEUE);
+        this.subs = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Subscribe to wallet events and start dispatcher thread.
+     * @return This events
+     */
+    public Events attach() {
+        this.wlt.addCoinsReceivedEventListener(this);
+        this.wlt.addCoinsSentEventListener(this);
+        this.wlt.addTransactionConfidenceEventListener(this);
+        final Thread thread = new Thread(this::dispatch, "btcops-events");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Subscribe connection to events of addresses.
+     * @param socket Connection socket
+     * @param addresses Addresses to watch
+     * @throws IOException If fails to send response head
+     */
+    public void subscribe(final Socket socket,
+        final Collection<Address> addresses) throws IOException {
+        final OutputStream out = socket.getOutputStream();
+        out.write(
+            String.join(
+                "\r\n",
+                "HTTP/1.1 200 OK",
+                "Content-Type: text/event-stream",
+                "Cache-Control: no-cache",
+                "Connection: keep-alive",
+                "",
+                ""
+            ).getBytes(StandardCharsets.UTF_8)
+        );
+        out.flush();
+        final Subscriber sub = new Subscriber(socket, addresses);
+        final boolean queued = this.queue(
+            () -> {
+                this.subs.add(sub);
+                for (final Address addr : addresses) {
+                    this.balance(sub, addr);
+                }
+            }
+        );
+        if (!queued) {
+            sub.close();
+        }
+    }
+
+    @Override
+    public void onCoinsReceived(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        if (!this.subs.isEmpty()) {
+            this.queue(() -> this.payment(txn));
+        }
+    }
+
+    @Override
+    public void onCoinsSent(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        if (!this.subs.isEmpty()) {
+            this.queue(() -> this.balances(txn));
+        }
+    }
+
+    @Override
+    public void onTransactionConfidenceChanged(final Wallet wallet,
+        final Transaction txn) {
+        final TransactionConfidence conf = txn.getConfidence();
+        if (!this.subs.isEmpty() && (conf.getDepthInBlocks() <= Events.DEPTH
+            || conf.getConfidenceType()
+            != TransactionConfidence.ConfidenceType.BUILDING)) {
+            this.queue(() -> this.balances(txn));
+        }
+    }
+
+    /**
+     * Dispatcher loop.
+     */
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                final Runnable task = this.tasks.poll(
+                    Events.PING, TimeUnit.SECONDS
+                );
+                if (task == null) {
+                    this.subs.removeIf(sub -> !Events.alive(sub, sub.ping()));
+                } else {
+                    task.run();
+                }
+            } catch (final InterruptedException err) {
+                Thread.currentThread().interrupt();
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final RuntimeException err) {
+                Logger.error(this, "Dispatch failed: %[exception]s", err);
+            }
+        }
+    }
+
+    /**
+     * Queue dispatcher task.
+     * @param task Task
+     * @return False if queue is full and task was dropped
+     */
+    private boolean queue(final Runnable task) {
+        final boolean queued = this.tasks.offer(task);
+        if (!queued) {
+            Logger.warn(this, "Events queue is full, event is dropped");
+        }
+        return queued;
+    }
+
+    /**
+     * Notify subscribers about payment.
+     * @param txn Transaction
+     */
+    private void payment(final Transaction txn) {
+        for (final TransactionOutput out : txn.getOutputs()) {
+            final Address addr = this.address(out);
+            if (addr != null) {
+                final JsonObject data = Json.createObjectBuilder()
+                    .add("address", addr.toBase58())
+                    .add("tx", txn.getHashAsString())
+                    .add("output", out.getIndex())
+                    .add("amount", Events.btc(out.getValue()))
+                    .add(
+                        "confidence",
+                        txn.getConfidence().getConfidenceType().name()
+                    )
+                    .build();
+                this.subs.removeIf(
+                    sub -> sub.addresses().contains(addr)
+                        && !Events.alive(sub, sub.send("payment", data))
+                );
+            }
+        }
+        this.balances(txn);
+    }
+
+    /**
+     * Notify subscribers about balances of addresses the transaction pays
+     * to or spends from.
+     * @param txn Transaction
+     */
+    private void balances(final Transaction txn) {
+        final Set<Address> addrs = new HashSet<>(0);
+        for (final TransactionOutput out : txn.getOutputs()) {
+            addrs.add(this.address(out));
+        }
+        for (final TransactionInput input : txn.getInputs()) {
+            final TransactionOutput spent = input.getConnectedOutput();
+            if (spent != null) {
+                addrs.add(this.address(spent));
+            }
+        }
+        addrs.remove(null);
+        for (final Address addr : addrs) {
+            this.subs.removeIf(
+                sub -> sub.addresses().contains(addr)
+                    && !this.balance(sub, addr)
+            );
+        }
+    }
+
+    /**
+     * Send current balance of the address to subscriber.
+     * @param sub Subscriber
+     * @param addr Address
+     * @return False if subscriber was closed
+     */
+    private boolean balance(final Subscriber sub, final Address addr) {
+        final Coin balance = this.index.balance(addr);
+        return Events.alive(
+            sub,
+            sub.balance(
+                addr, balance,
+                Json.createObjectBuilder()
+                    .add("address", addr.toBase58())
+                    .add("balance", Events.btc(balance))
+                    .build()
+            )
+        );
+    }
+
+    /**
+     * Address of the output.
+     * @param out Output
+     * @return Address or null if output doesn't pay to address
+     */
+    private Address address(final TransactionOutput out) {
+        final Script script = out.getScriptPubKey();
+        Address addr = null;
+        if (script.isSentToAddress() || script.isPayToScriptHash()) {
+            addr = script.getToAddress(this.wlt.getParams());
+        }
+        return addr;
+    }
+
+    /**
+     * Close subscriber if it's not alive.
+     * @param sub Subscriber
+     * @param alive Subscriber is alive
+     * @return Same alive flag
+     */
+    private static boolean alive(final Subscriber sub, final boolean alive) {
+        if (!alive) {
+            sub.close();
+        }
+        return alive;
+    }
+
+    /**
+     * Amount of BTC.
+     * @param coin Coin
+     * @return Plain string
+     */
+    private static String btc(final Coin coin) {
+        return new BigDecimal(coin.toPlainString()).toString();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.events;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import javax.json.JsonObject;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+
+/**
+ * Server-sent events connection.
+ * <p>
+ * Writes don't block if the connection has a socket channel: events
+ * which don't fit into socket buffer are kept until next write, and the
+ * connection is dropped if too much is pending.
+ * </p>
+ * @since 1.0
+ */
+final class Subscriber {
+
+    /**
+     * Max pending bytes of slow connection.
+     */
+    private static final int MAX_PENDING = 1 << 16;
+
+    /**
+     * Socket.
+     */
+    private final Socket socket;
+
+    /**
+     * Output channel.
+     */
+    private final WritableByteChannel out;
+
+    /**
+     * Watched addresses.
+     */
+    private final Set<Address> addresses;
+
+    /**
+     * Last sent balances.
+     */
+    private final Map<Address, Coin> balances;
+
+    /**
+     * Not yet written events.
+     */
+    private final Queue<ByteBuffer> pending;
+
+    /**
+     * Ctor.
+     * @param socket Connection socket, response head is already sent
+     * @param addresses Watched addresses
+     * @throws IOException If fails
+     */
+    Subscriber(final Socket socket, final Collection<Address> addresses)
+        throws IOException {
+        this.socket = socket;
+        final SocketChannel chan = socket.getChannel();
+        if (chan == null) {
+            this.out = Channels.newChannel(socket.getOutputStream());
+        } else {
+            chan.configureBlocking(false);
+            this.out = chan;
+        }
+        this.addresses = new HashSet<>(addresses);
+        this.balances = new HashMap<>(addresses.size());
+        this.pending = new ArrayDeque<>(0);
+    }
+
+    /**
+     * Watched addresses.
+     * @return Addresses
+     */
+    public Set<Address> addresses() {
+        return this.addresses;
+    }
+
+    /**
+     * Send event.
+     * @param name Event name
+     * @param data Event data
+     * @return False if connection is broken or too slow
+     */
+    public boolean send(final String name, final JsonObject data) {
+        return this.write(
+            String.format("event: %s\ndata: %s\n\n", name, data)
+        );
+    }
+
+    /**
+     * Send balance event if balance differs from last sent one.
+     * @param address Address
+     * @param balance Balance
+     * @param data Event data
+     * @return False if connection is broken or too slow
+     */
+    public boolean balance(final Address address, final Coin balance,
+        final JsonObject data) {
+        boolean alive = true;
+        if (!balance.equals(this.balances.put(address, balance))) {
+            alive = this.send("balance", data);
+        }
+        return alive;
+    }
+
+    /**
+     * Send keep-alive comment and write pending events.
+     * @return False if connection is broken or too slow
+     */
+    public boolean ping() {
+        return this.write(": ping\n\n");
+    }
+
+    /**
+     * Close the connection.
+     */
+    public void close() {
+        try {
+            this.socket.close();
+        } catch (final IOException ignored) {
+            this.pending.clear();
+        }
+    }
+
+    /**
+     * Write text and pending events.
+     * @param text Text
+     * @return False if connection is broken or too slow
+     */
+    private boolean write(final String text) {
+        this.pending.add(
+            ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))
+        );
+        boolean alive = true;
+        try {
+            while (!this.pending.isEmpty()) {
+                final ByteBuffer head = this.pending.peek();
+                this.out.write(head);
+                if (head.hasRemaining()) {
+                    break;
+                }
+                this.pending.remove();
+            }
+        } catch (final IOException ex) {
+            alive = false;
+        }
+        int size = 0;
+        for (final ByteBuffer buf : this.pending) {
+            size += buf.remaining();
+        }
+        return alive && size <= Subscriber.MAX_PENDING;
+    }
+}
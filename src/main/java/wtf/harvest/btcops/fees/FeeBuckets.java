@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.fees;
+
+import java.util.Arrays;
+
+/**
+ * Confirmation statistics in fixed fee rate buckets.
+ * <p>
+ * Fee rates are split into exponentially growing buckets, each bucket
+ * counts transactions and how many of them were confirmed within
+ * every target number of blocks. Counts decay on every block, so old
+ * samples fade out. Not thread-safe.
+ * </p>
+ * @since 1.0
+ */
+public final class FeeBuckets {
+
+    /**
+     * Max confirmation target in blocks.
+     */
+    public static final int MAX_TARGET = 25;
+
+    /**
+     * Lowest bucket fee rate, satoshi per kB.
+     */
+    private static final long MIN_RATE = 1000L;
+
+    /**
+     * Highest bucket fee rate, satoshi per kB.
+     */
+    private static final long MAX_RATE = 1_000_000L;
+
+    /**
+     * Ratio of two neighbour bucket bounds.
+     */
+    private static final double SPACING = 1.25;
+
+    /**
+     * Decay of counts per block.
+     */
+    private static final double DECAY = 0.998;
+
+    /**
+     * Share of transactions confirmed within target to trust the rate.
+     */
+    private static final double SUCCESS = 0.85;
+
+    /**
+     * Min number of samples to trust the rate.
+     */
+    private static final double SAMPLES = 3.0;
+
+    /**
+     * Lower bounds of buckets, satoshi per kB.
+     */
+    private final long[] bounds;
+
+    /**
+     * Number of transactions per bucket.
+     */
+    private final double[] total;
+
+    /**
+     * Number of transactions confirmed within target, per bucket
+     * and target.
+     */
+    private final double[][] confirmed;
+
+    /**
+     * Ctor.
+     */
+    public FeeBuckets() {
+        int count = 1;
+        for (double rate = FeeBuckets.MIN_RATE; rate < FeeBuckets.MAX_RATE;
+            rate *= FeeBuckets.SPACING) {
+            ++count;
+        }
+        this.bounds = new long[count];
+        double rate = FeeBuckets.MIN_RATE;
+        for (int idx = 0; idx < count; ++idx) {
+            this.bounds[idx] = (long) rate;
+            rate *= FeeBuckets.SPACING;
+        }
+        this.total = new double[count];
+        this.confirmed = new double[count][FeeBuckets.MAX_TARGET];
+    }
+
+    /**
+     * Add confirmed transaction.
+     * @param rate Fee rate, satoshi per kB
+     * @param blocks Number of blocks it waited for confirmation
+     */
+    public void add(final long rate, final int blocks) {
+        final int bucket = this.bucket(rate);
+        this.total[bucket] += 1.0;
+        for (int target = Math.max(blocks, 1);
+            target <= FeeBuckets.MAX_TARGET; ++target) {
+            this.confirmed[bucket][target - 1] += 1.0;
+        }
+    }
+
+    /**
+     * Decay all counts, called once per block.
+     */
+    public void decay() {
+        for (int idx = 0; idx < this.total.length; ++idx) {
+            this.total[idx] *= FeeBuckets.DECAY;
+            for (int target = 0; target < FeeBuckets.MAX_TARGET; ++target) {
+                this.confirmed[idx][target] *= FeeBuckets.DECAY;
+            }
+        }
+    }
+
+    /**
+     * Estimated fee rates for all targets.
+     * <p>
+     * Buckets are scanned from the highest rate down while transactions
+     * paying at least the bucket rate were confirmed within target often
+     * enough, bound of the lowest such bucket with any transactions is the
+     * estimate.
+     * </p>
+     * @return Fee rates in satoshi per kB by target minus one,
+     *  zero if there is not enough data for the target
+     */
+    public long[] estimates() {
+        final long[] res = new long[FeeBuckets.MAX_TARGET];
+        Arrays.fill(res, 0L);
+        for (int target = 0; target < FeeBuckets.MAX_TARGET; ++target) {
+            double all = 0.0;
+            double conf = 0.0;
+            for (int idx = this.total.length - 1; idx >= 0; --idx) {
+                all += this.total[idx];
+                conf += this.confirmed[idx][target];
+                if (all >= FeeBuckets.SAMPLES && this.total[idx] > 0.0) {
+                    if (conf / all < FeeBuckets.SUCCESS) {
+                        break;
+                    }
+                    res[target] = this.bounds[idx];
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Bucket of the rate.
+     * @param rate Fee rate, satoshi per kB
+     * @return Bucket index
+     */
+    private int bucket(final long rate) {
+        int idx = Arrays.binarySearch(this.bounds, rate);
+        if (idx < 0) {
+            idx = Math.max(-idx - 2, 0);
+        }
+        return idx;
+    }
+}
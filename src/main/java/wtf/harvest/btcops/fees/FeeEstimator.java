@@ -0,0 +1,275 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.fees;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.FilteredBlock;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.listeners.BlocksDownloadedEventListener;
+import org.bitcoinj.core.listeners.OnTransactionBroadcastListener;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Fee rate estimator from transactions seen by peers.
+ * <p>
+ * Unconfirmed transactions are remembered with the chain height they were
+ * seen at, and added to fee buckets when filtered blocks confirm them.
+ * Fee of a transaction is known only if all its inputs are known to the
+ * wallet, so SPV estimator learns mostly from wallet transactions.
+ * Estimates are recalculated once per block and cached, so reading them
+ * is cheap. Targets without enough data get the fallback rate.
+ * </p>
+ * @since 1.0
+ */
+public final class FeeEstimator implements OnTransactionBroadcastListener,
+    BlocksDownloadedEventListener {
+
+    /**
+     * Max number of unconfirmed transactions to track.
+     */
+    private static final int PENDING = 10_000;
+
+    /**
+     * Peer group.
+     */
+    private final PeerGroup peers;
+
+    /**
+     * Block chain.
+     */
+    private final AbstractBlockChain chain;
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Fallback fee rate.
+     */
+    private final Coin fallback;
+
+    /**
+     * Confirmation statistics.
+     */
+    private final FeeBuckets buckets;
+
+    /**
+     * Unconfirmed transactions: fee rate and chain height when seen.
+     */
+    private final Map<Sha256Hash, long[]> pending;
+
+    /**
+     * Cached estimates by target minus one.
+     */
+    private final AtomicReference<long[]> cache;
+
+    /**
+     * Ctor.
+     * @param peers Peer group
+     * @param chain Block chain
+     * @param wallet Wallet
+     */
+    public FeeEstimator(final PeerGroup peers, final AbstractBlockChain chain,
+        final Wallet wallet) {
+        this(peers, chain, wallet, Transaction.DEFAULT_TX_FEE);
+    }
+
+    /**
+     * Ctor.
+     * @param peers Peer group
+     * @param chain Block chain
+     * @param wallet Wallet
+     * @param fallback Fallback fee rate per kB
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public FeeEstimator(final PeerGroup peers, final AbstractBlockChain chain,
+        final Wallet wallet, final Coin fallback) {
+        this.peers = peers;
+        this.chain = chain;
+        this.wlt = wallet;
+        this.fallback = fallback;
+        this.buckets = new FeeBuckets();
+        this.pending = new LinkedHashMap<Sha256Hash, long[]>(
+            FeeEstimator.PENDING
+        ) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<Sha256Hash, long[]> eldest) {
+                return this.size() > FeeEstimator.PENDING;
+            }
+        };
+        this.cache = new AtomicReference<>(new long[FeeBuckets.MAX_TARGET]);
+    }
+
+    /**
+     * Subscribe to peer group events.
+     * @return This estimator
+     */
+    public FeeEstimator attach() {
+        this.peers.addOnTransactionBroadcastListener(this);
+        this.peers.addBlocksDownloadedEventListener(this);
+        this.wlt.addCoinsSentEventListener(
+            (wallet, txn, prev, now) -> this.seen(txn)
+        );
+        return this;
+    }
+
+    /**
+     * Fee rate to confirm within target.
+     * <p>
+     * A target without an estimate gets the fallback rate, not the rate
+     * of a slower target, which could miss the requested one.
+     * </p>
+     * @param target Confirmation target in blocks
+     * @return Fee rate per kB
+     */
+    public Coin rate(final int target) {
+        final long rate = FeeEstimator.of(this.cache.get(), target);
+        final Coin res;
+        if (rate == 0L) {
+            res = this.fallback;
+        } else {
+            res = Coin.valueOf(
+                Math.max(rate, Transaction.REFERENCE_DEFAULT_MIN_TX_FEE.value)
+            );
+        }
+        return res;
+    }
+
+    /**
+     * Whether fee rate for target is estimated.
+     * @param target Confirmation target in blocks
+     * @return True if estimated, false if it's fallback
+     */
+    public boolean estimated(final int target) {
+        return FeeEstimator.of(this.cache.get(), target) > 0L;
+    }
+
+    @Override
+    public void onTransaction(final Peer peer, final Transaction txn) {
+        this.seen(txn);
+    }
+
+    @Override
+    public void onBlocksDownloaded(final Peer peer, final Block block,
+        final FilteredBlock filtered, final int left) {
+        final int height = this.chain.getBestChainHeight();
+        synchronized (this.buckets) {
+            this.buckets.decay();
+            if (filtered != null) {
+                for (final Sha256Hash hash : filtered.getTransactionHashes()) {
+                    final long[] seen = this.pending.remove(hash);
+                    if (seen != null) {
+                        this.buckets.add(seen[0], height - (int) seen[1]);
+                    }
+                }
+            }
+            this.cache.set(this.buckets.estimates());
+        }
+    }
+
+    /**
+     * Remember unconfirmed transaction if its fee is known.
+     * @param txn Transaction
+     */
+    private void seen(final Transaction txn) {
+        final long fee = this.fee(txn);
+        if (fee >= 0L && txn.getConfidence().getDepthInBlocks() == 0) {
+            final long rate = fee * 1000L
+                / txn.unsafeBitcoinSerialize().length;
+            synchronized (this.buckets) {
+                this.pending.putIfAbsent(
+                    txn.getHash(),
+                    new long[]{rate, this.chain.getBestChainHeight()}
+                );
+            }
+        }
+    }
+
+    /**
+     * Fee of the transaction.
+     * @param txn Transaction
+     * @return Fee in satoshi, negative if some input value is unknown
+     */
+    private long fee(final Transaction txn) {
+        long fee = 0L;
+        boolean known = true;
+        for (final TransactionInput input : txn.getInputs()) {
+            final TransactionOutput out = this.output(input);
+            if (out == null) {
+                known = false;
+            } else {
+                fee += out.getValue().value;
+            }
+        }
+        for (final TransactionOutput out : txn.getOutputs()) {
+            fee -= out.getValue().value;
+        }
+        if (!known) {
+            fee = -1L;
+        }
+        return fee;
+    }
+
+    /**
+     * Output spent by the input.
+     * @param input Input
+     * @return Output or null if it's unknown
+     */
+    private TransactionOutput output(final TransactionInput input) {
+        TransactionOutput out = input.getConnectedOutput();
+        if (out == null) {
+            final TransactionOutPoint point = input.getOutpoint();
+            final Transaction prev = this.wlt.getTransaction(point.getHash());
+            if (prev != null
+                && point.getIndex() < prev.getOutputs().size()) {
+                out = prev.getOutput(point.getIndex());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Estimated rate of target.
+     * @param rates Rates by target
+     * @param target Confirmation target in blocks
+     * @return Fee rate per kB, zero if not estimated
+     */
+    private static long of(final long[] rates, final int target) {
+        return rates[Math.min(Math.max(target, 1), FeeBuckets.MAX_TARGET) - 1];
+    }
+}
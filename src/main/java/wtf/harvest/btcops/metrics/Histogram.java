@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram.
+ * <p>
+ * Fixed buckets of striped counters, so recording is lock-free and
+ * doesn't allocate.
+ * </p>
+ * @since 1.0
+ */
+public final class Histogram {
+
+    /**
+     * Bucket upper bounds in milliseconds.
+     */
+    private static final double[] BOUNDS = {
+        1.0, 2.5, 5.0, 10.0, 25.0, 50.0, 100.0, 250.0, 500.0,
+        1000.0, 2500.0, 5000.0, 10_000.0, 30_000.0,
+    };
+
+    /**
+     * Bucket upper bounds in nanoseconds.
+     */
+    private final long[] bounds;
+
+    /**
+     * Counts by bucket, last one is unbounded.
+     */
+    private final LongAdder[] buckets;
+
+    /**
+     * Sum of recorded values in nanoseconds.
+     */
+    private final LongAdder sum;
+
+    /**
+     * Ctor.
+     */
+    Histogram() {
+        this.bounds = new long[Histogram.BOUNDS.length];
+        this.buckets = new LongAdder[Histogram.BOUNDS.length + 1];
+        for (int idx = 0; idx < this.bounds.length; ++idx) {
+            this.bounds[idx] = (long) (
+                Histogram.BOUNDS[idx] * TimeUnit.MILLISECONDS.toNanos(1L)
+            );
+        }
+        for (int idx = 0; idx < this.buckets.length; ++idx) {
+            this.buckets[idx] = new LongAdder();
+        }
+        this.sum = new LongAdder();
+    }
+
+    /**
+     * Record a value.
+     * @param nanos Value in nanoseconds
+     */
+    public void record(final long nanos) {
+        int idx = 0;
+        while (idx < this.bounds.length && nanos > this.bounds[idx]) {
+            ++idx;
+        }
+        this.buckets[idx].increment();
+        this.sum.add(nanos);
+    }
+
+    /**
+     * Print cumulative buckets, sum and count.
+     * @param out Output
+     * @param name Metric name
+     * @param labels Labels without braces, may be empty
+     */
+    void print(final StringBuilder out, final String name,
+        final String labels) {
+        String sep = "";
+        if (!labels.isEmpty()) {
+            sep = ",";
+        }
+        long total = 0L;
+        for (int idx = 0; idx < this.buckets.length; ++idx) {
+            total += this.buckets[idx].sum();
+            String bound = "+Inf";
+            if (idx < Histogram.BOUNDS.length) {
+                bound = Double.toString(Histogram.BOUNDS[idx] / 1000.0);
+            }
+            out.append(name).append("_bucket{").append(labels).append(sep)
+                .append("le=\"").append(bound).append("\"} ")
+                .append(total).append('\n');
+        }
+        out.append(name).append("_sum").append(Metrics.braces(labels))
+            .append(' ').append(this.sum.sum() / 1.0e9).append('\n');
+        out.append(name).append("_count").append(Metrics.braces(labels))
+            .append(' ').append(total).append('\n');
+    }
+}
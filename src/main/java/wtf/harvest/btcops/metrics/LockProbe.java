@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.metrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.bitcoinj.wallet.Wallet;
+import wtf.harvest.btcops.wallet.WalletLock;
+
+/**
+ * Wallet lock probe.
+ * <p>
+ * The wallet lock is internal to bitcoinj, so requests can't be timed
+ * while waiting for it or holding it. Instead the probe acquires the lock
+ * ten times a second: time to acquire it is the wait a request would see,
+ * and the share of samples finding the lock held is its utilization.
+ * The lock is held by the probe only to release it.
+ * </p>
+ * @since 1.0
+ */
+public final class LockProbe {
+
+    /**
+     * Probe interval in milliseconds.
+     */
+    private static final long INTERVAL = 100L;
+
+    /**
+     * Wallet lock.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Wait times.
+     */
+    private final Histogram waits;
+
+    /**
+     * Samples finding the lock held.
+     */
+    private final LongAdder busy;
+
+    /**
+     * Samples.
+     */
+    private final LongAdder samples;
+
+    /**
+     * Probe thread.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param metrics Metrics
+     */
+    public LockProbe(final Wallet wallet, final Metrics metrics) {
+        this(new WalletLock(wallet).value(), metrics);
+    }
+
+    /**
+     * Ctor.
+     * @param lock Wallet lock
+     * @param metrics Metrics
+     */
+    LockProbe(final ReentrantLock lock, final Metrics metrics) {
+        this.lock = lock;
+        this.waits = metrics.histogram(
+            "btcops_wallet_lock_wait_seconds",
+            "Time to acquire the wallet lock", ""
+        );
+        this.busy = metrics.counter(
+            "btcops_wallet_lock_busy_samples_total",
+            "Probes finding the wallet lock held", ""
+        );
+        this.samples = metrics.counter(
+            "btcops_wallet_lock_samples_total",
+            "Probes of the wallet lock", ""
+        );
+        metrics.gauge(
+            "btcops_wallet_lock_queue",
+            "Threads waiting for the wallet lock", lock::getQueueLength
+        );
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-lock-probe");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    /**
+     * Start probing.
+     * @return This probe
+     */
+    public LockProbe start() {
+        this.timer.scheduleWithFixedDelay(
+            this::probe, LockProbe.INTERVAL, LockProbe.INTERVAL,
+            TimeUnit.MILLISECONDS
+        );
+        return this;
+    }
+
+    /**
+     * Probe the lock once.
+     */
+    void probe() {
+        this.samples.increment();
+        if (this.lock.isLocked()) {
+            this.busy.increment();
+        }
+        final long start = System.nanoTime();
+        this.lock.lock();
+        try {
+            this.waits.record(System.nanoTime() - start);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Metrics registry.
+ * <p>
+ * Histograms and counters are created once, when instrumented code is
+ * built, and recorded to without lookups. Gauges and counters maintained
+ * elsewhere are read on export.
+ * Metrics are exported in Prometheus text exposition format.
+ * </p>
+ * @since 1.0
+ */
+public final class Metrics {
+
+    /**
+     * Families by metric name, sorted.
+     */
+    private final Map<String, Metrics.Family> families;
+
+    /**
+     * Ctor.
+     */
+    public Metrics() {
+        this.families = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Histogram.
+     * @param name Metric name
+     * @param help Description
+     * @param labels Labels without braces, may be empty
+     * @return Histogram
+     */
+    public Histogram histogram(final String name, final String help,
+        final String labels) {
+        return this.family(name, help, "histogram")
+            .histograms.computeIfAbsent(labels, key -> new Histogram());
+    }
+
+    /**
+     * Counter.
+     * @param name Metric name
+     * @param help Description
+     * @param labels Labels without braces, may be empty
+     * @return Counter
+     */
+    public LongAdder counter(final String name, final String help,
+        final String labels) {
+        return this.family(name, help, "counter")
+            .adders.computeIfAbsent(labels, key -> new LongAdder());
+    }
+
+    /**
+     * Register counter maintained elsewhere.
+     * @param name Metric name, should end with {@code _total}
+     * @param help Description
+     * @param value Value source, never decreasing
+     * @return This registry
+     */
+    public Metrics counter(final String name, final String help,
+        final Supplier<? extends Number> value) {
+        this.family(name, help, "counter").values.put("", value);
+        return this;
+    }
+
+    /**
+     * Register gauge.
+     * @param name Metric name
+     * @param help Description
+     * @param value Value source
+     * @return This registry
+     */
+    public Metrics gauge(final String name, final String help,
+        final Supplier<? extends Number> value) {
+        this.family(name, help, "gauge").values.put("", value);
+        return this;
+    }
+
+    /**
+     * Metrics in text exposition format.
+     * @return Text
+     */
+    public String text() {
+        final StringBuilder out = new StringBuilder(4096);
+        for (final Map.Entry<String, Metrics.Family> ent
+            : this.families.entrySet()) {
+            final String name = ent.getKey();
+            final Metrics.Family family = ent.getValue();
+            out.append("# HELP ").append(name).append(' ')
+                .append(family.help).append('\n')
+                .append("# TYPE ").append(name).append(' ')
+                .append(family.type).append('\n');
+            for (final Map.Entry<String, Histogram> sample
+                : family.histograms.entrySet()) {
+                sample.getValue().print(out, name, sample.getKey());
+            }
+            for (final Map.Entry<String, LongAdder> sample
+                : family.adders.entrySet()) {
+                Metrics.print(out, name, sample.getKey(), sample.getValue());
+            }
+            for (final Map.Entry<String, Supplier<? extends Number>> sample
+                : family.values.entrySet()) {
+                Metrics.print(
+                    out, name, sample.getKey(), sample.getValue().get()
+                );
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Labels in braces.
+     * @param labels Labels without braces, may be empty
+     * @return Labels in braces or empty string
+     */
+    static String braces(final String labels) {
+        String res = "";
+        if (!labels.isEmpty()) {
+            res = String.format("{%s}", labels);
+        }
+        return res;
+    }
+
+    /**
+     * Print plain sample.
+     * @param out Output
+     * @param name Metric name
+     * @param labels Labels without braces, may be empty
+     * @param value Value
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    private static void print(final StringBuilder out, final String name,
+        final String labels, final Number value) {
+        out.append(name).append(Metrics.braces(labels))
+            .append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Family by name.
+     * @param name Metric name
+     * @param help Description
+     * @param type Metric type
+     * @return Family
+     */
+    private Metrics.Family family(final String name, final String help,
+        final String type) {
+        return this.families.computeIfAbsent(
+            name, key -> new Metrics.Family(help, type)
+        );
+    }
+
+    /**
+     * Metric family.
+     * @since 1.0
+     */
+    private static final class Family {
+
+        /**
+         * Description.
+         */
+        private final String help;
+
+        /**
+         * Metric type.
+         */
+        private final String type;
+
+        /**
+         * Histograms by labels.
+         */
+        private final ConcurrentMap<String, Histogram> histograms;
+
+        /**
+         * Counters by labels.
+         */
+        private final ConcurrentMap<String, LongAdder> adders;
+
+        /**
+         * Sampled values of gauges and counters maintained elsewhere
+         * by labels.
+         */
+        private final ConcurrentMap<String, Supplier<? extends Number>>
+            values;
+
+        /**
+         * Ctor.
+         * @param help Description
+         * @param type Metric type
+         */
+        Family(final String help, final String type) {
+            this.help = help;
+            this.type = type;
+            this.histograms = new ConcurrentSkipListMap<>();
+            this.adders = new ConcurrentSkipListMap<>();
+            this.values = new ConcurrentSkipListMap<>();
+        }
+    }
+}
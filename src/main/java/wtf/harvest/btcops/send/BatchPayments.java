@@ -0,0 +1,302 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.wallet.CoinSelector;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Payments coalesced into multi-output transactions.
+ * <p>
+ * Payments arriving within the time window, or until the batch size is
+ * reached, are sent by one transaction, each caller gets the shared
+ * transaction hash and its own output index. Payments with different
+ * coin selectors or fee rates are batched separately. If the wallet can't
+ * fund or build the whole batch, for example because of a dust output,
+ * its payments are sent one by one, so one bad payout doesn't reject the
+ * others.
+ * </p>
+ * @since 1.0
+ */
+public final class BatchPayments implements Payments {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Time window in milliseconds.
+     */
+    private final long window;
+
+    /**
+     * Max payments in batch.
+     */
+    private final int size;
+
+    /**
+     * Window timer.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Open batches by coin selector and fee rate.
+     */
+    private final Map<Map.Entry<CoinSelector, Coin>, BatchPayments.Batch>
+        open;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param window Time window in milliseconds
+     * @param size Max payments in batch
+     */
+    public BatchPayments(final Wallet wallet, final long window,
+        final int size) {
+        this.wlt = wallet;
+        this.window = window;
+        this.size = size;
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-batch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.open = new HashMap<>(1);
+    }
+
+    @Override
+    public Sent pay(final Address to, final Coin amount,
+        final CoinSelector selector, final Coin fee)
+        throws IOException, InsufficientMoneyException {
+        final Map.Entry<CoinSelector, Coin> key =
+            new AbstractMap.SimpleImmutableEntry<>(selector, fee);
+        final CompletableFuture<Sent> future;
+        BatchPayments.Batch full = null;
+        synchronized (this.open) {
+            BatchPayments.Batch batch = this.open.get(key);
+            if (batch == null) {
+                final BatchPayments.Batch created =
+                    new BatchPayments.Batch(key);
+                this.open.put(key, created);
+                this.timer.schedule(
+                    () -> this.close(created),
+                    this.window, TimeUnit.MILLISECONDS
+                );
+                batch = created;
+            }
+            future = batch.add(new Payout(to, amount));
+            if (batch.size() >= this.size) {
+                this.open.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            full.send(this.wlt);
+        }
+        return BatchPayments.result(future);
+    }
+
+    /**
+     * Send batch if it's still open.
+     * @param batch Batch
+     */
+    private void close(final BatchPayments.Batch batch) {
+        final boolean removed;
+        synchronized (this.open) {
+            removed = this.open.remove(batch.key, batch);
+        }
+        if (removed) {
+            batch.send(this.wlt);
+        }
+    }
+
+    /**
+     * Wait for payment result.
+     * @param future Payment future
+     * @return Sent payment
+     * @throws IOException If fails
+     * @throws InsufficientMoneyException If wallet doesn't have
+     *  enough coins
+     */
+    private static Sent result(final CompletableFuture<Sent> future)
+        throws IOException, InsufficientMoneyException {
+        try {
+            return future.get();
+        } catch (final InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending", err);
+        } catch (final ExecutionException err) {
+            if (err.getCause() instanceof InsufficientMoneyException) {
+                throw (InsufficientMoneyException) err.getCause();
+            }
+            throw new IOException("Failed to send", err.getCause());
+        }
+    }
+
+    /**
+     * Payments of one transaction.
+     */
+    private static final class Batch {
+
+        /**
+         * Coin selector and fee rate.
+         */
+        private final Map.Entry<CoinSelector, Coin> key;
+
+        /**
+         * Payouts.
+         */
+        private final List<Payout> payouts;
+
+        /**
+         * Payout results.
+         */
+        private final List<CompletableFuture<Sent>> results;
+
+        /**
+         * Ctor.
+         * @param key Coin selector and fee rate
+         */
+        Batch(final Map.Entry<CoinSelector, Coin> key) {
+            this.key = key;
+            this.payouts = new ArrayList<>(1);
+            this.results = new ArrayList<>(1);
+        }
+
+        /**
+         * Add payout.
+         * @param payout Payout
+         * @return Payout result
+         */
+        public CompletableFuture<Sent> add(final Payout payout) {
+            final CompletableFuture<Sent> res = new CompletableFuture<>();
+            this.payouts.add(payout);
+            this.results.add(res);
+            return res;
+        }
+
+        /**
+         * Number of payouts.
+         * @return Size
+         */
+        public int size() {
+            return this.payouts.size();
+        }
+
+        /**
+         * Send all payouts and complete results.
+         * @param wallet Wallet
+         */
+        @SuppressWarnings("PMD.AvoidCatchingGenericException")
+        public void send(final Wallet wallet) {
+            try {
+                this.send(wallet, 0, this.payouts.size());
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final InsufficientMoneyException | RuntimeException err) {
+                if (this.payouts.size() == 1) {
+                    this.results.get(0).completeExceptionally(err);
+                } else {
+                    for (int idx = 0; idx < this.payouts.size(); ++idx) {
+                        this.single(wallet, idx);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Send one payout on its own.
+         * @param wallet Wallet
+         * @param idx Payout index
+         */
+        @SuppressWarnings("PMD.AvoidCatchingGenericException")
+        private void single(final Wallet wallet, final int idx) {
+            try {
+                this.send(wallet, idx, idx + 1);
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final InsufficientMoneyException | RuntimeException err) {
+                this.results.get(idx).completeExceptionally(err);
+            }
+        }
+
+        /**
+         * Send payouts by one transaction.
+         * <p>
+         * Failures after the transaction is committed complete results of
+         * its payouts instead of being thrown, so they are never sent
+         * again.
+         * </p>
+         * @param wallet Wallet
+         * @param from First payout index
+         * @param to Payout index after the last one
+         * @throws InsufficientMoneyException If wallet doesn't have
+         *  enough coins
+         */
+        @SuppressWarnings("PMD.AvoidCatchingGenericException")
+        private void send(final Wallet wallet, final int from, final int to)
+            throws InsufficientMoneyException {
+            final Transaction txn = new Transaction(wallet.getParams());
+            for (int idx = from; idx < to; ++idx) {
+                this.payouts.get(idx).addTo(txn);
+            }
+            final SendRequest req = SendRequest.forTx(txn);
+            req.coinSelector = this.key.getKey();
+            req.feePerKb = this.key.getValue();
+            final Wallet.SendResult sent = wallet.sendCoins(req);
+            final boolean[] used = new boolean[sent.tx.getOutputs().size()];
+            for (int idx = from; idx < to; ++idx) {
+                try {
+                    this.results.get(idx).complete(
+                        new Sent(
+                            sent.tx.getHash(),
+                            this.payouts.get(idx).output(sent.tx, used),
+                            sent.broadcastComplete
+                        )
+                    );
+                // @checkstyle IllegalCatchCheck (1 line)
+                } catch (final RuntimeException err) {
+                    this.results.get(idx).completeExceptionally(err);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import com.jcabi.log.Logger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import wtf.harvest.btcops.coins.Spendable;
+import wtf.harvest.btcops.fees.FeeBuckets;
+import wtf.harvest.btcops.fees.FeeEstimator;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+
+/**
+ * Background consolidation of small outputs.
+ * <p>
+ * Every run merges the smallest spendable outputs into one change output,
+ * but only if there are enough of them, send pipeline is idle and fee
+ * rate for the slowest target is low. A run spends at most a fixed number
+ * of inputs, so the wallet lock is held only for one bounded transaction.
+ * Outputs which cost more to spend than a third of their value are left
+ * alone.
+ * Until fee rates are estimated the fallback rate of the estimator is
+ * used, it's usually above the limit, so the first runs after start are
+ * skipped.
+ * </p>
+ * @since 1.0
+ */
+public final class Consolidator implements Runnable {
+
+    /**
+     * Outputs below this value are small.
+     */
+    public static final Coin SMALL = Coin.MILLICOIN;
+
+    /**
+     * Min number of small outputs to consolidate.
+     */
+    private static final int MIN_OUTPUTS = 50;
+
+    /**
+     * Max number of inputs per run.
+     */
+    private static final int BUDGET = 200;
+
+    /**
+     * Approximate size of P2PKH input in bytes.
+     */
+    private static final long INPUT_SIZE = 148L;
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Address index.
+     */
+    private final UtxoIndex index;
+
+    /**
+     * Fee estimator.
+     */
+    private final FeeEstimator fees;
+
+    /**
+     * Send pipeline.
+     */
+    private final Jobs jobs;
+
+    /**
+     * Max fee rate per kB to consolidate at.
+     */
+    private final Coin limit;
+
+    /**
+     * Run timer.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Number of runs.
+     */
+    private final AtomicLong runs;
+
+    /**
+     * Number of consolidated outputs.
+     */
+    private final AtomicLong merged;
+
+    /**
+     * Outcome of the last run.
+     */
+    private final AtomicReference<String> outcome;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param index Address index
+     * @param fees Fee estimator
+     * @param jobs Send pipeline
+     * @param limit Max fee rate per kB to consolidate at
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public Consolidator(final Wallet wallet, final UtxoIndex index,
+        final FeeEstimator fees, final Jobs jobs, final Coin limit) {
+        this.wlt = wallet;
+        this.index = index;
+        this.fees = fees;
+        this.jobs = jobs;
+        this.limit = limit;
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-consolidate");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.runs = new AtomicLong();
+        this.merged = new AtomicLong();
+        this.outcome = new AtomicReference<>("not started");
+    }
+
+    /**
+     * Schedule runs.
+     * @param minutes Minutes between runs, zero to disable
+     * @return This consolidator
+     */
+    public Consolidator start(final long minutes) {
+        if (minutes > 0L) {
+            this.timer.scheduleWithFixedDelay(
+                this, minutes, minutes, TimeUnit.MINUTES
+            );
+            this.outcome.set("scheduled");
+        } else {
+            this.outcome.set("disabled");
+        }
+        return this;
+    }
+
+    /**
+     * Number of small spendable outputs.
+     * @return Count
+     */
+    public int small() {
+        return this.candidates().size();
+    }
+
+    /**
+     * Number of runs.
+     * @return Count
+     */
+    public long runs() {
+        return this.runs.get();
+    }
+
+    /**
+     * Number of consolidated outputs.
+     * @return Count
+     */
+    public long merged() {
+        return this.merged.get();
+    }
+
+    /**
+     * Outcome of the last run.
+     * @return Description
+     */
+    public String outcome() {
+        return this.outcome.get();
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public void run() {
+        this.runs.incrementAndGet();
+        final Coin rate = this.fees.rate(FeeBuckets.MAX_TARGET);
+        try {
+            if (!this.jobs.idle()) {
+                this.outcome.set("skipped: send pipeline is busy");
+            } else if (rate.isGreaterThan(this.limit)
+                && !this.fees.estimated(FeeBuckets.MAX_TARGET)) {
+                this.outcome.set(
+                    String.format(
+                        "skipped: fee rate is not estimated, fallback %s",
+                        rate
+                    )
+                );
+            } else if (rate.isGreaterThan(this.limit)) {
+                this.outcome.set(
+                    String.format("skipped: fee rate %s is high", rate)
+                );
+            } else {
+                this.consolidate(rate);
+            }
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final InsufficientMoneyException | RuntimeException err) {
+            this.outcome.set(String.format("failed: %s", err.getMessage()));
+            Logger.error(this, "Consolidation failed: %[exception]s", err);
+        }
+    }
+
+    /**
+     * Merge smallest outputs into one.
+     * @param rate Fee rate per kB
+     * @throws InsufficientMoneyException If outputs can't pay the fee
+     */
+    private void consolidate(final Coin rate)
+        throws InsufficientMoneyException {
+        final long cost = rate.value * Consolidator.INPUT_SIZE / 1000L;
+        final List<TransactionOutput> small = new ArrayList<>(0);
+        for (final TransactionOutput out : this.candidates()) {
+            if (out.getValue().value > cost * 3L) {
+                small.add(out);
+            }
+        }
+        if (small.size() < Consolidator.MIN_OUTPUTS) {
+            this.outcome.set(
+                String.format("skipped: %d small outputs", small.size())
+            );
+        } else {
+            small.sort(Comparator.comparing(TransactionOutput::getValue));
+            final Set<TransactionOutPoint> chosen = new HashSet<>(0);
+            for (final TransactionOutput out : small.subList(
+                0, Math.min(small.size(), Consolidator.BUDGET)
+            )) {
+                chosen.add(out.getOutPointFor());
+            }
+            final Transaction txn = new Transaction(this.wlt.getParams());
+            txn.addOutput(Coin.ZERO, this.wlt.currentChangeAddress());
+            final SendRequest req = SendRequest.forTx(txn);
+            req.emptyWallet = true;
+            req.feePerKb = rate;
+            req.coinSelector = (target, all) -> {
+                final List<TransactionOutput> gathered =
+                    new ArrayList<>(chosen.size());
+                Coin value = Coin.ZERO;
+                for (final TransactionOutput out : all) {
+                    if (chosen.contains(out.getOutPointFor())) {
+                        gathered.add(out);
+                        value = value.add(out.getValue());
+                    }
+                }
+                return new CoinSelection(value, gathered);
+            };
+            final Wallet.SendResult res = this.wlt.sendCoins(req);
+            this.merged.addAndGet(res.tx.getInputs().size());
+            this.outcome.set(
+                String.format(
+                    "merged %d outputs by %s",
+                    res.tx.getInputs().size(), res.tx.getHash()
+                )
+            );
+            Logger.info(this, "Consolidation: %s", this.outcome.get());
+        }
+    }
+
+    /**
+     * Small outputs the wallet can spend.
+     * @return Outputs
+     */
+    private List<TransactionOutput> candidates() {
+        final Spendable spendable = new Spendable();
+        final List<TransactionOutput> res = new ArrayList<>(0);
+        for (final TransactionOutput out : this.index.candidates()) {
+            if (out.getValue().isLessThan(Consolidator.SMALL)
+                && out.isMine(this.wlt) && spendable.test(out)) {
+                res.add(out);
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.wallet.CoinSelector;
+
+/**
+ * Payment job of send pipeline.
+ *
+ * @since 1.0
+ */
+public final class Job {
+
+    /**
+     * Job id.
+     */
+    private final String ident;
+
+    /**
+     * Payout the job was submitted for, empty if unknown.
+     */
+    private final String order;
+
+    /**
+     * Current status.
+     */
+    private final AtomicReference<Job.Status> state;
+
+    /**
+     * Signed and committed payment.
+     */
+    private final CompletableFuture<Sent> signed;
+
+    /**
+     * Failure.
+     */
+    private final AtomicReference<Throwable> failure;
+
+    /**
+     * Ctor.
+     * @param ident Job id
+     * @param order Payout text, see {@link Payout#text()}
+     */
+    Job(final String ident, final String order) {
+        this(ident, order, Job.Status.QUEUED, new CompletableFuture<>());
+    }
+
+    /**
+     * Ctor of already sent job.
+     * @param ident Job id
+     * @param order Payout text, empty if unknown
+     * @param sent Sent payment
+     */
+    Job(final String ident, final String order, final Sent sent) {
+        this(
+            ident, order, Job.Status.SENT,
+            CompletableFuture.completedFuture(sent)
+        );
+    }
+
+    /**
+     * Primary ctor.
+     * @param ident Job id
+     * @param order Payout text
+     * @param status Initial status
+     * @param signed Signed payment
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    private Job(final String ident, final String order,
+        final Job.Status status, final CompletableFuture<Sent> signed) {
+        this.ident = ident;
+        this.order = order;
+        this.state = new AtomicReference<>(status);
+        this.signed = signed;
+        this.failure = new AtomicReference<>();
+    }
+
+    /**
+     * Job id.
+     * @return Id
+     */
+    public String id() {
+        return this.ident;
+    }
+
+    /**
+     * Current status.
+     * @return Status
+     */
+    public Job.Status status() {
+        return this.state.get();
+    }
+
+    /**
+     * Payment if it's already signed.
+     * @return Sent payment
+     */
+    public Optional<Sent> sent() {
+        Optional<Sent> res = Optional.empty();
+        if (this.signed.isDone() && !this.signed.isCompletedExceptionally()) {
+            res = Optional.of(this.signed.join());
+        }
+        return res;
+    }
+
+    /**
+     * Failure message if job failed.
+     * @return Message
+     */
+    public Optional<String> error() {
+        return Optional.ofNullable(this.failure.get())
+            .map(Throwable::getMessage);
+    }
+
+    /**
+     * Payout text of the job.
+     * @return Text, empty if unknown
+     */
+    String order() {
+        return this.order;
+    }
+
+    /**
+     * Wait until payment is signed and committed to the wallet.
+     * @return Sent payment
+     * @throws IOException If fails
+     * @throws InsufficientMoneyException If wallet doesn't have
+     *  enough coins
+     */
+    public Sent result() throws IOException, InsufficientMoneyException {
+        try {
+            return this.signed.get();
+        } catch (final InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending", err);
+        } catch (final ExecutionException err) {
+            if (err.getCause() instanceof InsufficientMoneyException) {
+                throw (InsufficientMoneyException) err.getCause();
+            }
+            throw new IOException("Failed to send", err.getCause());
+        }
+    }
+
+    /**
+     * Wait until payment is signed and committed to the wallet, but not
+     * longer than given time.
+     * @param millis Max time to wait in milliseconds
+     * @return Sent payment
+     * @throws IOException If fails
+     * @throws InsufficientMoneyException If wallet doesn't have
+     *  enough coins
+     * @throws TimeoutException If payment is not signed in time
+     */
+    public Sent result(final long millis)
+        throws IOException, InsufficientMoneyException, TimeoutException {
+        try {
+            return this.signed.get(millis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending", err);
+        } catch (final ExecutionException err) {
+            if (err.getCause() instanceof InsufficientMoneyException) {
+                throw (InsufficientMoneyException) err.getCause();
+            }
+            throw new IOException("Failed to send", err.getCause());
+        }
+    }
+
+    /**
+     * Sign and commit payment, then track its broadcast.
+     * @param payments Payments
+     * @param dest Destination address
+     * @param amount Amount
+     * @param selector Coin selector
+     * @param fee Fee rate per kB
+     * @param receipt Receipt of signed payment, saved before the payment
+     *  is reported to waiting callers; if it fails, the job fails too,
+     *  though the payment is committed
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    void run(final Payments payments, final Address dest, final Coin amount,
+        final CoinSelector selector, final Coin fee,
+        final Job.Receipt receipt) {
+        this.state.set(Job.Status.SIGNING);
+        try {
+            final Sent sent = payments.pay(dest, amount, selector, fee);
+            try {
+                receipt.save(sent);
+            } catch (final IOException err) {
+                throw new IOException(
+                    String.format(
+                        "Payment %s is sent, but its receipt is not saved",
+                        sent.tx()
+                    ),
+                    err
+                );
+            }
+            this.state.set(Job.Status.BROADCASTING);
+            this.signed.complete(sent);
+            sent.broadcast().addListener(
+                () -> {
+                    try {
+                        sent.broadcast().get();
+                        this.state.set(Job.Status.SENT);
+                    } catch (final InterruptedException err) {
+                        Thread.currentThread().interrupt();
+                    } catch (final ExecutionException err) {
+                        this.unsent(err.getCause());
+                    }
+                },
+                MoreExecutors.directExecutor()
+            );
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final IOException | InsufficientMoneyException
+            | RuntimeException err) {
+            this.fail(err);
+        }
+    }
+
+    /**
+     * Mark job as failed.
+     * @param err Failure
+     */
+    void fail(final Throwable err) {
+        this.failure.set(err);
+        this.state.set(Job.Status.FAILED);
+        this.signed.completeExceptionally(err);
+    }
+
+    /**
+     * Mark broadcast of committed payment as failed.
+     * <p>
+     * The payment stays signed: it's in the wallet, which broadcasts it
+     * again, so only the job state tells about the failure.
+     * </p>
+     * @param err Failure
+     */
+    private void unsent(final Throwable err) {
+        this.failure.set(err);
+        this.state.set(Job.Status.FAILED);
+    }
+
+    /**
+     * Receipt of signed payment.
+     */
+    interface Receipt {
+        /**
+         * Save receipt.
+         * @param sent Signed payment
+         * @throws IOException If fails to save
+         */
+        void save(Sent sent) throws IOException;
+    }
+
+    /**
+     * Job status.
+     */
+    public enum Status {
+        /**
+         * Waiting in the queue.
+         */
+        QUEUED,
+        /**
+         * Selecting coins and signing.
+         */
+        SIGNING,
+        /**
+         * Committed to the wallet, being broadcast to peers.
+         */
+        BROADCASTING,
+        /**
+         * Accepted by peers.
+         */
+        SENT,
+        /**
+         * Failed.
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import com.jcabi.log.Logger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.wallet.CoinSelector;
+
+/**
+ * Asynchronous send pipeline.
+ * <p>
+ * Payments are queued into bounded queue and signed by pipeline workers,
+ * broadcast is tracked by the job without holding a worker. Submit is
+ * rejected when the queue is full, so callers get backpressure instead
+ * of unbounded waiting.
+ * </p>
+ * <p>
+ * Payments submitted with idempotency key are sent at most once: repeats
+ * of signed payment get the job from receipts, concurrent repeats get the
+ * same in-flight job. Failed payment can be retried with the same key.
+ * If the receipt of a signed payment can't be saved, the job fails, but
+ * its key stays in-flight until restart, so repeats get the failed job
+ * instead of paying again.
+ * </p>
+ * @since 1.0
+ */
+public final class Jobs implements Closeable {
+
+    /**
+     * Payments.
+     */
+    private final Payments payments;
+
+    /**
+     * Pipeline workers.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Recent jobs by id.
+     */
+    private final Map<String, Job> recent;
+
+    /**
+     * Receipts of signed payments.
+     */
+    private final Receipts receipts;
+
+    /**
+     * In-flight jobs by idempotency key.
+     */
+    private final Map<String, Job> inflight;
+
+    /**
+     * Ctor.
+     * @param payments Payments
+     * @param threads Number of workers
+     * @param queue Max number of queued jobs
+     * @param history Max number of jobs to remember
+     * @param receipts Receipts of signed payments
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public Jobs(final Payments payments, final int threads, final int queue,
+        final int history, final Receipts receipts) {
+        this.payments = payments;
+        this.receipts = receipts;
+        this.inflight = new HashMap<>();
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queue),
+            run -> {
+                final Thread thread = new Thread(
+                    run,
+                    String.format("btcops-send-%d", count.incrementAndGet())
+                );
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.recent = Collections.synchronizedMap(
+            new LinkedHashMap<String, Job>(history) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(
+                    final Map.Entry<String, Job> eldest) {
+                    return this.size() > history;
+                }
+            }
+        );
+        for (final Job job : receipts.all()) {
+            this.recent.put(job.id(), job);
+        }
+    }
+
+    /**
+     * Submit payment.
+     * @param to Destination address
+     * @param amount Amount
+     * @param selector Coin selector
+     * @param fee Fee rate per kB
+     * @return Queued job
+     * @throws RejectedExecutionException If pipeline queue is full
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public Job submit(final Address to, final Coin amount,
+        final CoinSelector selector, final Coin fee) {
+        final Job job = new Job(
+            UUID.randomUUID().toString(), new Payout(to, amount).text()
+        );
+        this.workers.execute(
+            () -> job.run(
+                this.payments, to, amount, selector, fee, sent -> { }
+            )
+        );
+        this.recent.put(job.id(), job);
+        return job;
+    }
+
+    /**
+     * Submit payment once per idempotency key.
+     * @param key Idempotency key
+     * @param to Destination address
+     * @param amount Amount
+     * @param selector Coin selector
+     * @param fee Fee rate per kB
+     * @return Queued, in-flight or already sent job
+     * @throws RejectedExecutionException If pipeline queue is full
+     * @throws IllegalStateException If key is used by another payment
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public Job submit(final String key, final Address to, final Coin amount,
+        final CoinSelector selector, final Coin fee) {
+        final String order = new Payout(to, amount).text();
+        synchronized (this.inflight) {
+            Job job = this.inflight.get(key);
+            if (job == null) {
+                job = this.receipts.get(key).orElse(null);
+            }
+            if (job != null && !job.order().isEmpty()
+                && !job.order().equals(order)) {
+                throw new IllegalStateException(
+                    String.format(
+                        "Idempotency key %s is used by another payment", key
+                    )
+                );
+            }
+            if (job == null) {
+                final Job fresh = new Job(UUID.randomUUID().toString(), order);
+                this.inflight.put(key, fresh);
+                try {
+                    this.workers.execute(
+                        () -> this.run(key, fresh, to, amount, selector, fee)
+                    );
+                } catch (final RejectedExecutionException err) {
+                    this.inflight.remove(key);
+                    throw err;
+                }
+                this.recent.put(fresh.id(), fresh);
+                job = fresh;
+            }
+            return job;
+        }
+    }
+
+    /**
+     * Whether pipeline has no queued or running jobs.
+     * @return True if idle
+     */
+    public boolean idle() {
+        return this.workers.getQueue().isEmpty()
+            && this.workers.getActiveCount() == 0;
+    }
+
+    /**
+     * Job by id.
+     * @param id Job id
+     * @return Job, empty if it's unknown or too old
+     */
+    public Optional<Job> job(final String id) {
+        return Optional.ofNullable(this.recent.get(id));
+    }
+
+    /**
+     * Stop accepting payments and wait until queued ones are done.
+     * @throws IOException If interrupted while waiting
+     */
+    @Override
+    public void close() throws IOException {
+        this.workers.shutdown();
+        try {
+            this.workers.awaitTermination(1L, TimeUnit.MINUTES);
+        } catch (final InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing", err);
+        }
+    }
+
+    /**
+     * Run keyed job, its receipt is saved before the payment is reported.
+     * @param key Idempotency key
+     * @param job Job
+     * @param to Destination address
+     * @param amount Amount
+     * @param selector Coin selector
+     * @param fee Fee rate per kB
+     * @checkstyle ParameterNumberCheck (4 lines)
+     */
+    private void run(final String key, final Job job, final Address to,
+        final Coin amount, final CoinSelector selector, final Coin fee) {
+        final AtomicBoolean unsaved = new AtomicBoolean();
+        try {
+            job.run(
+                this.payments, to, amount, selector, fee,
+                sent -> {
+                    try {
+                        this.receipts.put(key, job, sent);
+                    } catch (final IOException err) {
+                        unsaved.set(true);
+                        Logger.error(
+                            this, "Failed to save receipt of %s: %[exception]s",
+                            key, err
+                        );
+                        throw err;
+                    }
+                }
+            );
+        } finally {
+            if (!unsaved.get()) {
+                synchronized (this.inflight) {
+                    this.inflight.remove(key);
+                }
+            }
+        }
+    }
+}
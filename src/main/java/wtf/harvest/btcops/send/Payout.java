@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import java.util.Arrays;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.script.ScriptBuilder;
+
+/**
+ * Single payment to address.
+ *
+ * @since 1.0
+ */
+final class Payout {
+
+    /**
+     * Destination address.
+     */
+    private final Address dest;
+
+    /**
+     * Amount.
+     */
+    private final Coin amount;
+
+    /**
+     * Ctor.
+     * @param dest Destination address
+     * @param amount Amount
+     */
+    Payout(final Address dest, final Coin amount) {
+        this.dest = dest;
+        this.amount = amount;
+    }
+
+    /**
+     * Text of the payout to compare payments by, {@code dest amount}.
+     * @return Text
+     */
+    public String text() {
+        return String.format("%s %d", this.dest, this.amount.getValue());
+    }
+
+    /**
+     * Add payment output to transaction.
+     * @param txn Transaction
+     */
+    public void addTo(final Transaction txn) {
+        txn.addOutput(this.amount, this.dest);
+    }
+
+    /**
+     * Find payment output of the transaction.
+     * <p>
+     * Outputs are shuffled by wallet, so the output is found by address
+     * and amount among outputs not claimed by other payments yet.
+     * </p>
+     * @param txn Transaction
+     * @param used Outputs claimed by other payments, updated
+     * @return Output index
+     * @throws IllegalStateException If there is no such output
+     */
+    public int output(final Transaction txn, final boolean[] used) {
+        final byte[] script =
+            ScriptBuilder.createOutputScript(this.dest).getProgram();
+        int found = -1;
+        for (int idx = 0; idx < txn.getOutputs().size() && found < 0; ++idx) {
+            final TransactionOutput out = txn.getOutput(idx);
+            if (!used[idx] && out.getValue().equals(this.amount)
+                && Arrays.equals(out.getScriptBytes(), script)) {
+                used[idx] = true;
+                found = idx;
+            }
+        }
+        if (found < 0) {
+            throw new IllegalStateException(
+                String.format(
+                    "No output of %s to %s in %s",
+                    this.amount.toFriendlyString(), this.dest,
+                    txn.getHashAsString()
+                )
+            );
+        }
+        return found;
+    }
+}
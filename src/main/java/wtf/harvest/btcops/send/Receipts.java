@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.bitcoinj.core.Sha256Hash;
+
+/**
+ * Persistent receipts of sent payments by idempotency key.
+ * <p>
+ * Receipts are appended to the file as {@code key job tx output to amount}
+ * lines and synced before the payment is reported. Only the latest
+ * receipts are kept, the file is rewritten when it grows over twice the
+ * capacity.
+ * </p>
+ * @since 1.0
+ */
+public final class Receipts {
+
+    /**
+     * Receipts file.
+     */
+    private final Path file;
+
+    /**
+     * Max number of receipts.
+     */
+    private final int capacity;
+
+    /**
+     * Jobs and their receipt lines by key.
+     */
+    private final Map<String, Map.Entry<Job, String>> jobs;
+
+    /**
+     * Number of lines in the file.
+     */
+    private int lines;
+
+    /**
+     * Ctor.
+     * @param file Receipts file
+     * @param capacity Max number of receipts
+     */
+    public Receipts(final Path file, final int capacity) {
+        this.file = file;
+        this.capacity = capacity;
+        this.jobs = new LinkedHashMap<String, Map.Entry<Job, String>>(
+            capacity
+        ) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<String, Map.Entry<Job, String>> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Load receipts from the file.
+     * @return This
+     * @throws IOException If fails to read the file
+     */
+    public synchronized Receipts load() throws IOException {
+        this.jobs.clear();
+        this.lines = 0;
+        if (Files.exists(this.file)) {
+            for (final String line
+                : Files.readAllLines(this.file, StandardCharsets.UTF_8)) {
+                final String[] parts = line.split(" ");
+                // @checkstyle MagicNumberCheck (1 line)
+                if (parts.length == 4 || parts.length == 6) {
+                    String order = "";
+                    // @checkstyle MagicNumberCheck (1 line)
+                    if (parts.length == 6) {
+                        // @checkstyle MagicNumberCheck (1 line)
+                        order = String.join(" ", parts[4], parts[5]);
+                    }
+                    this.jobs.put(
+                        parts[0],
+                        new AbstractMap.SimpleImmutableEntry<>(
+                            new Job(
+                                parts[1], order,
+                                new Sent(
+                                    Sha256Hash.wrap(parts[2]),
+                                    Integer.parseInt(parts[3])
+                                )
+                            ),
+                            line
+                        )
+                    );
+                }
+                ++this.lines;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Receipt by key.
+     * @param key Idempotency key
+     * @return Sent job
+     */
+    public synchronized Optional<Job> get(final String key) {
+        return Optional.ofNullable(this.jobs.get(key))
+            .map(Map.Entry::getKey);
+    }
+
+    /**
+     * All jobs with receipts.
+     * @return Jobs, oldest first
+     */
+    public synchronized Collection<Job> all() {
+        final List<Job> all = new ArrayList<>(this.jobs.size());
+        for (final Map.Entry<Job, String> ent : this.jobs.values()) {
+            all.add(ent.getKey());
+        }
+        return all;
+    }
+
+    /**
+     * Save receipt of signed job.
+     * @param key Idempotency key
+     * @param job Job
+     * @param sent Signed payment of the job
+     * @throws IOException If fails to write the file
+     */
+    public synchronized void put(final String key, final Job job,
+        final Sent sent) throws IOException {
+        final String line = String.format(
+            "%s %s %s %d %s", key, job.id(), sent.tx(), sent.output(),
+            job.order()
+        ).trim();
+        this.jobs.put(key, new AbstractMap.SimpleImmutableEntry<>(job, line));
+        if (this.lines >= this.capacity * 2) {
+            this.compact();
+        } else {
+            Files.write(
+                this.file,
+                Collections.singletonList(line),
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND,
+                StandardOpenOption.DSYNC
+            );
+            ++this.lines;
+        }
+    }
+
+    /**
+     * Rewrite the file with latest receipts only.
+     * @throws IOException If fails to write the file
+     */
+    private void compact() throws IOException {
+        final List<String> all = new ArrayList<>(this.jobs.size());
+        for (final Map.Entry<Job, String> ent : this.jobs.values()) {
+            all.add(ent.getValue());
+        }
+        final Path tmp = this.file.resolveSibling(
+            String.format("%s.tmp", this.file.getFileName())
+        );
+        Files.write(
+            tmp, all, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.DSYNC
+        );
+        Files.move(
+            tmp, this.file,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE
+        );
+        this.lines = all.size();
+    }
+}
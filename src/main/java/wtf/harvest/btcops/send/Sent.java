@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+
+/**
+ * Sent payment.
+ *
+ * @since 1.0
+ */
+public final class Sent {
+
+    /**
+     * Transaction hash.
+     */
+    private final Sha256Hash hash;
+
+    /**
+     * Output index of the payment.
+     */
+    private final int index;
+
+    /**
+     * Broadcast of the transaction.
+     */
+    private final ListenableFuture<Transaction> bcast;
+
+    /**
+     * Ctor of already broadcast payment.
+     * @param hash Transaction hash
+     * @param index Output index of the payment
+     */
+    public Sent(final Sha256Hash hash, final int index) {
+        this(hash, index, Futures.immediateFuture(null));
+    }
+
+    /**
+     * Ctor.
+     * @param hash Transaction hash
+     * @param index Output index of the payment
+     * @param bcast Broadcast of the transaction
+     */
+    public Sent(final Sha256Hash hash, final int index,
+        final ListenableFuture<Transaction> bcast) {
+        this.hash = hash;
+        this.index = index;
+        this.bcast = bcast;
+    }
+
+    /**
+     * Transaction hash.
+     * @return Hash
+     */
+    public Sha256Hash tx() {
+        return this.hash;
+    }
+
+    /**
+     * Output index of the payment.
+     * @return Index
+     */
+    public int output() {
+        return this.index;
+    }
+
+    /**
+     * Broadcast of the transaction.
+     * @return Future completed when peers accepted the transaction
+     */
+    public ListenableFuture<Transaction> broadcast() {
+        return this.bcast;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.wallet.CoinSelector;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Payments sent by the wallet one transaction per payment.
+ *
+ * @since 1.0
+ */
+public final class WalletPayments implements Payments {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     */
+    public WalletPayments(final Wallet wallet) {
+        this.wlt = wallet;
+    }
+
+    @Override
+    public Sent pay(final Address to, final Coin amount,
+        final CoinSelector selector, final Coin fee)
+        throws InsufficientMoneyException {
+        final Payout payout = new Payout(to, amount);
+        final SendRequest req = SendRequest.to(to, amount);
+        req.coinSelector = selector;
+        req.feePerKb = fee;
+        final Wallet.SendResult res = this.wlt.sendCoins(req);
+        return new Sent(
+            res.tx.getHash(),
+            payout.output(res.tx, new boolean[res.tx.getOutputs().size()]),
+            res.broadcastComplete
+        );
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.core.NetworkParameters;
+import org.takes.HttpException;
+import org.takes.Request;
+import org.takes.Take;
+import org.takes.http.Back;
+import org.takes.misc.Href;
+import org.takes.rq.RqHref;
+import org.takes.rq.RqLive;
+import org.takes.rs.RsPrint;
+import org.takes.rs.RsText;
+import org.takes.rs.RsWithStatus;
+import wtf.harvest.btcops.events.Events;
+
+/**
+ * Back with server-sent events.
+ * <p>
+ * Works as takes basic back for all requests but {@code /events}:
+ * the connection of events request is handed over to {@link Events}
+ * dispatcher, so it doesn't hold a worker thread.
+ * </p>
+ * @since 1.0
+ */
+public final class BkEvents implements Back {
+
+    /**
+     * Events path.
+     */
+    private static final String PATH = "/events";
+
+    /**
+     * Take.
+     */
+    private final Take take;
+
+    /**
+     * Network.
+     */
+    private final NetworkParameters net;
+
+    /**
+     * Events dispatcher.
+     */
+    private final Events events;
+
+    /**
+     * Ctor.
+     * @param take Take for other requests
+     * @param net Network of addresses
+     * @param events Events dispatcher
+     */
+    public BkEvents(final Take take, final NetworkParameters net,
+        final Events events) {
+        this.take = take;
+        this.net = net;
+        this.events = events;
+    }
+
+    @Override
+    public void accept(final Socket socket) throws IOException {
+        final InputStream input = socket.getInputStream();
+        final OutputStream output =
+            new BufferedOutputStream(socket.getOutputStream());
+        boolean handed = false;
+        try {
+            do {
+                final Request req = new RqLive(input);
+                final Href href = new RqHref.Base(req).href();
+                if (BkEvents.PATH.equals(href.path())) {
+                    handed = this.subscribe(socket, href, output);
+                } else {
+                    this.print(req, output);
+                }
+            } while (!handed && input.available() > 0);
+        } finally {
+            if (!handed) {
+                output.close();
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Hand connection over to events dispatcher.
+     * @param socket Socket
+     * @param href Request href
+     * @param output Output for error response
+     * @return True if connection was handed over
+     * @throws IOException If fails
+     */
+    private boolean subscribe(final Socket socket, final Href href,
+        final OutputStream output) throws IOException {
+        final Collection<Address> addrs = new ArrayList<>(1);
+        boolean handed = false;
+        try {
+            for (final String addr : href.param("address")) {
+                addrs.add(Address.fromBase58(this.net, addr));
+            }
+            this.events.subscribe(socket, addrs);
+            handed = true;
+        } catch (final AddressFormatException err) {
+            new RsPrint(
+                new RsWithStatus(
+                    new RsText(err.getMessage()),
+                    HttpURLConnection.HTTP_BAD_REQUEST
+                )
+            ).print(output);
+        }
+        return handed;
+    }
+
+    /**
+     * Print response of the take.
+     * @param req Request
+     * @param output Output
+     * @throws IOException If fails
+     */
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void print(final Request req, final OutputStream output)
+        throws IOException {
+        try {
+            new RsPrint(this.take.act(req)).print(output);
+        } catch (final HttpException ex) {
+            new RsPrint(
+                new RsWithStatus(new RsText(ex.getMessage()), ex.code())
+            ).print(output);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Throwable ex) {
+            new RsPrint(
+                new RsWithStatus(
+                    new RsText(ex.getMessage()),
+                    HttpURLConnection.HTTP_INTERNAL_ERROR
+                )
+            ).print(output);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.takes.http.Back;
+import org.takes.rs.RsPrint;
+import org.takes.rs.RsText;
+import org.takes.rs.RsWithHeader;
+import org.takes.rs.RsWithStatus;
+
+/**
+ * Parallel back shedding load.
+ * <p>
+ * Works as takes parallel back with a bounded accept queue: when all
+ * workers are busy and the queue is full, the connection is answered
+ * with {@code 503} and {@code Retry-After} header right away instead
+ * of waiting for a worker.
+ * </p>
+ * @since 1.0
+ */
+public final class BkShed implements Back {
+
+    /**
+     * Origin back.
+     */
+    private final Back origin;
+
+    /**
+     * Workers.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Ctor.
+     * @param origin Origin back
+     * @param threads Number of workers
+     * @param queue Max connections waiting for a worker
+     */
+    public BkShed(final Back origin, final int threads, final int queue) {
+        this.origin = origin;
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queue),
+            run -> {
+                final Thread thread = new Thread(
+                    run,
+                    String.format("btcops-http-%d", count.incrementAndGet())
+                );
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    @Override
+    public void accept(final Socket socket) throws IOException {
+        try {
+            this.workers.execute(
+                () -> {
+                    try {
+                        this.origin.accept(socket);
+                    } catch (final IOException err) {
+                        throw new UncheckedIOException(err);
+                    }
+                }
+            );
+        } catch (final RejectedExecutionException err) {
+            Logger.debug(this, "Connection shed: %s", socket);
+            try (Socket closing = socket) {
+                new RsPrint(
+                    new RsWithHeader(
+                        new RsWithStatus(
+                            new RsText("Server is overloaded"),
+                            HttpURLConnection.HTTP_UNAVAILABLE
+                        ),
+                        "Retry-After",
+                        "1"
+                    )
+                ).print(closing.getOutputStream());
+            }
+        }
+    }
+}
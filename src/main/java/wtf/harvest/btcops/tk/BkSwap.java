@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicReference;
+import org.takes.http.Back;
+
+/**
+ * Back which can be replaced while the front is running.
+ * <p>
+ * Lets HTTP front start before the wallet is loaded and switch
+ * to the full application once it's ready.
+ * </p>
+ * @since 1.0
+ */
+public final class BkSwap implements Back {
+
+    /**
+     * Current back.
+     */
+    private final AtomicReference<Back> back;
+
+    /**
+     * Ctor.
+     * @param initial Back to start with
+     */
+    public BkSwap(final Back initial) {
+        this.back = new AtomicReference<>(initial);
+    }
+
+    /**
+     * Serve next connections with another back.
+     * @param next Back
+     */
+    public void swap(final Back next) {
+        this.back.set(next);
+    }
+
+    @Override
+    public void accept(final Socket socket) throws IOException {
+        this.back.get().accept(socket);
+    }
+}
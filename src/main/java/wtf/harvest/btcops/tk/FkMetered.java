@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.LongAdder;
+import org.takes.HttpException;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.facets.fork.Fork;
+import org.takes.misc.Opt;
+import wtf.harvest.btcops.metrics.Histogram;
+import wtf.harvest.btcops.metrics.Metrics;
+
+/**
+ * Fork recording latency and errors of the route.
+ * <p>
+ * Latency is the time to build the response: a streamed body, such as
+ * the ones of {@code /balances}, {@code /transactions} and
+ * {@code /receive}, is timed only up to its headers. Failures and
+ * {@code 5xx} responses are errors, an {@link HttpException} is an error
+ * only if its code is {@code 5xx}.
+ * </p>
+ * @since 1.0
+ */
+final class FkMetered implements Fork {
+
+    /**
+     * Origin fork.
+     */
+    private final Fork origin;
+
+    /**
+     * Latencies.
+     */
+    private final Histogram latency;
+
+    /**
+     * Errors.
+     */
+    private final LongAdder errors;
+
+    /**
+     * Ctor.
+     * @param metrics Metrics
+     * @param route Route name
+     * @param origin Origin fork
+     */
+    FkMetered(final Metrics metrics, final String route, final Fork origin) {
+        this.origin = origin;
+        final String labels = String.format("route=\"%s\"", route);
+        this.latency = metrics.histogram(
+            "btcops_http_request_duration_seconds",
+            "Time to build HTTP response", labels
+        );
+        this.errors = metrics.counter(
+            "btcops_http_errors_total",
+            "Failed HTTP requests and 5xx responses", labels
+        );
+    }
+
+    @Override
+    public Opt<Response> route(final Request req) throws IOException {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Opt<Response> res = this.origin.route(req);
+            if (res.has()) {
+                failed = FkMetered.failed(res.get());
+                this.latency.record(System.nanoTime() - start);
+            } else {
+                failed = false;
+            }
+            return res;
+        } catch (final HttpException err) {
+            failed = err.code() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+            throw err;
+        } finally {
+            if (failed) {
+                this.errors.increment();
+            }
+        }
+    }
+
+    /**
+     * Whether the response is a server error.
+     * @param res Response
+     * @return True if status is 5xx
+     * @throws IOException If fails to read head
+     */
+    private static boolean failed(final Response res) throws IOException {
+        final String line = res.head().iterator().next();
+        final int pos = line.indexOf(' ') + 1;
+        return pos > 0 && pos < line.length() && line.charAt(pos) == '5';
+    }
+}
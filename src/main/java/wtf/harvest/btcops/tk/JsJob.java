@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import org.takes.rs.RsJson;
+import wtf.harvest.btcops.send.Job;
+
+/**
+ * JSON of send job.
+ *
+ * @since 1.0
+ */
+final class JsJob implements RsJson.Source {
+
+    /**
+     * Job.
+     */
+    private final Job job;
+
+    /**
+     * Ctor.
+     * @param job Job
+     */
+    JsJob(final Job job) {
+        this.job = job;
+    }
+
+    @Override
+    public JsonObject toJson() {
+        final JsonObjectBuilder json = Json.createObjectBuilder()
+            .add("job", this.job.id())
+            .add("status", this.job.status().name().toLowerCase());
+        this.job.sent().ifPresent(
+            sent -> json.add("tx", sent.tx().toString())
+                .add("output", sent.output())
+        );
+        this.job.error().ifPresent(err -> json.add("error", err));
+        return json.build();
+    }
+}
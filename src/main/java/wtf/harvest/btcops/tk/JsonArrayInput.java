@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import javax.json.JsonObject;
+
+/**
+ * JSON array rendered lazily item by item.
+ * <p>
+ * Only one item is kept in memory at a time, so the size of the array
+ * doesn't affect memory usage. The array may be wrapped by a prefix and
+ * a suffix, the suffix is taken after the last item is rendered, so it
+ * may depend on the items, e.g. carry a cursor of the next page.
+ * </p>
+ * @since 1.0
+ */
+final class JsonArrayInput extends InputStream {
+
+    /**
+     * Array items.
+     */
+    private final Iterator<JsonObject> items;
+
+    /**
+     * Text after the array.
+     */
+    private final Supplier<String> suffix;
+
+    /**
+     * Current chunk.
+     */
+    private byte[] chunk;
+
+    /**
+     * Position in current chunk.
+     */
+    private int pos;
+
+    /**
+     * Number of rendered items.
+     */
+    private long count;
+
+    /**
+     * Array is closed.
+     */
+    private boolean done;
+
+    /**
+     * Ctor.
+     * @param items Array items
+     */
+    JsonArrayInput(final Iterator<JsonObject> items) {
+        this("", items, () -> "");
+    }
+
+    /**
+     * Ctor.
+     * @param prefix Text before the array
+     * @param items Array items
+     * @param suffix Text after the array
+     */
+    JsonArrayInput(final String prefix, final Iterator<JsonObject> items,
+        final Supplier<String> suffix) {
+        super();
+        this.items = items;
+        this.suffix = suffix;
+        this.chunk = JsonArrayInput.bytes(String.format("%s[", prefix));
+    }
+
+    @Override
+    public int read() {
+        final int res;
+        if (this.available() > 0 || this.fill()) {
+            res = this.chunk[this.pos] & 0xff;
+            this.pos += 1;
+        } else {
+            res = -1;
+        }
+        return res;
+    }
+
+    @Override
+    public int read(final byte[] buf, final int off, final int len) {
+        int total = 0;
+        while (total < len && (this.available() > 0 || this.fill())) {
+            final int size = Math.min(len - total, this.available());
+            System.arraycopy(this.chunk, this.pos, buf, off + total, size);
+            this.pos += size;
+            total += size;
+        }
+        if (total == 0 && len > 0) {
+            total = -1;
+        }
+        return total;
+    }
+
+    @Override
+    public int available() {
+        return this.chunk.length - this.pos;
+    }
+
+    /**
+     * Render next item into the chunk.
+     * @return False if nothing left to render
+     */
+    private boolean fill() {
+        final boolean more = !this.done;
+        if (more) {
+            final String next;
+            if (this.items.hasNext()) {
+                final String item = this.items.next().toString();
+                if (this.count == 0L) {
+                    next = item;
+                } else {
+                    next = String.format(",%s", item);
+                }
+                this.count += 1L;
+            } else {
+                next = String.format("]%s", this.suffix.get());
+                this.done = true;
+            }
+            this.chunk = JsonArrayInput.bytes(next);
+            this.pos = 0;
+        }
+        return more;
+    }
+
+    /**
+     * UTF-8 bytes of the text.
+     * @param text Text
+     * @return Bytes
+     */
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+
+/**
+ * Strings of JSON array read from a stream one by one.
+ * <p>
+ * Invalid JSON and items other than strings are reported with
+ * {@link IllegalArgumentException}, when they are read.
+ * </p>
+ * @since 1.0
+ */
+final class JsonStrings implements Iterator<String> {
+
+    /**
+     * JSON parser.
+     */
+    private final JsonParser parser;
+
+    /**
+     * Next string or null if not read yet.
+     */
+    private String next;
+
+    /**
+     * Array end was reached.
+     */
+    private boolean done;
+
+    /**
+     * Ctor.
+     * @param input JSON array input
+     * @throws IllegalArgumentException If input is not a JSON array
+     */
+    JsonStrings(final InputStream input) {
+        this.parser = Json.createParser(input);
+        if (!this.parser.hasNext()
+            || this.event() != JsonParser.Event.START_ARRAY) {
+            throw new IllegalArgumentException("JSON array expected");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null && !this.done) {
+            final JsonParser.Event event = this.event();
+            if (event == JsonParser.Event.VALUE_STRING) {
+                this.next = this.parser.getString();
+            } else if (event == JsonParser.Event.END_ARRAY) {
+                this.done = true;
+                this.parser.close();
+            } else {
+                throw new IllegalArgumentException(
+                    String.format("JSON string expected, found %s", event)
+                );
+            }
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException("No more strings");
+        }
+        final String res = this.next;
+        this.next = null;
+        return res;
+    }
+
+    /**
+     * Next parser event.
+     * @return Event
+     * @throws IllegalArgumentException If input is not valid JSON
+     */
+    private JsonParser.Event event() {
+        try {
+            return this.parser.next();
+        } catch (final JsonException | NoSuchElementException err) {
+            throw new IllegalArgumentException(
+                String.format("Invalid JSON: %s", err.getMessage()), err
+            );
+        }
+    }
+}
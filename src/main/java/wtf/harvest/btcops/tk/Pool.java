@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+
+/**
+ * Bounded pool of route handlers.
+ * <p>
+ * Routes served by different pools don't compete for handlers. HTTP
+ * workers wait for the handlers though, so a pool must admit fewer
+ * requests than there are workers, or slow sends still starve balance
+ * reads. A request is rejected when all
+ * handlers are busy and the queue is full, and abandoned when it's not
+ * served in time, see {@link TkPool}.
+ * </p>
+ * @since 1.0
+ */
+public final class Pool {
+
+    /**
+     * Handlers.
+     */
+    private final ExecutorService handlers;
+
+    /**
+     * Timeout in milliseconds.
+     */
+    private final long timeout;
+
+    /**
+     * Ctor.
+     * @param name Pool name
+     * @param threads Number of handlers
+     * @param queue Max requests waiting for a handler, zero for none
+     * @param timeout Timeout in milliseconds
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public Pool(final String name, final int threads, final int queue,
+        final long timeout) {
+        final AtomicInteger count = new AtomicInteger();
+        final BlockingQueue<Runnable> waiting;
+        if (queue > 0) {
+            waiting = new ArrayBlockingQueue<>(queue);
+        } else {
+            waiting = new SynchronousQueue<>();
+        }
+        this.handlers = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS, waiting,
+            run -> {
+                final Thread thread = new Thread(
+                    run,
+                    String.format("btcops-%s-%d", name, count.incrementAndGet())
+                );
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.timeout = timeout;
+    }
+
+    /**
+     * Timeout of the pool.
+     * @return Milliseconds
+     */
+    long timeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Serve request by the take in this pool.
+     * @param take Take
+     * @param req Request
+     * @return Response
+     * @throws IOException If take fails
+     * @throws RejectedExecutionException If the pool is full
+     * @throws TimeoutException If the take didn't reply in time
+     */
+    Response act(final Take take, final Request req)
+        throws IOException, TimeoutException {
+        final Future<Response> future = this.handlers.submit(
+            () -> take.act(req)
+        );
+        try {
+            return future.get(this.timeout, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException(err);
+        } catch (final ExecutionException err) {
+            if (err.getCause() instanceof IOException) {
+                throw (IOException) err.getCause();
+            }
+            if (err.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) err.getCause();
+            }
+            throw new IOException(err.getCause());
+        } catch (final TimeoutException err) {
+            future.cancel(true);
+            throw err;
+        }
+    }
+}
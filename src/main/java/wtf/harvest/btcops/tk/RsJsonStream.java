@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import javax.json.JsonObject;
+import org.takes.Response;
+
+/**
+ * JSON array response streamed item by item.
+ * <p>
+ * The array may be wrapped by a prefix and a suffix, as explained in
+ * {@link JsonArrayInput}.
+ * </p>
+ * <p>
+ * The response has no content length, the body is ended by closing
+ * the connection.
+ * </p>
+ * @since 1.0
+ */
+final class RsJsonStream implements Response {
+
+    /**
+     * Array items.
+     */
+    private final Iterator<JsonObject> items;
+
+    /**
+     * Text before the array.
+     */
+    private final String prefix;
+
+    /**
+     * Text after the array.
+     */
+    private final Supplier<String> suffix;
+
+    /**
+     * Ctor.
+     * @param items Array items
+     */
+    RsJsonStream(final Iterator<JsonObject> items) {
+        this("", items, () -> "");
+    }
+
+    /**
+     * Ctor.
+     * @param prefix Text before the array
+     * @param items Array items
+     * @param suffix Text after the array
+     */
+    RsJsonStream(final String prefix, final Iterator<JsonObject> items,
+        final Supplier<String> suffix) {
+        this.prefix = prefix;
+        this.items = items;
+        this.suffix = suffix;
+    }
+
+    @Override
+    public Iterable<String> head() {
+        return Arrays.asList(
+            "HTTP/1.1 200 OK",
+            "Content-Type: application/json",
+            "Connection: close"
+        );
+    }
+
+    @Override
+    public InputStream body() {
+        return new JsonArrayInput(this.prefix, this.items, this.suffix);
+    }
+}
@@ -25,11 +25,27 @@ package wtf.harvest.btcops.tk;
 
 import java.util.regex.Pattern;
 import org.bitcoinj.wallet.Wallet;
+import org.takes.Take;
 import org.takes.facets.fork.FkFixed;
+import org.takes.facets.fork.FkMethods;
 import org.takes.facets.fork.FkParams;
 import org.takes.facets.fork.FkRegex;
+import org.takes.facets.fork.Fork;
 import org.takes.facets.fork.TkFork;
 import org.takes.tk.TkWrap;
+import wtf.harvest.btcops.chain.FilterPeerGroup;
+import wtf.harvest.btcops.chain.PeerManager;
+import wtf.harvest.btcops.chain.Sync;
+import wtf.harvest.btcops.fees.FeeEstimator;
+import wtf.harvest.btcops.metrics.Metrics;
+import wtf.harvest.btcops.send.Consolidator;
+import wtf.harvest.btcops.send.Jobs;
+import wtf.harvest.btcops.wallet.AddressPool;
+import wtf.harvest.btcops.wallet.BalanceCache;
+import wtf.harvest.btcops.wallet.TxHistory;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+import wtf.harvest.btcops.wallet.WalletVersion;
+import wtf.harvest.btcops.watch.Imports;
 
 /**
  * Routing.
@@ -43,30 +59,165 @@ public final class TkApp extends TkWrap {
      * Ctor.
      *
      * @param wallet Wallet
+     * @param index Address index
+     * @param history Transaction history
+     * @param version Wallet version
+     * @param jobs Send pipeline
+     * @param fees Fee estimator
+     * @param consolidator Output consolidator
+     * @param imports Imports of watched addresses
+     * @param pool Receive addresses
+     * @param sync Chain sync
+     * @param manager Peer manager
+     * @param peers Peer group
+     * @param reads Pool of read routes
+     * @param sends Pool of send route
+     * @param metrics Metrics
+     * @checkstyle ParameterNumberCheck (11 lines)
      */
-    public TkApp(final Wallet wallet) {
+    public TkApp(final Wallet wallet, final UtxoIndex index,
+        final TxHistory history, final WalletVersion version,
+        final Jobs jobs, final FeeEstimator fees,
+        final Consolidator consolidator, final Imports imports,
+        final AddressPool pool,
+        final Sync sync, final PeerManager manager,
+        final FilterPeerGroup peers, final Pool reads, final Pool sends,
+        final Metrics metrics) {
+        this(
+            wallet, index, history, version, jobs, fees, consolidator,
+            imports, pool, sync, manager, peers, reads, sends, metrics,
+            new BalanceCache(wallet, index, version)
+        );
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param wallet Wallet
+     * @param index Address index
+     * @param history Transaction history
+     * @param version Wallet version
+     * @param jobs Send pipeline
+     * @param fees Fee estimator
+     * @param consolidator Output consolidator
+     * @param imports Imports of watched addresses
+     * @param pool Receive addresses
+     * @param sync Chain sync
+     * @param manager Peer manager
+     * @param peers Peer group
+     * @param reads Pool of read routes
+     * @param sends Pool of send route
+     * @param metrics Metrics
+     * @param balances Balances
+     * @checkstyle ParameterNumberCheck (11 lines)
+     */
+    private TkApp(final Wallet wallet, final UtxoIndex index,
+        final TxHistory history, final WalletVersion version,
+        final Jobs jobs, final FeeEstimator fees,
+        final Consolidator consolidator, final Imports imports,
+        final AddressPool pool,
+        final Sync sync, final PeerManager manager,
+        final FilterPeerGroup peers, final Pool reads, final Pool sends,
+        final Metrics metrics, final BalanceCache balances) {
         super(
             new TkFork(
-                new FkRegex(
-                    "/send",
-                    new TkSend(wallet)
+                new FkRegex("/live", new TkLive()),
+                new FkRegex("/ready", new TkReady(sync)),
+                new FkRegex("/metrics", new TkMetrics(metrics)),
+                TkApp.metered(
+                    metrics, sends, "/send", "/send",
+                    new TkSynced(
+                        sync, new TkSend(wallet, jobs, fees, sends.timeout())
+                    )
+                ),
+                TkApp.metered(
+                    metrics, reads, "/peers", "/peers", new TkPeers(manager)
+                ),
+                TkApp.metered(
+                    metrics, reads, "/filter", "/filter", new TkFilter(peers)
+                ),
+                TkApp.metered(
+                    metrics, reads, "/fees", "/fees",
+                    new TkStale(sync, new TkFees(fees))
+                ),
+                TkApp.metered(
+                    metrics, reads, "/consolidation", "/consolidation",
+                    new TkStale(sync, new TkConsolidation(index, consolidator))
+                ),
+                TkApp.metered(
+                    metrics, reads, "/transactions", "/transactions",
+                    new TkStale(sync, new TkTransactions(wallet, history))
+                ),
+                TkApp.metered(
+                    metrics, reads, "/tx", "/tx/[^/]+",
+                    new TkFork(
+                        new FkRegex("/tx/(?<id>[^/]+)", new TkTx(jobs))
+                    )
+                ),
+                TkApp.metered(
+                    metrics, reads, "/import/id", "/import/[^/]+",
+                    new TkFork(
+                        new FkRegex(
+                            "/import/(?<id>[^/]+)", new TkImportStatus(imports)
+                        )
+                    )
+                ),
+                TkApp.metered(
+                    metrics, reads, "/import", "/import",
+                    new TkFork(
+                        new FkMethods("POST", new TkImport(wallet, imports))
+                    )
                 ),
-                new FkRegex(
-                    "/receive",
-                    new TkReceive(wallet)
+                TkApp.metered(
+                    metrics, reads, "/receive", "/receive", new TkReceive(pool)
                 ),
-                new FkRegex(
-                    "/balance",
+                TkApp.metered(
+                    metrics, reads, "/balances", "/balances",
                     new TkFork(
-                        new FkParams(
-                            "address",
-                            Pattern.compile(".+"),
-                            new TkBalance(wallet)
-                        ),
-                        new FkFixed(new TkBalanceTotal(wallet))
+                        new FkMethods(
+                            "POST",
+                            new TkStale(sync, new TkBalances(wallet, index))
+                        )
+                    )
+                ),
+                TkApp.metered(
+                    metrics, reads, "/balance", "/balance",
+                    new TkStale(
+                        sync,
+                        new TkVersioned(
+                            version,
+                            new TkFork(
+                                new FkParams(
+                                    "address", Pattern.compile(".+"),
+                                    new TkBalance(wallet, balances)
+                                ),
+                                new FkFixed(new TkBalanceTotal(balances))
+                            )
+                        )
                     )
                 )
             )
         );
     }
+
+    /**
+     * Route served by a pool and metered outside of it.
+     * <p>
+     * The latency includes the wait in the pool queue, and the
+     * {@code 429} and {@code 503} replies of the pool are recorded.
+     * </p>
+     * @param metrics Metrics
+     * @param pool Pool
+     * @param route Route name
+     * @param regex Path pattern
+     * @param take Take of the route
+     * @return Fork
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    private static Fork metered(final Metrics metrics, final Pool pool,
+        final String route, final String regex, final Take take) {
+        return new FkMetered(
+            metrics, route, new FkRegex(regex, new TkPool(pool, take))
+        );
+    }
 }
@@ -33,7 +33,7 @@ import org.takes.Response;
 import org.takes.Take;
 import org.takes.rq.RqHref;
 import org.takes.rs.RsJson;
-import wtf.harvest.btcops.AddressBalance;
+import wtf.harvest.btcops.wallet.BalanceCache;
 
 /**
  * Balance take.
@@ -47,13 +47,20 @@ final class TkBalance implements Take {
      */
     private final Wallet wlt;
 
+    /**
+     * Balances.
+     */
+    private final BalanceCache balances;
+
     /**
      * Ctor.
      *
      * @param wallet Bitcoin wallet
+     * @param balances Balances
      */
-    TkBalance(final Wallet wallet) {
+    TkBalance(final Wallet wallet, final BalanceCache balances) {
         this.wlt = wallet;
+        this.balances = balances;
     }
 
     @Override
@@ -63,12 +70,10 @@ final class TkBalance implements Take {
                 .add(
                     "balance",
                     new BigDecimal(
-                        this.wlt.getBalance(
-                            new AddressBalance(
-                                Address.fromBase58(
-                                    this.wlt.getParams(),
-                                    new RqHref.Smart(req).single("address")
-                                )
+                        this.balances.balance(
+                            Address.fromBase58(
+                                this.wlt.getParams(),
+                                new RqHref.Smart(req).single("address")
                             )
                         ).toPlainString()
                     ).toString()
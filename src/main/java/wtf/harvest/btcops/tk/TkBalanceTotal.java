@@ -26,11 +26,11 @@ package wtf.harvest.btcops.tk;
 import java.io.IOException;
 import java.math.BigDecimal;
 import javax.json.Json;
-import org.bitcoinj.wallet.Wallet;
 import org.takes.Request;
 import org.takes.Response;
 import org.takes.Take;
 import org.takes.rs.RsJson;
+import wtf.harvest.btcops.wallet.BalanceCache;
 
 /**
  * Total balance take.
@@ -40,17 +40,17 @@ import org.takes.rs.RsJson;
 final class TkBalanceTotal implements Take {
 
     /**
-     * Wallet.
+     * Balances.
      */
-    private final Wallet wlt;
+    private final BalanceCache balances;
 
     /**
      * Ctor.
      *
-     * @param wallet Bitcoin wallet
+     * @param balances Balances
      */
-    TkBalanceTotal(final Wallet wallet) {
-        this.wlt = wallet;
+    TkBalanceTotal(final BalanceCache balances) {
+        this.balances = balances;
     }
 
     @Override
@@ -59,7 +59,7 @@ final class TkBalanceTotal implements Take {
             Json.createObjectBuilder()
                 .add(
                     "balance",
-                    new BigDecimal(this.wlt.getBalance().toPlainString())
+                    new BigDecimal(this.balances.total().toPlainString())
                         .toString()
                 ).build()
         );
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.wallet.Wallet;
+import org.takes.HttpException;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqChunk;
+import org.takes.rq.RqLengthAware;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+
+/**
+ * Balances of many addresses.
+ * <p>
+ * Accepts JSON array of addresses (may be sent with chunked encoding)
+ * and streams back array of balances while reading addresses, so neither
+ * request nor response is kept in memory. Balances are taken from
+ * address index without locking the wallet.
+ * </p>
+ * <p>
+ * Body that is not a JSON array, or doesn't start with a string, is
+ * rejected with 400. Once balances are being sent the status can't change
+ * anymore, so a body that turns invalid later ends the array with an
+ * object that has only {@code error}.
+ * </p>
+ * @since 1.0
+ */
+final class TkBalances implements Take {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Address index.
+     */
+    private final UtxoIndex index;
+
+    /**
+     * Ctor.
+     *
+     * @param wallet Bitcoin wallet
+     * @param index Address index
+     */
+    TkBalances(final Wallet wallet, final UtxoIndex index) {
+        this.wlt = wallet;
+        this.index = index;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final Iterator<String> addrs;
+        try {
+            addrs = new JsonStrings(
+                new RqChunk(new RqLengthAware(req)).body()
+            );
+            addrs.hasNext();
+        } catch (final IllegalArgumentException err) {
+            throw new HttpException(HttpURLConnection.HTTP_BAD_REQUEST, err);
+        }
+        return new RsJsonStream(
+            new Iterator<JsonObject>() {
+                /**
+                 * Failure of the request body, null if it's valid so far.
+                 */
+                private String failure;
+
+                /**
+                 * Whether the last item was returned.
+                 */
+                private boolean over;
+
+                @Override
+                public boolean hasNext() {
+                    if (!this.over && this.failure == null) {
+                        try {
+                            this.over = !addrs.hasNext();
+                        } catch (final IllegalArgumentException err) {
+                            this.failure = err.getMessage();
+                        }
+                    }
+                    return !this.over;
+                }
+
+                @Override
+                public JsonObject next() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException("No more balances");
+                    }
+                    final JsonObject res;
+                    if (this.failure == null) {
+                        res = TkBalances.this.balance(addrs.next());
+                    } else {
+                        res = Json.createObjectBuilder()
+                            .add("error", this.failure)
+                            .build();
+                        this.over = true;
+                    }
+                    return res;
+                }
+            }
+        );
+    }
+
+    /**
+     * Balance of the address.
+     * @param addr Base58 address
+     * @return JSON with address and balance or error
+     */
+    private JsonObject balance(final String addr) {
+        final JsonObjectBuilder res = Json.createObjectBuilder()
+            .add("address", addr);
+        try {
+            res.add(
+                "balance",
+                new BigDecimal(
+                    this.index.balance(
+                        Address.fromBase58(this.wlt.getParams(), addr)
+                    ).toPlainString()
+                ).toString()
+            );
+        } catch (final AddressFormatException err) {
+            res.add("error", err.getMessage());
+        }
+        return res.build();
+    }
+}
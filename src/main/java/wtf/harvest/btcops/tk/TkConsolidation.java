@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import javax.json.Json;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rs.RsJson;
+import wtf.harvest.btcops.send.Consolidator;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+
+/**
+ * Output consolidation status take.
+ *
+ * @since 1.0
+ */
+final class TkConsolidation implements Take {
+
+    /**
+     * Address index.
+     */
+    private final UtxoIndex index;
+
+    /**
+     * Consolidator.
+     */
+    private final Consolidator consolidator;
+
+    /**
+     * Ctor.
+     *
+     * @param index Address index
+     * @param consolidator Consolidator
+     */
+    TkConsolidation(final UtxoIndex index, final Consolidator consolidator) {
+        this.index = index;
+        this.consolidator = consolidator;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        return new RsJson(
+            Json.createObjectBuilder()
+                .add("outputs", this.index.size())
+                .add("small", this.consolidator.small())
+                .add("runs", this.consolidator.runs())
+                .add("merged", this.consolidator.merged())
+                .add("last", this.consolidator.outcome())
+                .build()
+        );
+    }
+}
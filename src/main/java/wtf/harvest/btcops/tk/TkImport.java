@@ -0,0 +1,176 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.RejectedExecutionException;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.wallet.Wallet;
+import org.takes.HttpException;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqChunk;
+import org.takes.rq.RqHref;
+import org.takes.rq.RqLengthAware;
+import org.takes.rq.RqPrint;
+import org.takes.rs.RsJson;
+import org.takes.rs.RsWithStatus;
+import wtf.harvest.btcops.watch.Import;
+import wtf.harvest.btcops.watch.Imports;
+
+/**
+ * Import of watched addresses.
+ * <p>
+ * Accepts extended public key in {@code xpub} param with optional
+ * {@code gap} limit, or JSON array of addresses in the body (may be sent
+ * with chunked encoding). Optional {@code rescan} param is a block height
+ * to scan blocks again after. The import runs in background, its status
+ * is available by id.
+ * </p>
+ * <p>
+ * The body is only read here, addresses are parsed by the import job, so
+ * invalid ones fail the import. If the pool cancelled the request while
+ * the body was read, nothing is imported: the client got {@code 503} and
+ * will send it again.
+ * </p>
+ * @since 1.0
+ */
+final class TkImport implements Take {
+
+    /**
+     * Default gap limit.
+     */
+    private static final int GAP = 20;
+
+    /**
+     * Max gap limit.
+     */
+    private static final int MAX_GAP = 10_000;
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Imports.
+     */
+    private final Imports imports;
+
+    /**
+     * Ctor.
+     *
+     * @param wallet Wallet
+     * @param imports Imports
+     */
+    TkImport(final Wallet wallet, final Imports imports) {
+        this.wlt = wallet;
+        this.imports = imports;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final RqHref.Smart href = new RqHref.Smart(req);
+        final Import job;
+        try {
+            final String rescan = href.single("rescan", "");
+            OptionalInt height = OptionalInt.empty();
+            if (!rescan.isEmpty()) {
+                height = OptionalInt.of(Integer.parseInt(rescan));
+            }
+            final String xpub = href.single("xpub", "");
+            if (xpub.isEmpty()) {
+                final byte[] body = TkImport.body(req);
+                job = this.imports.addresses(
+                    () -> this.addresses(body), height
+                );
+            } else {
+                final int gap = Integer.parseInt(
+                    href.single("gap", String.valueOf(TkImport.GAP))
+                );
+                if (gap < 1 || gap > TkImport.MAX_GAP) {
+                    throw new IllegalArgumentException(
+                        String.format(
+                            "Gap must be from 1 to %d", TkImport.MAX_GAP
+                        )
+                    );
+                }
+                job = this.imports.xpub(xpub, gap, height);
+            }
+        } catch (final IllegalArgumentException err) {
+            throw new HttpException(HttpURLConnection.HTTP_BAD_REQUEST, err);
+        } catch (final RejectedExecutionException err) {
+            throw new HttpException(HttpURLConnection.HTTP_UNAVAILABLE, err);
+        }
+        return new RsWithStatus(
+            new RsJson(new JsImport(job)),
+            HttpURLConnection.HTTP_ACCEPTED
+        );
+    }
+
+    /**
+     * Addresses of the request body.
+     * @param body Request body
+     * @return Addresses
+     * @throws IllegalArgumentException If body or address is not valid
+     */
+    private List<Address> addresses(final byte[] body) {
+        final Iterator<String> strs = new JsonStrings(
+            new ByteArrayInputStream(body)
+        );
+        final List<Address> addrs = new ArrayList<>(0);
+        while (strs.hasNext()) {
+            addrs.add(Address.fromBase58(this.wlt.getParams(), strs.next()));
+        }
+        if (addrs.isEmpty()) {
+            throw new IllegalArgumentException("No addresses to import");
+        }
+        return addrs;
+    }
+
+    /**
+     * Read request body.
+     * @param req Request
+     * @return Body
+     * @throws IOException If fails to read the body or the request was
+     *  cancelled meanwhile
+     */
+    private static byte[] body(final Request req) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        new RqPrint(new RqChunk(new RqLengthAware(req))).printBody(body);
+        if (Thread.interrupted()) {
+            throw new InterruptedIOException("Import request was cancelled");
+        }
+        return body.toByteArray();
+    }
+}
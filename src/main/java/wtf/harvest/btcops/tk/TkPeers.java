@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rs.RsJson;
+import wtf.harvest.btcops.chain.PeerManager;
+import wtf.harvest.btcops.chain.PeerScore;
+
+/**
+ * Peer scores take.
+ *
+ * @since 1.0
+ */
+final class TkPeers implements Take {
+
+    /**
+     * Peer manager.
+     */
+    private final PeerManager manager;
+
+    /**
+     * Ctor.
+     * @param manager Peer manager
+     */
+    TkPeers(final PeerManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final JsonArrayBuilder array = Json.createArrayBuilder();
+        for (final PeerScore score : this.manager.scores()) {
+            array.add(
+                Json.createObjectBuilder()
+                    .add("address", score.address())
+                    .add("download", score.download())
+                    .add("height", score.height())
+                    .add("ping", score.ping())
+                    .add("rate", score.rate())
+                    .add("blocks", score.blocks())
+                    .add("acks", score.acks())
+                    .add("strikes", score.strikes())
+            );
+        }
+        return new RsJson(array.build());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rs.RsText;
+import org.takes.rs.RsWithHeader;
+import org.takes.rs.RsWithStatus;
+
+/**
+ * Take served by a bounded pool.
+ * <p>
+ * Replies with {@code 429} if the pool is full and with {@code 503}
+ * if the origin take didn't reply within the pool timeout.
+ * Only the origin take is bounded by the timeout: a streamed body is
+ * written by the HTTP worker after the take replied, with no deadline.
+ * </p>
+ * @since 1.0
+ */
+final class TkPool implements Take {
+
+    /**
+     * Too many requests status.
+     */
+    private static final int TOO_MANY = 429;
+
+    /**
+     * Pool.
+     */
+    private final Pool pool;
+
+    /**
+     * Origin take.
+     */
+    private final Take origin;
+
+    /**
+     * Ctor.
+     * @param pool Pool
+     * @param origin Origin take
+     */
+    TkPool(final Pool pool, final Take origin) {
+        this.pool = pool;
+        this.origin = origin;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        Response res;
+        try {
+            res = this.pool.act(this.origin, req);
+        } catch (final RejectedExecutionException err) {
+            res = TkPool.retry("Too many requests", TkPool.TOO_MANY);
+        } catch (final TimeoutException err) {
+            res = TkPool.retry(
+                "Request timed out", HttpURLConnection.HTTP_UNAVAILABLE
+            );
+        }
+        return res;
+    }
+
+    /**
+     * Response asking to retry later.
+     * @param text Reason
+     * @param status Status
+     * @return Response
+     */
+    private static Response retry(final String text, final int status) {
+        return new RsWithHeader(
+            new RsWithStatus(new RsText(text), status),
+            "Retry-After",
+            "1"
+        );
+    }
+}
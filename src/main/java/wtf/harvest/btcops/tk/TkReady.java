@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import javax.json.Json;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rs.RsJson;
+import org.takes.rs.RsWithStatus;
+import wtf.harvest.btcops.chain.Sync;
+
+/**
+ * Readiness take.
+ * <p>
+ * Replies with sync progress, status is {@code 503} until the chain
+ * is caught up.
+ * </p>
+ * @since 1.0
+ */
+final class TkReady implements Take {
+
+    /**
+     * Chain sync.
+     */
+    private final Sync sync;
+
+    /**
+     * Ctor.
+     * @param sync Chain sync
+     */
+    TkReady(final Sync sync) {
+        this.sync = sync;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final boolean ready = this.sync.synced();
+        int status = HttpURLConnection.HTTP_OK;
+        if (!ready) {
+            status = HttpURLConnection.HTTP_UNAVAILABLE;
+        }
+        return new RsWithStatus(
+            new RsJson(
+                Json.createObjectBuilder()
+                    .add("ready", ready)
+                    .add("height", this.sync.height())
+                    .add("blocks_left", this.sync.left())
+                    .add("rate", this.sync.rate())
+                    .add("peers", this.sync.connected())
+                    .build()
+            ),
+            status
+        );
+    }
+}
@@ -24,12 +24,18 @@
 package wtf.harvest.btcops.tk;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Iterator;
 import javax.json.Json;
-import org.bitcoinj.wallet.Wallet;
+import javax.json.JsonObject;
+import org.bitcoinj.core.Address;
+import org.takes.HttpException;
 import org.takes.Request;
 import org.takes.Response;
 import org.takes.Take;
+import org.takes.rq.RqHref;
 import org.takes.rs.RsJson;
+import wtf.harvest.btcops.wallet.AddressPool;
 
 /**
  * Receive take.
@@ -39,25 +45,74 @@ import org.takes.rs.RsJson;
 final class TkReceive implements Take {
 
     /**
-     * Wallet.
+     * Max number of addresses per request, derived while the response is
+     * streamed, about five seconds of key derivation.
      */
-    private final Wallet wlt;
+    private static final int MAX_COUNT = 10_000;
+
+    /**
+     * Receive addresses.
+     */
+    private final AddressPool pool;
 
     /**
      * Ctor.
      *
-     * @param wallet Bitcoin wallet
+     * @param pool Receive addresses
      */
-    TkReceive(final Wallet wallet) {
-        this.wlt = wallet;
+    TkReceive(final AddressPool pool) {
+        this.pool = pool;
     }
 
     @Override
     public Response act(final Request req) throws IOException {
-        return new RsJson(
-            Json.createObjectBuilder()
-                .add("address", this.wlt.freshReceiveAddress().toBase58())
-                .build()
-        );
+        final String param = new RqHref.Smart(req).single("count", "");
+        final Response res;
+        if (param.isEmpty()) {
+            res = new RsJson(TkReceive.json(this.pool.next()));
+        } else {
+            final int count;
+            try {
+                count = Integer.parseInt(param);
+            } catch (final NumberFormatException err) {
+                throw new HttpException(
+                    HttpURLConnection.HTTP_BAD_REQUEST, err
+                );
+            }
+            if (count < 1 || count > TkReceive.MAX_COUNT) {
+                throw new HttpException(
+                    HttpURLConnection.HTTP_BAD_REQUEST,
+                    String.format(
+                        "Count must be from 1 to %d", TkReceive.MAX_COUNT
+                    )
+                );
+            }
+            final Iterator<Address> addrs = this.pool.next(count);
+            res = new RsJsonStream(
+                new Iterator<JsonObject>() {
+                    @Override
+                    public boolean hasNext() {
+                        return addrs.hasNext();
+                    }
+
+                    @Override
+                    public JsonObject next() {
+                        return TkReceive.json(addrs.next());
+                    }
+                }
+            );
+        }
+        return res;
+    }
+
+    /**
+     * JSON of the address.
+     * @param addr Address
+     * @return JSON
+     */
+    private static JsonObject json(final Address addr) {
+        return Json.createObjectBuilder()
+            .add("address", addr.toBase58())
+            .build();
     }
 }
@@ -25,18 +25,30 @@ package wtf.harvest.btcops.tk;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 import javax.json.Json;
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.InsufficientMoneyException;
-import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.wallet.CoinSelector;
 import org.bitcoinj.wallet.Wallet;
 import org.takes.HttpException;
 import org.takes.Request;
 import org.takes.Response;
 import org.takes.Take;
+import org.takes.rq.RqHeaders;
 import org.takes.rq.RqHref;
 import org.takes.rs.RsJson;
+import org.takes.rs.RsWithStatus;
+import wtf.harvest.btcops.coins.Selectors;
+import wtf.harvest.btcops.fees.FeeBuckets;
+import wtf.harvest.btcops.fees.FeeEstimator;
+import wtf.harvest.btcops.send.Job;
+import wtf.harvest.btcops.send.Jobs;
+import wtf.harvest.btcops.send.Sent;
 
 /**
  * Send take.
@@ -45,41 +57,177 @@ import org.takes.rs.RsJson;
  */
 final class TkSend implements Take {
 
+    /**
+     * Idempotency key header.
+     */
+    private static final String IDEMPOTENCY = "Idempotency-Key";
+
+    /**
+     * Valid idempotency key.
+     */
+    private static final Pattern KEY = Pattern.compile(
+        "[\\x21-\\x7e]{1,128}"
+    );
+
     /**
      * Wallet.
      */
     private final Wallet wlt;
 
+    /**
+     * Send pipeline.
+     */
+    private final Jobs jobs;
+
+    /**
+     * Fee estimator.
+     */
+    private final FeeEstimator fees;
+
+    /**
+     * Coin selection strategies.
+     */
+    private final Selectors selectors;
+
+    /**
+     * Route timeout in milliseconds, signing is awaited for nine tenths
+     * of it, so there is time left to reply with the job.
+     */
+    private final long timeout;
+
     /**
      * Ctor.
      *
      * @param wallet Bitcoin wallet
+     * @param jobs Send pipeline
+     * @param fees Fee estimator
+     * @param timeout Route timeout in milliseconds
+     * @checkstyle ParameterNumberCheck (3 lines)
      */
-    TkSend(final Wallet wallet) {
+    TkSend(final Wallet wallet, final Jobs jobs, final FeeEstimator fees,
+        final long timeout) {
+        this(wallet, jobs, fees, new Selectors(), timeout);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param wallet Bitcoin wallet
+     * @param jobs Send pipeline
+     * @param fees Fee estimator
+     * @param selectors Coin selection strategies
+     * @param timeout Route timeout in milliseconds
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    TkSend(final Wallet wallet, final Jobs jobs, final FeeEstimator fees,
+        final Selectors selectors, final long timeout) {
         this.wlt = wallet;
+        this.jobs = jobs;
+        this.fees = fees;
+        this.selectors = selectors;
+        this.timeout = timeout;
     }
 
     @Override
     public Response act(final Request req) throws IOException {
         final RqHref.Smart href = new RqHref.Smart(req);
+        final CoinSelector selector;
         try {
-            return new RsJson(
-                Json.createObjectBuilder()
-                    .add(
-                        "tx",
-                        this.wlt.sendCoins(
-                            SendRequest.to(
-                                Address.fromBase58(
-                                    this.wlt.getParams(),
-                                    href.single("to")
-                                ),
-                                Coin.parseCoin(href.single("amount"))
-                            )
-                        ).tx.getHash().toString()
-                    ).build()
+            selector = this.selectors.get(
+                href.single("selector", Selectors.DEFAULT)
             );
-        } catch (final InsufficientMoneyException err) {
+        } catch (final IllegalArgumentException err) {
             throw new HttpException(HttpURLConnection.HTTP_BAD_REQUEST, err);
         }
+        final String key = new RqHeaders.Smart(req)
+            .single(TkSend.IDEMPOTENCY, "");
+        if (!key.isEmpty() && !TkSend.KEY.matcher(key).matches()) {
+            throw new HttpException(
+                HttpURLConnection.HTTP_BAD_REQUEST,
+                String.format("Invalid %s header", TkSend.IDEMPOTENCY)
+            );
+        }
+        final Address dest = Address.fromBase58(
+            this.wlt.getParams(),
+            href.single("to")
+        );
+        final Coin amount = Coin.parseCoin(href.single("amount"));
+        final Coin fee = this.fee(href);
+        final Job job;
+        try {
+            if (key.isEmpty()) {
+                job = this.jobs.submit(dest, amount, selector, fee);
+            } else {
+                job = this.jobs.submit(key, dest, amount, selector, fee);
+            }
+        } catch (final RejectedExecutionException err) {
+            throw new HttpException(HttpURLConnection.HTTP_UNAVAILABLE, err);
+        } catch (final IllegalStateException err) {
+            throw new HttpException(HttpURLConnection.HTTP_CONFLICT, err);
+        }
+        Response res;
+        if (Boolean.parseBoolean(href.single("async", "false"))) {
+            res = new RsWithStatus(
+                new RsJson(new JsJob(job)),
+                HttpURLConnection.HTTP_ACCEPTED
+            );
+        } else {
+            try {
+                final Sent sent = job.result(
+                    this.timeout - this.timeout / 10L
+                );
+                res = new RsJson(
+                    Json.createObjectBuilder()
+                        .add("job", job.id())
+                        .add("tx", sent.tx().toString())
+                        .add("output", sent.output())
+                        .build()
+                );
+            } catch (final InsufficientMoneyException err) {
+                throw new HttpException(
+                    HttpURLConnection.HTTP_BAD_REQUEST, err
+                );
+            } catch (final TimeoutException err) {
+                res = new RsWithStatus(
+                    new RsJson(new JsJob(job)),
+                    HttpURLConnection.HTTP_ACCEPTED
+                );
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Fee rate for confirmation target of the request.
+     * @param href Request href
+     * @return Fee rate per kB, default one if target is not specified
+     * @throws IOException If target is invalid
+     */
+    private Coin fee(final RqHref.Smart href) throws IOException {
+        final String param = href.single("target", "");
+        final Coin fee;
+        if (param.isEmpty()) {
+            fee = Transaction.DEFAULT_TX_FEE;
+        } else {
+            final int target;
+            try {
+                target = Integer.parseInt(param);
+            } catch (final NumberFormatException err) {
+                throw new HttpException(
+                    HttpURLConnection.HTTP_BAD_REQUEST, err
+                );
+            }
+            if (target < 1 || target > FeeBuckets.MAX_TARGET) {
+                throw new HttpException(
+                    HttpURLConnection.HTTP_BAD_REQUEST,
+                    String.format(
+                        "Target must be from 1 to %d blocks",
+                        FeeBuckets.MAX_TARGET
+                    )
+                );
+            }
+            fee = this.fees.rate(target);
+        }
+        return fee;
     }
 }
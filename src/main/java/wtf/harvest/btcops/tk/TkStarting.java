@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.util.regex.Pattern;
+import javax.json.Json;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.takes.Response;
+import org.takes.facets.fork.FkFixed;
+import org.takes.facets.fork.FkParams;
+import org.takes.facets.fork.FkRegex;
+import org.takes.facets.fork.TkFork;
+import org.takes.rq.RqHref;
+import org.takes.rs.RsJson;
+import org.takes.rs.RsText;
+import org.takes.rs.RsWithHeader;
+import org.takes.rs.RsWithStatus;
+import org.takes.tk.TkWrap;
+import wtf.harvest.btcops.wallet.UtxoView;
+
+/**
+ * Routing while the wallet is loading.
+ * <p>
+ * Balances are served from the outputs snapshot, with the snapshot block
+ * height in {@code X-Btcops-Snapshot-Height} header, everything else
+ * but liveness is unavailable until the wallet is ready.
+ * </p>
+ * @since 1.0
+ */
+public final class TkStarting extends TkWrap {
+
+    /**
+     * Snapshot height header.
+     */
+    private static final String HEIGHT = "X-Btcops-Snapshot-Height";
+
+    /**
+     * Ctor, without outputs snapshot.
+     */
+    public TkStarting() {
+        super(
+            new TkFork(
+                new FkRegex("/live", new TkLive()),
+                new FkFixed(req -> TkStarting.loading())
+            )
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param net Network
+     * @param view Outputs snapshot
+     */
+    public TkStarting(final NetworkParameters net, final UtxoView view) {
+        super(
+            new TkFork(
+                new FkRegex("/live", new TkLive()),
+                new FkRegex(
+                    "/balance",
+                    new TkFork(
+                        new FkParams(
+                            "address",
+                            Pattern.compile(".+"),
+                            req -> {
+                                Response rsp;
+                                try {
+                                    rsp = TkStarting.balance(
+                                        view.balance(
+                                            Address.fromBase58(
+                                                net,
+                                                new RqHref.Smart(req)
+                                                    .single("address")
+                                            )
+                                        ),
+                                        view
+                                    );
+                                } catch (final AddressFormatException err) {
+                                    rsp = new RsWithStatus(
+                                        new RsText(err.getMessage()),
+                                        HttpURLConnection.HTTP_BAD_REQUEST
+                                    );
+                                }
+                                return rsp;
+                            }
+                        ),
+                        new FkFixed(
+                            req -> TkStarting.balance(view.total(), view)
+                        )
+                    )
+                ),
+                new FkFixed(req -> TkStarting.loading())
+            )
+        );
+    }
+
+    /**
+     * Balance response.
+     * @param balance Balance
+     * @param view Outputs snapshot
+     * @return Response
+     * @throws IOException If fails to build JSON
+     */
+    private static Response balance(final Coin balance,
+        final UtxoView view) throws IOException {
+        return new RsWithHeader(
+            new RsJson(
+                Json.createObjectBuilder()
+                    .add(
+                        "balance",
+                        new BigDecimal(balance.toPlainString()).toString()
+                    ).build()
+            ),
+            TkStarting.HEIGHT,
+            Integer.toString(view.height())
+        );
+    }
+
+    /**
+     * Wallet is not loaded yet response.
+     * @return Response
+     */
+    private static Response loading() {
+        return new RsWithHeader(
+            new RsWithStatus(
+                new RsText("Wallet is loading"),
+                HttpURLConnection.HTTP_UNAVAILABLE
+            ),
+            "Retry-After",
+            "5"
+        );
+    }
+}
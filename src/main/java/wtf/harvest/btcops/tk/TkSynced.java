@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rs.RsText;
+import org.takes.rs.RsWithHeader;
+import org.takes.rs.RsWithStatus;
+import wtf.harvest.btcops.chain.Sync;
+
+/**
+ * Take requiring synced chain.
+ * <p>
+ * Replies with {@code 503} and {@code Retry-After} header while
+ * the chain is downloading, for requests which can't be served
+ * with stale wallet data.
+ * </p>
+ * @since 1.0
+ */
+final class TkSynced implements Take {
+
+    /**
+     * Chain sync.
+     */
+    private final Sync sync;
+
+    /**
+     * Origin take.
+     */
+    private final Take origin;
+
+    /**
+     * Ctor.
+     * @param sync Chain sync
+     * @param origin Origin take
+     */
+    TkSynced(final Sync sync, final Take origin) {
+        this.sync = sync;
+        this.origin = origin;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final Response res;
+        if (this.sync.synced()) {
+            res = this.origin.act(req);
+        } else {
+            res = new RsWithHeader(
+                new RsWithStatus(
+                    new RsText(
+                        String.format(
+                            "Block chain is syncing, %d blocks left",
+                            this.sync.left()
+                        )
+                    ),
+                    HttpURLConnection.HTTP_UNAVAILABLE
+                ),
+                "Retry-After",
+                "30"
+            );
+        }
+        return res;
+    }
+}
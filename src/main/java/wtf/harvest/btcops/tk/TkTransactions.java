@@ -0,0 +1,320 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.wallet.Wallet;
+import org.takes.HttpException;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqHref;
+import wtf.harvest.btcops.wallet.TxHistory;
+
+/**
+ * Transaction history take.
+ * <p>
+ * Transactions are written to the response body while it's sent, one
+ * at a time, so a page takes the same memory whatever its size.
+ * </p>
+ * @since 1.0
+ */
+final class TkTransactions implements Take {
+
+    /**
+     * Default page size.
+     */
+    private static final int PAGE = 100;
+
+    /**
+     * Max page size.
+     */
+    private static final int MAX_PAGE = 1000;
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Transaction history.
+     */
+    private final TxHistory history;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param history Transaction history
+     */
+    TkTransactions(final Wallet wallet, final TxHistory history) {
+        this.wlt = wallet;
+        this.history = history;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final RqHref.Smart href = new RqHref.Smart(req);
+        final Iterator<Map.Entry<String, Transaction>> txns;
+        final int limit;
+        final Predicate<Transaction> filter;
+        try {
+            final String addr = href.single("address", "");
+            Optional<Address> address = Optional.empty();
+            if (!addr.isEmpty()) {
+                address = Optional.of(
+                    Address.fromBase58(this.wlt.getParams(), addr)
+                );
+            }
+            final String cursor = href.single("cursor", "");
+            Optional<String> after = Optional.empty();
+            if (!cursor.isEmpty()) {
+                after = Optional.of(cursor);
+            }
+            limit = Integer.parseInt(
+                href.single("limit", Integer.toString(TkTransactions.PAGE))
+            );
+            if (limit < 1 || limit > TkTransactions.MAX_PAGE) {
+                throw new IllegalArgumentException(
+                    String.format(
+                        "Limit must be from 1 to %d", TkTransactions.MAX_PAGE
+                    )
+                );
+            }
+            filter = TkTransactions.filter(href.single("state", ""));
+            txns = this.history.find(
+                address,
+                TkTransactions.millis(href.single("from", "0")),
+                TkTransactions.millis(
+                    href.single(
+                        "to",
+                        Long.toString(
+                            TimeUnit.MILLISECONDS.toSeconds(Long.MAX_VALUE)
+                        )
+                    )
+                ),
+                after
+            );
+        } catch (final IllegalArgumentException err) {
+            throw new HttpException(HttpURLConnection.HTTP_BAD_REQUEST, err);
+        }
+        final TkTransactions.Page page = new TkTransactions.Page(
+            this.wlt, txns, filter, limit
+        );
+        return new RsJsonStream("{\"transactions\":", page, page::suffix);
+    }
+
+    /**
+     * Filter of confirmation state.
+     * @param state State name, empty for all
+     * @return Filter
+     * @throws IllegalArgumentException If state is unknown
+     */
+    private static Predicate<Transaction> filter(final String state) {
+        final Predicate<Transaction> res;
+        if (state.isEmpty()) {
+            res = txn -> true;
+        } else if ("confirmed".equals(state)
+            || "pending".equals(state) || "dead".equals(state)) {
+            res = txn -> state.equals(TkTransactions.state(txn));
+        } else {
+            throw new IllegalArgumentException(
+                String.format("Unknown state: %s", state)
+            );
+        }
+        return res;
+    }
+
+    /**
+     * Confirmation state of transaction.
+     * @param txn Transaction
+     * @return State name
+     */
+    private static String state(final Transaction txn) {
+        final TransactionConfidence.ConfidenceType type =
+            txn.getConfidence().getConfidenceType();
+        final String res;
+        if (type == TransactionConfidence.ConfidenceType.BUILDING) {
+            res = "confirmed";
+        } else if (type == TransactionConfidence.ConfidenceType.DEAD
+            || type == TransactionConfidence.ConfidenceType.IN_CONFLICT) {
+            res = "dead";
+        } else {
+            res = "pending";
+        }
+        return res;
+    }
+
+    /**
+     * Epoch seconds to milliseconds.
+     * @param seconds Epoch seconds
+     * @return Epoch milliseconds
+     */
+    private static long millis(final String seconds) {
+        return TimeUnit.SECONDS.toMillis(Long.parseLong(seconds));
+    }
+
+    /**
+     * Page of transactions as JSON objects.
+     * @since 1.0
+     */
+    private static final class Page implements Iterator<JsonObject> {
+
+        /**
+         * Wallet.
+         */
+        private final Wallet wlt;
+
+        /**
+         * Transactions by cursors.
+         */
+        private final Iterator<Map.Entry<String, Transaction>> txns;
+
+        /**
+         * Filter of transactions.
+         */
+        private final Predicate<Transaction> filter;
+
+        /**
+         * Page size.
+         */
+        private final int limit;
+
+        /**
+         * Next matching transaction, null if it's not found yet.
+         */
+        private Map.Entry<String, Transaction> ahead;
+
+        /**
+         * Transactions taken.
+         */
+        private int count;
+
+        /**
+         * Cursor of the last taken transaction.
+         */
+        private String last;
+
+        /**
+         * Ctor.
+         * @param wallet Wallet
+         * @param txns Transactions by cursors
+         * @param filter Filter of transactions
+         * @param limit Page size
+         * @checkstyle ParameterNumberCheck (3 lines)
+         */
+        Page(final Wallet wallet,
+            final Iterator<Map.Entry<String, Transaction>> txns,
+            final Predicate<Transaction> filter, final int limit) {
+            this.wlt = wallet;
+            this.txns = txns;
+            this.filter = filter;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.count < this.limit && this.more();
+        }
+
+        @Override
+        public JsonObject next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Page is over");
+            }
+            final Map.Entry<String, Transaction> ent = this.ahead;
+            this.ahead = null;
+            this.last = ent.getKey();
+            ++this.count;
+            return this.json(ent.getValue());
+        }
+
+        /**
+         * End of the page after its transactions.
+         * @return JSON text with cursor of the next page, if there is one
+         */
+        public String suffix() {
+            final String res;
+            if (this.more()) {
+                res = String.format(",\"next\":\"%s\"}", this.last);
+            } else {
+                res = "}";
+            }
+            return res;
+        }
+
+        /**
+         * Find next transaction passing the filter.
+         * @return False if there are no more
+         */
+        private boolean more() {
+            while (this.ahead == null && this.txns.hasNext()) {
+                final Map.Entry<String, Transaction> ent = this.txns.next();
+                if (this.filter.test(ent.getValue())) {
+                    this.ahead = ent;
+                }
+            }
+            return this.ahead != null;
+        }
+
+        /**
+         * JSON of transaction.
+         * @param txn Transaction
+         * @return JSON object
+         */
+        private JsonObject json(final Transaction txn) {
+            return Json.createObjectBuilder()
+                .add("tx", txn.getHashAsString())
+                .add(
+                    "time",
+                    TimeUnit.MILLISECONDS.toSeconds(
+                        txn.getUpdateTime().getTime()
+                    )
+                )
+                .add("state", TkTransactions.state(txn))
+                .add(
+                    "confirmations",
+                    txn.getConfidence().getDepthInBlocks()
+                )
+                .add(
+                    "value",
+                    new BigDecimal(txn.getValue(this.wlt).toPlainString())
+                        .toString()
+                )
+                .build();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import org.takes.HttpException;
+import org.takes.Response;
+import org.takes.facets.fork.RqRegex;
+import org.takes.facets.fork.TkRegex;
+import org.takes.rs.RsJson;
+import wtf.harvest.btcops.send.Jobs;
+
+/**
+ * Send job status take.
+ *
+ * @since 1.0
+ */
+final class TkTx implements TkRegex {
+
+    /**
+     * Send pipeline.
+     */
+    private final Jobs jobs;
+
+    /**
+     * Ctor.
+     *
+     * @param jobs Send pipeline
+     */
+    TkTx(final Jobs jobs) {
+        this.jobs = jobs;
+    }
+
+    @Override
+    public Response act(final RqRegex req) throws IOException {
+        final String id = req.matcher().group("id");
+        return new RsJson(
+            new JsJob(
+                this.jobs.job(id).orElseThrow(
+                    () -> new HttpException(
+                        HttpURLConnection.HTTP_NOT_FOUND,
+                        String.format("Job %s is not found", id)
+                    )
+                )
+            )
+        );
+    }
+}
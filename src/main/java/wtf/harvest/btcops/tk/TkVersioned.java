@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqHeaders;
+import org.takes.rs.RsEmpty;
+import org.takes.rs.RsWithHeader;
+import org.takes.rs.RsWithStatus;
+import wtf.harvest.btcops.wallet.WalletVersion;
+
+/**
+ * Take versioned by wallet changes.
+ * <p>
+ * Adds wallet version as {@code ETag} to the response and replies
+ * with {@code 304} without calling origin take if the request has
+ * matching {@code If-None-Match} header.
+ * </p>
+ * @since 1.0
+ */
+final class TkVersioned implements Take {
+
+    /**
+     * Wallet version.
+     */
+    private final WalletVersion version;
+
+    /**
+     * Origin take.
+     */
+    private final Take origin;
+
+    /**
+     * Ctor.
+     * @param version Wallet version
+     * @param origin Origin take
+     */
+    TkVersioned(final WalletVersion version, final Take origin) {
+        this.version = version;
+        this.origin = origin;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final String etag = String.format("\"%d\"", this.version.current());
+        final Response res;
+        if (TkVersioned.matches(req, etag)) {
+            res = new RsWithStatus(
+                new RsEmpty(), HttpURLConnection.HTTP_NOT_MODIFIED
+            );
+        } else {
+            res = this.origin.act(req);
+        }
+        return new RsWithHeader(res, "ETag", etag);
+    }
+
+    /**
+     * Request has matching {@code If-None-Match} header.
+     * @param req Request
+     * @param etag Current entity tag
+     * @return True if matches
+     * @throws IOException If fails
+     */
+    private static boolean matches(final Request req, final String etag)
+        throws IOException {
+        boolean match = false;
+        for (final String header
+            : new RqHeaders.Smart(req).header("If-None-Match")) {
+            for (final String tag : header.split(",")) {
+                final String trimmed = tag.trim();
+                match |= "*".equals(trimmed) || etag.equals(trimmed)
+                    || etag.equals(trimmed.replaceFirst("^W/", ""));
+            }
+        }
+        return match;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import com.jcabi.log.Logger;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.wallet.KeyChain;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Pool of receive addresses derived ahead of time.
+ * <p>
+ * Addresses are derived in batches by one {@link Wallet#freshKeys} call,
+ * so the wallet lock is taken and peers' Bloom filters are updated once
+ * per batch instead of once per address. Taking an address from the pool
+ * is lock-free, the pool is refilled in background when it runs low.
+ * Pooled addresses which were not taken before restart stay issued
+ * in the wallet and are never handed out.
+ * </p>
+ * @since 1.0
+ */
+public final class AddressPool {
+
+    /**
+     * Max number of addresses derived at once for many addresses.
+     */
+    private static final int CHUNK = 1000;
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Number of addresses derived per refill.
+     */
+    private final int batch;
+
+    /**
+     * Pooled addresses.
+     */
+    private final Queue<Address> addresses;
+
+    /**
+     * Whether refill is scheduled.
+     */
+    private final AtomicBoolean refilling;
+
+    /**
+     * Refill thread.
+     */
+    private final ExecutorService refill;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param batch Number of addresses derived per refill
+     */
+    public AddressPool(final Wallet wallet, final int batch) {
+        this.wlt = wallet;
+        this.batch = batch;
+        this.addresses = new ConcurrentLinkedQueue<>();
+        this.refilling = new AtomicBoolean();
+        this.refill = Executors.newSingleThreadExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-addresses");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    /**
+     * Fill the pool.
+     * @return This pool
+     */
+    public AddressPool start() {
+        this.fill();
+        return this;
+    }
+
+    /**
+     * Take fresh receive address.
+     * <p>
+     * If the pool is drained by a spike faster than it's refilled,
+     * the address is derived by the wallet directly.
+     * </p>
+     * @return Address
+     */
+    public Address next() {
+        Address addr = this.addresses.poll();
+        if (addr == null) {
+            addr = this.wlt.freshReceiveAddress();
+        }
+        this.replenish();
+        return addr;
+    }
+
+    /**
+     * Take many fresh receive addresses.
+     * <p>
+     * Addresses are taken while the result is iterated: pooled addresses
+     * first, the rest is derived by {@link Wallet#freshKeys} calls of up
+     * to a thousand keys, so the wallet lock is held and peers get a Bloom
+     * filter update once per chunk, and addresses which are never iterated
+     * are not issued.
+     * </p>
+     * @param count Number of addresses
+     * @return Addresses
+     */
+    public Iterator<Address> next(final int count) {
+        return new AddressPool.Issue(count);
+    }
+
+    /**
+     * Number of pooled addresses.
+     * @return Count
+     */
+    public int size() {
+        return this.addresses.size();
+    }
+
+    /**
+     * Schedule refill if the pool runs low.
+     */
+    private void replenish() {
+        if (this.addresses.size() < this.batch / 2
+            && this.refilling.compareAndSet(false, true)) {
+            this.refill.execute(
+                () -> {
+                    try {
+                        this.fill();
+                    } finally {
+                        this.refilling.set(false);
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * Derive one batch of addresses.
+     */
+    private void fill() {
+        for (final DeterministicKey key : this.wlt.freshKeys(
+            KeyChain.KeyPurpose.RECEIVE_FUNDS, this.batch
+        )) {
+            this.addresses.add(key.toAddress(this.wlt.getParams()));
+        }
+        Logger.debug(this, "Derived %d receive addresses", this.batch);
+    }
+
+    /**
+     * Addresses being issued.
+     */
+    private final class Issue implements Iterator<Address> {
+
+        /**
+         * Derived addresses not taken yet.
+         */
+        private final Queue<Address> chunk;
+
+        /**
+         * Number of addresses left.
+         */
+        private int left;
+
+        /**
+         * Ctor.
+         * @param count Number of addresses
+         */
+        Issue(final int count) {
+            this.chunk = new ArrayDeque<>(0);
+            this.left = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.left > 0;
+        }
+
+        @Override
+        public Address next() {
+            if (this.left <= 0) {
+                throw new NoSuchElementException("No more addresses");
+            }
+            Address addr = this.chunk.poll();
+            if (addr == null) {
+                addr = AddressPool.this.addresses.poll();
+            }
+            if (addr == null) {
+                for (final DeterministicKey key : AddressPool.this.wlt
+                    .freshKeys(
+                        KeyChain.KeyPurpose.RECEIVE_FUNDS,
+                        Math.min(this.left, AddressPool.CHUNK)
+                    )) {
+                    this.chunk.add(
+                        key.toAddress(AddressPool.this.wlt.getParams())
+                    );
+                }
+                addr = this.chunk.poll();
+            }
+            --this.left;
+            if (this.left == 0) {
+                AddressPool.this.replenish();
+            }
+            return addr;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Balances cached per wallet version.
+ * <p>
+ * Balances are computed once per {@link WalletVersion} and served from
+ * memory until the next wallet change.
+ * </p>
+ * @since 1.0
+ */
+public final class BalanceCache {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Address index.
+     */
+    private final UtxoIndex index;
+
+    /**
+     * Wallet version.
+     */
+    private final WalletVersion version;
+
+    /**
+     * Balances of current version.
+     */
+    private final AtomicReference<BalanceCache.Snapshot> snap;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param index Address index
+     * @param version Wallet version
+     */
+    public BalanceCache(final Wallet wallet, final UtxoIndex index,
+        final WalletVersion version) {
+        this.wlt = wallet;
+        this.index = index;
+        this.version = version;
+        this.snap = new AtomicReference<>(new BalanceCache.Snapshot(-1L));
+    }
+
+    /**
+     * Total available balance of the wallet.
+     * @return Balance
+     */
+    public Coin total() {
+        final BalanceCache.Snapshot cur = this.snapshot();
+        Coin res = cur.total.get();
+        if (res == null) {
+            res = this.wlt.getBalance();
+            cur.total.compareAndSet(null, res);
+        }
+        return res;
+    }
+
+    /**
+     * Balance of the address.
+     * @param address Address
+     * @return Balance
+     */
+    public Coin balance(final Address address) {
+        return this.snapshot().addresses.computeIfAbsent(
+            address, this.index::balance
+        );
+    }
+
+    /**
+     * Balances of current wallet version.
+     * @return Snapshot
+     */
+    private BalanceCache.Snapshot snapshot() {
+        final long ver = this.version.current();
+        BalanceCache.Snapshot cur = this.snap.get();
+        if (cur.version != ver) {
+            final BalanceCache.Snapshot next = new BalanceCache.Snapshot(ver);
+            if (this.snap.compareAndSet(cur, next)) {
+                cur = next;
+            } else {
+                cur = this.snap.get();
+            }
+        }
+        return cur;
+    }
+
+    /**
+     * Balances of one wallet version.
+     */
+    private static final class Snapshot {
+
+        /**
+         * Wallet version.
+         */
+        private final long version;
+
+        /**
+         * Total balance.
+         */
+        private final AtomicReference<Coin> total;
+
+        /**
+         * Balances by address.
+         */
+        private final Map<Address, Coin> addresses;
+
+        /**
+         * Ctor.
+         * @param version Wallet version
+         */
+        Snapshot(final long version) {
+            this.version = version;
+            this.total = new AtomicReference<>();
+            this.addresses = new ConcurrentHashMap<>(0);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import com.google.common.primitives.Longs;
+import com.google.protobuf.ByteString;
+import com.jcabi.log.Logger;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.listeners.TransactionConfidenceEventListener;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.DeterministicKeyChain;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.bitcoinj.wallet.listeners.ScriptsChangeEventListener;
+import org.bitcoinj.wallet.listeners.WalletCoinsReceivedEventListener;
+import org.bitcoinj.wallet.listeners.WalletCoinsSentEventListener;
+import org.bitcoinj.wallet.listeners.WalletReorganizeEventListener;
+
+/**
+ * Write-ahead journal of wallet changes.
+ * <p>
+ * Wallet events only mark changed transactions. The journal thread
+ * appends protobufs of changed transactions, issued key counts and the
+ * last seen block, then syncs the file once for all of them, so the disk
+ * cost depends on the change rate instead of the wallet size. When the
+ * journal grows over the limit, after reorganization, or after watched
+ * scripts change, the wallet is saved as a new snapshot and the journal
+ * starts over. A failed write also makes the next run save a snapshot,
+ * and changes it didn't write are marked again, so nothing is lost.
+ * Records are built under the wallet lock, since wallet threads change
+ * transactions meanwhile. Every journal starts with the epoch of its
+ * snapshot, so
+ * a journal left from a crash during compaction is not replayed over the
+ * newer snapshot. See
+ * {@link Snapshot} for replay. Outputs snapshot for fast startup is
+ * written with every wallet snapshot and refreshed every few minutes,
+ * see {@link UtxoFile}.
+ * </p>
+ * @since 1.0
+ */
+public final class Journal implements WalletCoinsReceivedEventListener,
+    WalletCoinsSentEventListener, TransactionConfidenceEventListener,
+    WalletReorganizeEventListener, ScriptsChangeEventListener {
+
+    /**
+     * Wallet tag with snapshot epoch.
+     */
+    static final String EPOCH_TAG = "btcops.journal.epoch";
+
+    /**
+     * Epoch record.
+     */
+    static final byte EPOCH = 0;
+
+    /**
+     * Transaction record.
+     */
+    static final byte TX = 1;
+
+    /**
+     * Issued keys record.
+     */
+    static final byte KEYS = 2;
+
+    /**
+     * Last seen block record.
+     */
+    static final byte BLOCK = 3;
+
+    /**
+     * Group commit interval in milliseconds.
+     */
+    private static final long INTERVAL = 200L;
+
+    /**
+     * Journal size to compact at.
+     */
+    private static final long LIMIT = 16L << 20;
+
+    /**
+     * Outputs snapshot refresh interval in milliseconds.
+     */
+    private static final long REFRESH = TimeUnit.MINUTES.toMillis(10L);
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Wallet lock.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Snapshot file.
+     */
+    private final File snapshot;
+
+    /**
+     * Journal file.
+     */
+    private final File file;
+
+    /**
+     * Outputs snapshot.
+     */
+    private final UtxoFile utxos;
+
+    /**
+     * Time outputs snapshot was saved at.
+     */
+    private final AtomicLong saved;
+
+    /**
+     * Changed transactions.
+     */
+    private final Set<Sha256Hash> dirty;
+
+    /**
+     * Last journaled confidence of transactions.
+     */
+    private final Map<Sha256Hash, String> states;
+
+    /**
+     * Whether wallet was reorganized or its watched scripts changed, so
+     * it needs a new snapshot.
+     */
+    private final AtomicBoolean outdated;
+
+    /**
+     * Journal thread.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Last journaled issued external and internal keys and block height.
+     */
+    private final int[] last;
+
+    /**
+     * Journal channel, used by journal thread only.
+     */
+    private FileChannel channel;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param snapshot Snapshot file
+     * @param file Journal file
+     */
+    public Journal(final Wallet wallet, final File snapshot, final File file) {
+        this(
+            wallet, snapshot, file,
+            new UtxoFile(
+                new File(String.format("%s.utxo", snapshot.getPath()))
+            )
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param snapshot Snapshot file
+     * @param file Journal file
+     * @param utxos Outputs snapshot
+     */
+    public Journal(final Wallet wallet, final File snapshot, final File file,
+        final UtxoFile utxos) {
+        this.wlt = wallet;
+        this.lock = new WalletLock(wallet).value();
+        this.snapshot = snapshot;
+        this.file = file;
+        this.utxos = utxos;
+        this.saved = new AtomicLong();
+        this.dirty = ConcurrentHashMap.newKeySet();
+        this.states = new ConcurrentHashMap<>(0);
+        this.outdated = new AtomicBoolean();
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+            run -> {
+                final Thread thread = new Thread(run, "btcops-journal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.last = new int[3];
+    }
+
+    /**
+     * Save the snapshot, start the journal and subscribe to wallet events.
+     * @return This journal
+     * @throws IOException If fails to write
+     */
+    public Journal attach() throws IOException {
+        synchronized (this.last) {
+            this.compact();
+        }
+        this.wlt.addCoinsReceivedEventListener(this);
+        this.wlt.addCoinsSentEventListener(this);
+        this.wlt.addTransactionConfidenceEventListener(this);
+        this.wlt.addReorganizeEventListener(this);
+        this.wlt.addScriptsChangeEventListener(this);
+        this.timer.scheduleWithFixedDelay(
+            this::commit, Journal.INTERVAL, Journal.INTERVAL,
+            TimeUnit.MILLISECONDS
+        );
+        return this;
+    }
+
+    /**
+     * Write all pending changes now.
+     * @throws IOException If fails to write
+     */
+    public void flush() throws IOException {
+        synchronized (this.last) {
+            this.append();
+        }
+    }
+
+    @Override
+    public void onCoinsReceived(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        this.mark(txn);
+    }
+
+    @Override
+    public void onCoinsSent(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        this.mark(txn);
+    }
+
+    @Override
+    public void onTransactionConfidenceChanged(final Wallet wallet,
+        final Transaction txn) {
+        final TransactionConfidence conf = txn.getConfidence();
+        String state = conf.getConfidenceType().name();
+        if (conf.getConfidenceType()
+            == TransactionConfidence.ConfidenceType.BUILDING) {
+            state = String.format(
+                "%s %d", state, conf.getAppearedAtChainHeight()
+            );
+        }
+        if (!state.equals(this.states.put(txn.getHash(), state))) {
+            this.mark(txn);
+        }
+    }
+
+    @Override
+    public void onReorganize(final Wallet wallet) {
+        this.outdated.set(true);
+    }
+
+    @Override
+    public void onScriptsChanged(final Wallet wallet,
+        final List<Script> scripts, final boolean added) {
+        this.outdated.set(true);
+    }
+
+    /**
+     * Mark transaction and wallet transactions it spends as changed.
+     * @param txn Transaction
+     */
+    private void mark(final Transaction txn) {
+        this.dirty.add(txn.getHash());
+        for (final TransactionInput input : txn.getInputs()) {
+            final Sha256Hash parent = input.getOutpoint().getHash();
+            if (this.wlt.getTransaction(parent) != null) {
+                this.dirty.add(parent);
+            }
+        }
+    }
+
+    /**
+     * Group commit, runs on journal thread.
+     * <p>
+     * Runtime errors are caught too, because the first one thrown out of
+     * here would silently cancel all next commits.
+     * </p>
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void commit() {
+        try {
+            synchronized (this.last) {
+                if (this.outdated.getAndSet(false)
+                    || this.channel.size() > Journal.LIMIT) {
+                    this.compact();
+                } else {
+                    this.append();
+                    this.refresh();
+                }
+            }
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final IOException | RuntimeException err) {
+            this.outdated.set(true);
+            Logger.error(this, "Journal write failed: %[exception]s", err);
+        }
+    }
+
+    /**
+     * Save outputs snapshot if it's outdated.
+     * @throws IOException If fails to write
+     */
+    private void refresh() throws IOException {
+        final long now = System.currentTimeMillis();
+        if (now - this.saved.get() > Journal.REFRESH) {
+            this.utxos.save(this.wlt);
+            this.saved.set(now);
+        }
+    }
+
+    /**
+     * Append pending changes and sync.
+     * <p>
+     * Transactions which are not written because of a failure are marked
+     * as changed again.
+     * </p>
+     * @throws IOException If fails to write
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void append() throws IOException {
+        final List<Sha256Hash> taken = new ArrayList<>(this.dirty.size());
+        final Iterator<Sha256Hash> iter = this.dirty.iterator();
+        while (iter.hasNext()) {
+            taken.add(iter.next());
+            iter.remove();
+        }
+        try {
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            final int[] next;
+            this.lock.lock();
+            try {
+                next = this.records(taken, new DataOutputStream(buf));
+            } finally {
+                this.lock.unlock();
+            }
+            if (buf.size() > 0) {
+                this.channel.write(ByteBuffer.wrap(buf.toByteArray()));
+                this.channel.force(false);
+            }
+            System.arraycopy(next, 0, this.last, 0, next.length);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final IOException | RuntimeException err) {
+            this.dirty.addAll(taken);
+            throw err;
+        }
+    }
+
+    /**
+     * Write records of changed transactions, issued keys and last seen
+     * block, under the wallet lock.
+     * @param hashes Changed transactions
+     * @param out Output
+     * @return Issued external and internal keys and block height written
+     * @throws IOException If fails to write
+     */
+    private int[] records(final List<Sha256Hash> hashes,
+        final DataOutputStream out) throws IOException {
+        for (final Sha256Hash hash : hashes) {
+            final Transaction txn = this.wlt.getTransaction(hash);
+            final WalletTransaction.Pool pool = this.pool(hash);
+            if (txn != null && pool != null) {
+                Journal.record(
+                    out, Journal.TX,
+                    new TxProto(new WalletTransaction(pool, txn))
+                        .value().toByteArray()
+                );
+            }
+        }
+        final int[] next = this.last.clone();
+        final DeterministicKeyChain chain = this.wlt.getActiveKeyChain();
+        final int external = chain.getIssuedExternalKeys();
+        final int internal = chain.getIssuedInternalKeys();
+        if (external != next[0] || internal != next[1]) {
+            final ByteArrayOutputStream keys = new ByteArrayOutputStream();
+            final DataOutputStream data = new DataOutputStream(keys);
+            data.writeInt(external);
+            data.writeInt(internal);
+            Journal.record(out, Journal.KEYS, keys.toByteArray());
+            next[0] = external;
+            next[1] = internal;
+        }
+        final Sha256Hash block = this.wlt.getLastBlockSeenHash();
+        final int height = this.wlt.getLastBlockSeenHeight();
+        if (block != null && height != next[2]) {
+            final ByteArrayOutputStream seen = new ByteArrayOutputStream();
+            final DataOutputStream data = new DataOutputStream(seen);
+            data.write(block.getBytes());
+            data.writeInt(height);
+            data.writeLong(this.wlt.getLastBlockSeenTimeSecs());
+            Journal.record(out, Journal.BLOCK, seen.toByteArray());
+            next[2] = height;
+        }
+        return next;
+    }
+
+    /**
+     * Save new snapshot and start new journal.
+     * @throws IOException If fails to write
+     */
+    private void compact() throws IOException {
+        this.dirty.clear();
+        final ByteString tag = this.wlt.maybeGetTag(Journal.EPOCH_TAG);
+        long epoch = 1L;
+        if (tag != null) {
+            epoch = Longs.fromByteArray(tag.toByteArray()) + 1L;
+        }
+        this.wlt.setTag(
+            Journal.EPOCH_TAG, ByteString.copyFrom(Longs.toByteArray(epoch))
+        );
+        this.wlt.saveToFile(this.snapshot);
+        this.utxos.save(this.wlt);
+        this.saved.set(System.currentTimeMillis());
+        if (this.channel != null) {
+            this.channel.close();
+        }
+        this.channel = FileChannel.open(
+            this.file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        Journal.record(
+            new DataOutputStream(buf), Journal.EPOCH, Longs.toByteArray(epoch)
+        );
+        this.channel.write(ByteBuffer.wrap(buf.toByteArray()));
+        this.channel.force(false);
+        final DeterministicKeyChain chain = this.wlt.getActiveKeyChain();
+        this.last[0] = chain.getIssuedExternalKeys();
+        this.last[1] = chain.getIssuedInternalKeys();
+        this.last[2] = this.wlt.getLastBlockSeenHeight();
+        Logger.info(this, "Wallet snapshot %d saved", epoch);
+    }
+
+    /**
+     * Pool of wallet transaction.
+     * @param hash Transaction hash
+     * @return Pool or null if it's not in the wallet
+     */
+    private WalletTransaction.Pool pool(final Sha256Hash hash) {
+        WalletTransaction.Pool res = null;
+        for (final WalletTransaction.Pool pool
+            : WalletTransaction.Pool.values()) {
+            if (this.wlt.getTransactionPool(pool).containsKey(hash)) {
+                res = pool;
+                break;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Write record: type, length, payload and checksum.
+     * @param out Output
+     * @param type Record type
+     * @param payload Payload
+     * @throws IOException If fails to write
+     */
+    private static void record(final DataOutputStream out, final byte type,
+        final byte[] payload) throws IOException {
+        final CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+}
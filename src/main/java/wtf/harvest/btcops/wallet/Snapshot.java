@@ -0,0 +1,266 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import com.google.protobuf.ByteString;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.wallet.Protos;
+import org.bitcoinj.wallet.UnreadableWalletException;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletProtobufSerializer;
+
+/**
+ * Wallet snapshot with its journal replayed.
+ * <p>
+ * Journaled transactions replace the ones of the snapshot protobuf,
+ * issued key counts and the last seen block are patched, then the wallet
+ * is read as usual. Replay stops at the first torn or corrupted record.
+ * See {@link Journal} for the format.
+ * </p>
+ * @since 1.0
+ */
+public final class Snapshot {
+
+    /**
+     * Max size of record payload.
+     */
+    private static final int MAX_RECORD = 64 << 20;
+
+    /**
+     * Snapshot file.
+     */
+    private final File file;
+
+    /**
+     * Journal file.
+     */
+    private final File journal;
+
+    /**
+     * Ctor.
+     * @param file Snapshot file
+     * @param journal Journal file
+     */
+    public Snapshot(final File file, final File journal) {
+        this.file = file;
+        this.journal = journal;
+    }
+
+    /**
+     * Load the wallet.
+     * @return Wallet
+     * @throws IOException If fails to read
+     */
+    public Wallet load() throws IOException {
+        final Protos.Wallet proto;
+        try (InputStream input = new FileInputStream(this.file)) {
+            proto = WalletProtobufSerializer.parseToProto(input);
+        }
+        final Protos.Wallet.Builder wallet = proto.toBuilder();
+        if (this.journal.exists()) {
+            this.replay(wallet);
+        }
+        try {
+            return new WalletProtobufSerializer().readWallet(
+                NetworkParameters.fromID(proto.getNetworkIdentifier()),
+                null, wallet.build()
+            );
+        } catch (final UnreadableWalletException err) {
+            throw new IOException("Failed to read wallet", err);
+        }
+    }
+
+    /**
+     * Apply journal records to wallet protobuf.
+     * @param wallet Wallet protobuf
+     * @throws IOException If fails to read
+     * @checkstyle ExecutableStatementCountCheck (100 lines)
+     */
+    private void replay(final Protos.Wallet.Builder wallet)
+        throws IOException {
+        final Map<ByteString, Protos.Transaction> txs = new LinkedHashMap<>(
+            wallet.getTransactionCount()
+        );
+        for (final Protos.Transaction txn : wallet.getTransactionList()) {
+            txs.put(txn.getHash(), txn);
+        }
+        final int[] issued = {-1, -1};
+        try (DataInputStream input = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(this.journal))
+        )) {
+            byte[] rec = Snapshot.record(input, Journal.EPOCH);
+            if (rec.length > 0 && Arrays.equals(rec, Snapshot.epoch(wallet))) {
+                rec = Snapshot.next(input);
+                while (rec.length > 0) {
+                    final byte[] payload = Arrays.copyOfRange(
+                        rec, 1, rec.length
+                    );
+                    if (rec[0] == Journal.TX) {
+                        final Protos.Transaction txn =
+                            Protos.Transaction.parseFrom(payload);
+                        txs.remove(txn.getHash());
+                        txs.put(txn.getHash(), txn);
+                    } else if (rec[0] == Journal.KEYS) {
+                        final DataInputStream data = Snapshot.data(payload);
+                        issued[0] = data.readInt();
+                        issued[1] = data.readInt();
+                    } else if (rec[0] == Journal.BLOCK) {
+                        final DataInputStream data = Snapshot.data(payload);
+                        final byte[] hash = new byte[32];
+                        data.readFully(hash);
+                        wallet.setLastSeenBlockHash(ByteString.copyFrom(hash))
+                            .setLastSeenBlockHeight(data.readInt())
+                            .setLastSeenBlockTimeSecs(data.readLong());
+                    }
+                    rec = Snapshot.next(input);
+                }
+            }
+        }
+        wallet.clearTransaction();
+        for (final Protos.Transaction txn : txs.values()) {
+            wallet.addTransaction(Snapshot.depth(txn, wallet));
+        }
+        for (int idx = 0; idx < wallet.getKeyCount(); ++idx) {
+            final Protos.Key key = wallet.getKey(idx);
+            if (key.hasDeterministicKey()
+                && key.getDeterministicKey().hasIssuedSubkeys()) {
+                final Protos.DeterministicKey det = key.getDeterministicKey();
+                final int side = det.getPath(det.getPathCount() - 1);
+                if (side == 0 || side == 1) {
+                    final Protos.Key.Builder patched = key.toBuilder();
+                    patched.getDeterministicKeyBuilder().setIssuedSubkeys(
+                        Math.max(det.getIssuedSubkeys(), issued[side])
+                    );
+                    wallet.setKey(idx, patched);
+                }
+            }
+        }
+    }
+
+    /**
+     * Transaction with depth matching the last seen block.
+     * @param txn Transaction protobuf
+     * @param wallet Wallet protobuf
+     * @return Transaction protobuf
+     */
+    private static Protos.Transaction depth(final Protos.Transaction txn,
+        final Protos.Wallet.Builder wallet) {
+        Protos.Transaction res = txn;
+        if (txn.hasConfidence() && txn.getConfidence().hasAppearedAtHeight()
+            && wallet.hasLastSeenBlockHeight()) {
+            final Protos.Transaction.Builder fixed = txn.toBuilder();
+            fixed.getConfidenceBuilder().setDepth(
+                Math.max(
+                    wallet.getLastSeenBlockHeight()
+                        - txn.getConfidence().getAppearedAtHeight() + 1,
+                    1
+                )
+            );
+            res = fixed.build();
+        }
+        return res;
+    }
+
+    /**
+     * Epoch of the snapshot.
+     * @param wallet Wallet protobuf
+     * @return Epoch bytes or empty if there is no epoch
+     */
+    private static byte[] epoch(final Protos.Wallet.Builder wallet) {
+        byte[] res = new byte[0];
+        for (final Protos.Tag tag : wallet.getTagsList()) {
+            if (Journal.EPOCH_TAG.equals(tag.getTag())) {
+                res = tag.getData().toByteArray();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Read payload of the record of the given type.
+     * @param input Input
+     * @param type Record type
+     * @return Payload or empty if record is of other type or broken
+     * @throws IOException If fails to read
+     */
+    private static byte[] record(final DataInputStream input,
+        final byte type) throws IOException {
+        final byte[] rec = Snapshot.next(input);
+        byte[] res = new byte[0];
+        if (rec.length > 0 && rec[0] == type) {
+            res = Arrays.copyOfRange(rec, 1, rec.length);
+        }
+        return res;
+    }
+
+    /**
+     * Read next record.
+     * @param input Input
+     * @return Type followed by payload, empty at the end of the journal
+     *  or at broken record
+     * @throws IOException If fails to read
+     */
+    private static byte[] next(final DataInputStream input)
+        throws IOException {
+        byte[] res = new byte[0];
+        try {
+            final byte type = input.readByte();
+            final int length = input.readInt();
+            if (length >= 0 && length <= Snapshot.MAX_RECORD) {
+                final byte[] rec = new byte[length + 1];
+                rec[0] = type;
+                input.readFully(rec, 1, length);
+                final CRC32 crc = new CRC32();
+                crc.update(rec);
+                if ((int) crc.getValue() == input.readInt()) {
+                    res = rec;
+                }
+            }
+        } catch (final EOFException err) {
+            res = new byte[0];
+        }
+        return res;
+    }
+
+    /**
+     * Data input of payload.
+     * @param payload Payload
+     * @return Input
+     */
+    private static DataInputStream data(final byte[] payload) {
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.listeners.TransactionConfidenceEventListener;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.listeners.WalletCoinsReceivedEventListener;
+import org.bitcoinj.wallet.listeners.WalletCoinsSentEventListener;
+import org.bitcoinj.wallet.listeners.WalletReorganizeEventListener;
+
+/**
+ * Wallet transactions by time and by address.
+ * <p>
+ * Transactions are kept newest first, keyed by update time and hash, and
+ * every wallet address has a set of keys of transactions paying to or
+ * spending from it. Indexes are kept up to date from wallet events, so
+ * a page of history is read from a position in a sorted set instead of
+ * sorting all wallet transactions. Pages are iterated lazily, a cursor
+ * of the last read transaction starts the next page.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+public final class TxHistory implements WalletCoinsReceivedEventListener,
+    WalletCoinsSentEventListener, WalletReorganizeEventListener,
+    TransactionConfidenceEventListener {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Transactions, newest first.
+     */
+    private final ConcurrentNavigableMap<TxHistory.Key, Transaction> times;
+
+    /**
+     * Index keys of transactions.
+     */
+    private final Map<Sha256Hash, TxHistory.Key> keys;
+
+    /**
+     * Index keys of transactions by address.
+     */
+    private final Map<Address, NavigableSet<TxHistory.Key>> addresses;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet to index
+     */
+    public TxHistory(final Wallet wallet) {
+        this.wlt = wallet;
+        this.times = new ConcurrentSkipListMap<>();
+        this.keys = new ConcurrentHashMap<>(0);
+        this.addresses = new ConcurrentHashMap<>(0);
+    }
+
+    /**
+     * Subscribe to wallet events and index current wallet transactions.
+     * @return This index
+     */
+    public TxHistory attach() {
+        this.wlt.addCoinsReceivedEventListener(this);
+        this.wlt.addCoinsSentEventListener(this);
+        this.wlt.addReorganizeEventListener(this);
+        this.wlt.addTransactionConfidenceEventListener(this);
+        this.rebuild();
+        return this;
+    }
+
+    /**
+     * Transactions, newest first.
+     * @param address Address transactions pay to or spend from, or all
+     * @param from Earliest update time in milliseconds, inclusive
+     * @param until Latest update time in milliseconds, exclusive
+     * @param after Cursor of the last transaction of previous page
+     * @return Transactions by their cursors
+     * @throws IllegalArgumentException If cursor is not valid
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    public Iterator<Map.Entry<String, Transaction>> find(
+        final Optional<Address> address, final long from, final long until,
+        final Optional<String> after) {
+        NavigableSet<TxHistory.Key> set = this.times.keySet();
+        if (address.isPresent()) {
+            set = this.addresses.getOrDefault(
+                address.get(),
+                Collections.emptyNavigableSet()
+            );
+        }
+        TxHistory.Key start = new TxHistory.Key(until - 1L, null);
+        boolean inclusive = true;
+        if (after.isPresent()) {
+            final TxHistory.Key cursor = TxHistory.Key.parse(after.get());
+            if (cursor.compareTo(start) >= 0) {
+                start = cursor;
+                inclusive = false;
+            }
+        }
+        return new TxHistory.Range(
+            set.tailSet(start, inclusive).iterator(), this.times, from
+        );
+    }
+
+    /**
+     * Number of indexed transactions.
+     * @return Transactions count
+     */
+    public int size() {
+        return this.times.size();
+    }
+
+    @Override
+    public void onCoinsReceived(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        this.update(txn);
+    }
+
+    @Override
+    public void onCoinsSent(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        this.update(txn);
+    }
+
+    @Override
+    public void onReorganize(final Wallet wallet) {
+        this.rebuild();
+    }
+
+    @Override
+    public void onTransactionConfidenceChanged(final Wallet wallet,
+        final Transaction txn) {
+        if (!TxHistory.Key.of(txn).equals(this.keys.get(txn.getHash()))) {
+            this.update(txn);
+        }
+    }
+
+    /**
+     * Re-index all wallet transactions.
+     */
+    private void rebuild() {
+        final Set<Transaction> all = this.wlt.getTransactions(true);
+        synchronized (this.keys) {
+            this.times.clear();
+            this.keys.clear();
+            this.addresses.clear();
+            for (final Transaction txn : all) {
+                this.put(txn);
+            }
+        }
+    }
+
+    /**
+     * Re-index transaction.
+     * @param txn Transaction
+     */
+    private void update(final Transaction txn) {
+        synchronized (this.keys) {
+            final TxHistory.Key old = this.keys.get(txn.getHash());
+            if (old != null) {
+                this.times.remove(old);
+                for (final Address addr : this.owners(txn)) {
+                    final NavigableSet<TxHistory.Key> set =
+                        this.addresses.get(addr);
+                    if (set != null) {
+                        set.remove(old);
+                    }
+                }
+            }
+            this.put(txn);
+        }
+    }
+
+    /**
+     * Put transaction to the index.
+     * @param txn Transaction
+     */
+    private void put(final Transaction txn) {
+        final TxHistory.Key key = TxHistory.Key.of(txn);
+        this.keys.put(txn.getHash(), key);
+        this.times.put(key, txn);
+        for (final Address addr : this.owners(txn)) {
+            this.addresses.computeIfAbsent(
+                addr, any -> new ConcurrentSkipListSet<>()
+            ).add(key);
+        }
+    }
+
+    /**
+     * Wallet addresses the transaction pays to or spends from.
+     * @param txn Transaction
+     * @return Addresses
+     */
+    private Set<Address> owners(final Transaction txn) {
+        final Set<Address> owners = new HashSet<>(2);
+        for (final TransactionOutput out : txn.getOutputs()) {
+            this.own(out, owners);
+        }
+        for (final TransactionInput input : txn.getInputs()) {
+            TransactionOutput out = input.getConnectedOutput();
+            if (out == null) {
+                final TransactionOutPoint point = input.getOutpoint();
+                final Transaction parent =
+                    this.wlt.getTransaction(point.getHash());
+                if (parent != null
+                    && point.getIndex() < parent.getOutputs().size()) {
+                    out = parent.getOutput(point.getIndex());
+                }
+            }
+            if (out != null) {
+                this.own(out, owners);
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Add address of the output if it's the wallet one.
+     * @param out Output
+     * @param owners Addresses to add to
+     */
+    private void own(final TransactionOutput out, final Set<Address> owners) {
+        final Script script = out.getScriptPubKey();
+        if ((script.isSentToAddress() || script.isPayToScriptHash())
+            && out.isMineOrWatched(this.wlt)) {
+            owners.add(script.getToAddress(this.wlt.getParams()));
+        }
+    }
+
+    /**
+     * Index key: update time, newest first, and hash.
+     * @since 1.0
+     */
+    private static final class Key implements Comparable<TxHistory.Key> {
+
+        /**
+         * Update time in milliseconds.
+         */
+        private final long time;
+
+        /**
+         * Transaction hash, null sorts before all hashes of the same time.
+         */
+        private final Sha256Hash hash;
+
+        /**
+         * Ctor.
+         * @param time Update time in milliseconds
+         * @param hash Transaction hash or null
+         */
+        Key(final long time, final Sha256Hash hash) {
+            this.time = time;
+            this.hash = hash;
+        }
+
+        /**
+         * Key of transaction.
+         * @param txn Transaction
+         * @return Key
+         */
+        static TxHistory.Key of(final Transaction txn) {
+            return new TxHistory.Key(
+                txn.getUpdateTime().getTime(), txn.getHash()
+            );
+        }
+
+        /**
+         * Key of cursor.
+         * @param cursor Cursor
+         * @return Key
+         * @throws IllegalArgumentException If cursor is not valid
+         */
+        static TxHistory.Key parse(final String cursor) {
+            final String[] parts = cursor.split("-", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(
+                    String.format("Invalid cursor: %s", cursor)
+                );
+            }
+            return new TxHistory.Key(
+                Long.parseLong(parts[0]), Sha256Hash.wrap(parts[1])
+            );
+        }
+
+        @Override
+        public int compareTo(final TxHistory.Key other) {
+            int res = Long.compare(other.time, this.time);
+            if (res == 0) {
+                if (this.hash == null || other.hash == null) {
+                    res = Boolean.compare(
+                        other.hash == null, this.hash == null
+                    );
+                } else {
+                    res = this.hash.compareTo(other.hash);
+                }
+            }
+            return res;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof TxHistory.Key
+                && this.compareTo((TxHistory.Key) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.time) * 31 + Objects.hashCode(this.hash);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d-%s", this.time, this.hash);
+        }
+    }
+
+    /**
+     * Transactions of keys down to the earliest time.
+     * @since 1.0
+     */
+    private static final class Range
+        implements Iterator<Map.Entry<String, Transaction>> {
+
+        /**
+         * Keys, newest first.
+         */
+        private final Iterator<TxHistory.Key> keys;
+
+        /**
+         * Transactions by key.
+         */
+        private final Map<TxHistory.Key, Transaction> txns;
+
+        /**
+         * Earliest update time in milliseconds.
+         */
+        private final long from;
+
+        /**
+         * Next transaction by its cursor, null if not read yet or done.
+         */
+        private Map.Entry<String, Transaction> ahead;
+
+        /**
+         * Whether a key earlier than the range was reached.
+         */
+        private boolean over;
+
+        /**
+         * Ctor.
+         * @param keys Keys, newest first
+         * @param txns Transactions by key
+         * @param from Earliest update time in milliseconds
+         */
+        Range(final Iterator<TxHistory.Key> keys,
+            final Map<TxHistory.Key, Transaction> txns, final long from) {
+            this.keys = keys;
+            this.txns = txns;
+            this.from = from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.ahead == null && !this.over && this.keys.hasNext()) {
+                final TxHistory.Key key = this.keys.next();
+                if (key.time < this.from) {
+                    this.over = true;
+                } else {
+                    final Transaction txn = this.txns.get(key);
+                    if (txn != null) {
+                        this.ahead = new AbstractMap.SimpleImmutableEntry<>(
+                            key.toString(), txn
+                        );
+                    }
+                }
+            }
+            return this.ahead != null;
+        }
+
+        @Override
+        public Map.Entry<String, Transaction> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("No more transactions");
+            }
+            final Map.Entry<String, Transaction> res = this.ahead;
+            this.ahead = null;
+            return res;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import com.google.protobuf.ByteString;
+import java.util.Map;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.Protos;
+import org.bitcoinj.wallet.WalletProtobufSerializer;
+import org.bitcoinj.wallet.WalletTransaction;
+
+/**
+ * Protobuf of one wallet transaction.
+ * <p>
+ * The same message {@link WalletProtobufSerializer} writes for every
+ * transaction of the wallet, but built for one transaction only, so it
+ * can be journaled without serializing the whole wallet. Exchange rates
+ * and broadcast peers are not kept.
+ * </p>
+ * @since 1.0
+ */
+final class TxProto {
+
+    /**
+     * Wallet transaction.
+     */
+    private final WalletTransaction wtx;
+
+    /**
+     * Ctor.
+     * @param wtx Wallet transaction
+     */
+    TxProto(final WalletTransaction wtx) {
+        this.wtx = wtx;
+    }
+
+    /**
+     * Build protobuf.
+     * @return Transaction protobuf
+     */
+    public Protos.Transaction value() {
+        final Transaction txn = this.wtx.getTransaction();
+        final Protos.Transaction.Builder proto = Protos.Transaction.newBuilder()
+            .setPool(Protos.Transaction.Pool.valueOf(this.wtx.getPool().name()))
+            .setHash(TxProto.bytes(txn.getHash()))
+            .setVersion((int) txn.getVersion())
+            .setPurpose(
+                Protos.Transaction.Purpose.valueOf(txn.getPurpose().name())
+            );
+        if (txn.getUpdateTime() != null) {
+            proto.setUpdatedAt(txn.getUpdateTime().getTime());
+        }
+        if (txn.getLockTime() > 0L) {
+            proto.setLockTime((int) txn.getLockTime());
+        }
+        for (final TransactionInput input : txn.getInputs()) {
+            final Protos.TransactionInput.Builder inp =
+                Protos.TransactionInput.newBuilder()
+                    .setScriptBytes(
+                        ByteString.copyFrom(input.getScriptBytes())
+                    )
+                    .setTransactionOutPointHash(
+                        TxProto.bytes(input.getOutpoint().getHash())
+                    )
+                    .setTransactionOutPointIndex(
+                        (int) input.getOutpoint().getIndex()
+                    );
+            if (input.hasSequence()) {
+                inp.setSequence((int) input.getSequenceNumber());
+            }
+            if (input.getValue() != null) {
+                inp.setValue(input.getValue().value);
+            }
+            proto.addTransactionInput(inp);
+        }
+        for (final TransactionOutput output : txn.getOutputs()) {
+            final Protos.TransactionOutput.Builder out =
+                Protos.TransactionOutput.newBuilder()
+                    .setScriptBytes(
+                        ByteString.copyFrom(output.getScriptBytes())
+                    )
+                    .setValue(output.getValue().value);
+            final TransactionInput spent = output.getSpentBy();
+            if (spent != null) {
+                out.setSpentByTransactionHash(
+                    TxProto.bytes(spent.getParentTransaction().getHash())
+                ).setSpentByTransactionIndex(
+                    spent.getParentTransaction().getInputs().indexOf(spent)
+                );
+            }
+            proto.addTransactionOutput(out);
+        }
+        final Map<Sha256Hash, Integer> blocks = txn.getAppearsInHashes();
+        if (blocks != null) {
+            for (final Map.Entry<Sha256Hash, Integer> ent : blocks.entrySet()) {
+                proto.addBlockHash(TxProto.bytes(ent.getKey()));
+                proto.addBlockRelativityOffsets(ent.getValue());
+            }
+        }
+        if (txn.hasConfidence()) {
+            proto.setConfidence(TxProto.confidence(txn.getConfidence()));
+        }
+        if (txn.getMemo() != null) {
+            proto.setMemo(txn.getMemo());
+        }
+        return proto.build();
+    }
+
+    /**
+     * Confidence protobuf.
+     * @param conf Confidence
+     * @return Protobuf builder
+     */
+    private static Protos.TransactionConfidence.Builder confidence(
+        final TransactionConfidence conf) {
+        final Protos.TransactionConfidence.Builder proto =
+            Protos.TransactionConfidence.newBuilder();
+        synchronized (conf) {
+            final TransactionConfidence.ConfidenceType type =
+                conf.getConfidenceType();
+            proto.setType(
+                Protos.TransactionConfidence.Type.valueOf(type.getValue())
+            );
+            if (type == TransactionConfidence.ConfidenceType.BUILDING) {
+                proto.setAppearedAtHeight(conf.getAppearedAtChainHeight());
+                proto.setDepth(conf.getDepthInBlocks());
+            }
+            if (type == TransactionConfidence.ConfidenceType.DEAD
+                && conf.getOverridingTransaction() != null) {
+                proto.setOverridingTransaction(
+                    TxProto.bytes(conf.getOverridingTransaction().getHash())
+                );
+            }
+            if (conf.getSource() == TransactionConfidence.Source.SELF) {
+                proto.setSource(
+                    Protos.TransactionConfidence.Source.SOURCE_SELF
+                );
+            } else if (conf.getSource()
+                == TransactionConfidence.Source.NETWORK) {
+                proto.setSource(
+                    Protos.TransactionConfidence.Source.SOURCE_NETWORK
+                );
+            } else {
+                proto.setSource(
+                    Protos.TransactionConfidence.Source.SOURCE_UNKNOWN
+                );
+            }
+        }
+        if (conf.getLastBroadcastedAt() != null) {
+            proto.setLastBroadcastedAt(conf.getLastBroadcastedAt().getTime());
+        }
+        return proto;
+    }
+
+    /**
+     * Hash bytes.
+     * @param hash Hash
+     * @return Bytes
+     */
+    private static ByteString bytes(final Sha256Hash hash) {
+        return WalletProtobufSerializer.hashToByteString(hash);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import wtf.harvest.btcops.AddressBalance;
+
+/**
+ * Compact snapshot of wallet outputs.
+ * <p>
+ * Fixed size records of spend candidates sorted by address, written next
+ * to the wallet snapshot and memory-mapped on startup, so balances can be
+ * served before the wallet protobuf is parsed. Header is magic, height,
+ * number of records and total balance. Record is address hash (20 bytes),
+ * P2SH flag, value in satoshi and spendable flag.
+ * </p>
+ * <p>
+ * Spendable flag and total are calculated by the same rules as live
+ * balances: {@link AddressBalance} for addresses and the wallet coin
+ * selector for the total, so the snapshot answers what the loaded wallet
+ * would.
+ * </p>
+ * @since 1.0
+ */
+public final class UtxoFile {
+
+    /**
+     * File magic.
+     */
+    static final int MAGIC = 0x4254_4356;
+
+    /**
+     * Header size: magic, height, count, total.
+     */
+    static final int HEADER = 20;
+
+    /**
+     * Record size.
+     */
+    static final int RECORD = 30;
+
+    /**
+     * Key size: address hash and P2SH flag.
+     */
+    static final int KEY = 21;
+
+    /**
+     * File.
+     */
+    private final File file;
+
+    /**
+     * Ctor.
+     * @param file File
+     */
+    public UtxoFile(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Write outputs of the wallet.
+     * @param wallet Wallet
+     * @throws IOException If fails to write
+     */
+    public void save(final Wallet wallet) throws IOException {
+        final List<byte[]> records = new ArrayList<>(0);
+        final List<TransactionOutput> mature = new ArrayList<>(0);
+        for (final TransactionOutput out
+            : wallet.calculateAllSpendCandidates(false, false)) {
+            if (out.getParentTransaction().isMature()) {
+                mature.add(out);
+            }
+        }
+        for (final TransactionOutput out : mature) {
+            final Script script = out.getScriptPubKey();
+            if (script.isSentToAddress() || script.isPayToScriptHash()) {
+                final Address addr = script.getToAddress(wallet.getParams());
+                final ByteBuffer rec = ByteBuffer.allocate(UtxoFile.RECORD);
+                rec.put(addr.getHash160());
+                rec.put(UtxoFile.flag(addr.isP2SHAddress()));
+                rec.putLong(out.getValue().value);
+                rec.put(
+                    UtxoFile.flag(
+                        new AddressBalance(addr).isSelectable(
+                            out.getParentTransaction()
+                        )
+                    )
+                );
+                records.add(rec.array());
+            }
+        }
+        records.sort(UtxoFile::compare);
+        final ByteBuffer buf = ByteBuffer.allocate(
+            UtxoFile.HEADER + records.size() * UtxoFile.RECORD
+        );
+        buf.putInt(UtxoFile.MAGIC);
+        buf.putInt(wallet.getLastBlockSeenHeight());
+        buf.putInt(records.size());
+        buf.putLong(
+            wallet.getCoinSelector().select(
+                wallet.getParams().getMaxMoney(), mature
+            ).valueGathered.value
+        );
+        for (final byte[] rec : records) {
+            buf.put(rec);
+        }
+        buf.flip();
+        final Path tmp = this.file.toPath().resolveSibling(
+            String.format("%s.tmp", this.file.getName())
+        );
+        try (FileChannel channel = FileChannel.open(
+            tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(false);
+        }
+        Files.move(
+            tmp, this.file.toPath(),
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE
+        );
+    }
+
+    /**
+     * Memory-map the file.
+     * @return View of outputs
+     * @throws IOException If fails to read or file is not a snapshot
+     */
+    public UtxoView view() throws IOException {
+        try (FileChannel channel = FileChannel.open(
+            this.file.toPath(), StandardOpenOption.READ
+        )) {
+            final ByteBuffer buf = channel.map(
+                FileChannel.MapMode.READ_ONLY, 0L, channel.size()
+            );
+            if (buf.limit() < UtxoFile.HEADER
+                || buf.getInt(0) != UtxoFile.MAGIC
+                || buf.limit() != UtxoFile.HEADER
+                    + buf.getInt(8) * UtxoFile.RECORD) {
+                throw new IOException(
+                    String.format("Broken outputs snapshot %s", this.file)
+                );
+            }
+            return new UtxoView(buf);
+        }
+    }
+
+    /**
+     * Whether the file exists.
+     * @return True if exists
+     */
+    public boolean exists() {
+        return this.file.exists();
+    }
+
+    /**
+     * Compare records by key.
+     * @param left Left record
+     * @param right Right record
+     * @return Comparison result
+     */
+    private static int compare(final byte[] left, final byte[] right) {
+        int res = 0;
+        for (int idx = 0; idx < UtxoFile.KEY && res == 0; ++idx) {
+            res = Integer.compare(left[idx] & 0xff, right[idx] & 0xff);
+        }
+        return res;
+    }
+
+    /**
+     * Byte flag.
+     * @param value Value
+     * @return One or zero
+     */
+    private static byte flag(final boolean value) {
+        byte res = 0;
+        if (value) {
+            res = 1;
+        }
+        return res;
+    }
+}
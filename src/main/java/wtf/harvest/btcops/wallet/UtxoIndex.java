@@ -0,0 +1,291 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.listeners.TransactionConfidenceEventListener;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.listeners.WalletCoinsReceivedEventListener;
+import org.bitcoinj.wallet.listeners.WalletCoinsSentEventListener;
+import org.bitcoinj.wallet.listeners.WalletReorganizeEventListener;
+import wtf.harvest.btcops.AddressBalance;
+
+/**
+ * Per-address index of wallet spend candidates.
+ * <p>
+ * The index is kept up to date from wallet coins received, coins sent,
+ * reorganize and confidence events, so a balance of a single address
+ * only touches outputs sent to this address instead of the whole wallet.
+ * Selection rules are the same as {@link AddressBalance} ones.
+ * </p>
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+public final class UtxoIndex implements WalletCoinsReceivedEventListener,
+    WalletCoinsSentEventListener, WalletReorganizeEventListener,
+    TransactionConfidenceEventListener {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Spend candidates by address.
+     */
+    private final Map<Address, Map<TransactionOutPoint, TransactionOutput>>
+        outs;
+
+    /**
+     * Address of indexed output.
+     */
+    private final Map<TransactionOutPoint, Address> owners;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet to index
+     */
+    public UtxoIndex(final Wallet wallet) {
+        this.wlt = wallet;
+        this.outs = new ConcurrentHashMap<>(0);
+        this.owners = new ConcurrentHashMap<>(0);
+    }
+
+    /**
+     * Subscribe to wallet events and index current wallet outputs.
+     * @return This index
+     */
+    public UtxoIndex attach() {
+        this.wlt.addCoinsReceivedEventListener(this);
+        this.wlt.addCoinsSentEventListener(this);
+        this.wlt.addReorganizeEventListener(this);
+        this.wlt.addTransactionConfidenceEventListener(this);
+        this.rebuild();
+        return this;
+    }
+
+    /**
+     * Balance of the address.
+     * @param address Address
+     * @return Spendable balance, the same as wallet balance
+     *  with {@link AddressBalance} selector
+     */
+    public Coin balance(final Address address) {
+        return new AddressBalance(address).select(
+            this.wlt.getParams().getMaxMoney(),
+            this.candidates(address)
+        ).valueGathered;
+    }
+
+    /**
+     * Spend candidates of the address.
+     * @param address Address
+     * @return Unspent mature outputs sent to the address
+     */
+    public List<TransactionOutput> candidates(final Address address) {
+        final Map<TransactionOutPoint, TransactionOutput> bucket =
+            this.outs.get(address);
+        final List<TransactionOutput> list;
+        if (bucket == null) {
+            list = new ArrayList<>(0);
+        } else {
+            final Collection<TransactionOutput> all = bucket.values();
+            list = new ArrayList<>(all.size());
+            for (final TransactionOutput out : all) {
+                if (out.getParentTransaction().isMature()) {
+                    list.add(out);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Spend candidates of all addresses.
+     * @return Unspent mature outputs of the wallet
+     */
+    public List<TransactionOutput> candidates() {
+        final List<TransactionOutput> list = new ArrayList<>(this.size());
+        for (final Map<TransactionOutPoint, TransactionOutput> bucket
+            : this.outs.values()) {
+            for (final TransactionOutput out : bucket.values()) {
+                if (out.getParentTransaction().isMature()) {
+                    list.add(out);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Number of indexed outputs.
+     * @return Outputs count
+     */
+    public int size() {
+        return this.owners.size();
+    }
+
+    @Override
+    public void onCoinsReceived(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        this.update(txn);
+    }
+
+    @Override
+    public void onCoinsSent(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        this.update(txn);
+    }
+
+    @Override
+    public void onReorganize(final Wallet wallet) {
+        this.rebuild();
+    }
+
+    @Override
+    public void onTransactionConfidenceChanged(final Wallet wallet,
+        final Transaction txn) {
+        final TransactionConfidence.ConfidenceType type =
+            txn.getConfidence().getConfidenceType();
+        if (type == TransactionConfidence.ConfidenceType.DEAD
+            || type == TransactionConfidence.ConfidenceType.IN_CONFLICT) {
+            this.update(txn);
+        }
+    }
+
+    /**
+     * Re-index all wallet outputs.
+     */
+    private void rebuild() {
+        final List<TransactionOutput> all =
+            this.wlt.calculateAllSpendCandidates(false, false);
+        synchronized (this.owners) {
+            this.outs.clear();
+            this.owners.clear();
+            for (final TransactionOutput out : all) {
+                this.put(out);
+            }
+        }
+    }
+
+    /**
+     * Re-index outputs created and spent by transaction.
+     * @param txn Transaction
+     */
+    private void update(final Transaction txn) {
+        synchronized (this.owners) {
+            for (final TransactionOutput out : txn.getOutputs()) {
+                this.refresh(out);
+            }
+            for (final TransactionInput input : txn.getInputs()) {
+                final TransactionOutPoint point = input.getOutpoint();
+                if (this.owners.containsKey(point)) {
+                    this.refresh(point);
+                } else {
+                    final Transaction parent =
+                        this.wlt.getTransaction(point.getHash());
+                    if (parent != null) {
+                        this.refresh(
+                            parent.getOutput(point.getIndex())
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-check already indexed output.
+     * @param point Output point
+     */
+    private void refresh(final TransactionOutPoint point) {
+        final Address owner = this.owners.get(point);
+        if (owner != null) {
+            final TransactionOutput out = this.outs.get(owner).get(point);
+            if (out != null) {
+                this.refresh(out);
+            }
+        }
+    }
+
+    /**
+     * Add output to the index if it's a spend candidate or remove it.
+     * @param out Output
+     */
+    private void refresh(final TransactionOutput out) {
+        final TransactionConfidence.ConfidenceType type = out
+            .getParentTransaction().getConfidence().getConfidenceType();
+        if (out.isAvailableForSpending() && out.isMineOrWatched(this.wlt)
+            && type != TransactionConfidence.ConfidenceType.DEAD
+            && type != TransactionConfidence.ConfidenceType.IN_CONFLICT) {
+            this.put(out);
+        } else {
+            this.remove(out.getOutPointFor());
+        }
+    }
+
+    /**
+     * Put output to the index.
+     * @param out Output
+     */
+    private void put(final TransactionOutput out) {
+        final Script script = out.getScriptPubKey();
+        if (script.isSentToAddress() || script.isPayToScriptHash()) {
+            final Address addr = script.getToAddress(this.wlt.getParams());
+            final TransactionOutPoint point = out.getOutPointFor();
+            this.owners.put(point, addr);
+            this.outs.computeIfAbsent(
+                addr, key -> new ConcurrentHashMap<>(1)
+            ).put(point, out);
+        }
+    }
+
+    /**
+     * Remove output from the index.
+     * @param point Output point
+     */
+    private void remove(final TransactionOutPoint point) {
+        final Address owner = this.owners.remove(point);
+        if (owner != null) {
+            final Map<TransactionOutPoint, TransactionOutput> bucket =
+                this.outs.get(owner);
+            bucket.remove(point);
+            if (bucket.isEmpty()) {
+                this.outs.remove(owner);
+            }
+        }
+    }
+}
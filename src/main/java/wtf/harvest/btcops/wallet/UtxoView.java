@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.nio.ByteBuffer;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+
+/**
+ * Read-only view of memory-mapped outputs snapshot.
+ * <p>
+ * Nothing is parsed upfront: address balance is a binary search over
+ * sorted records, total balance is read from the header.
+ * See {@link UtxoFile} for the format.
+ * </p>
+ * @since 1.0
+ */
+public final class UtxoView {
+
+    /**
+     * Mapped file.
+     */
+    private final ByteBuffer buf;
+
+    /**
+     * Ctor.
+     * @param buf Mapped file
+     */
+    UtxoView(final ByteBuffer buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * Height of the last block seen by the wallet at the snapshot.
+     * @return Height
+     */
+    public int height() {
+        return this.buf.getInt(4);
+    }
+
+    /**
+     * Spendable balance of the address at the snapshot.
+     * @param addr Address
+     * @return Balance
+     */
+    public Coin balance(final Address addr) {
+        final byte[] key = new byte[UtxoFile.KEY];
+        System.arraycopy(addr.getHash160(), 0, key, 0, key.length - 1);
+        if (addr.isP2SHAddress()) {
+            key[key.length - 1] = 1;
+        }
+        int low = 0;
+        int high = this.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (this.compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        long value = 0L;
+        for (int idx = low; idx < this.size() && this.compare(idx, key) == 0;
+            ++idx) {
+            value += this.value(idx);
+        }
+        return Coin.valueOf(value);
+    }
+
+    /**
+     * Spendable balance of the wallet at the snapshot.
+     * @return Balance
+     */
+    public Coin total() {
+        // @checkstyle MagicNumberCheck (1 line)
+        return Coin.valueOf(this.buf.getLong(12));
+    }
+
+    /**
+     * Number of records.
+     * @return Count
+     */
+    public int size() {
+        return this.buf.getInt(8);
+    }
+
+    /**
+     * Spendable value of the record.
+     * @param idx Record index
+     * @return Value in satoshi, zero if it's not spendable
+     */
+    private long value(final int idx) {
+        final int pos = UtxoFile.HEADER + idx * UtxoFile.RECORD;
+        long value = 0L;
+        if (this.buf.get(pos + UtxoFile.KEY + 8) != 0) {
+            value = this.buf.getLong(pos + UtxoFile.KEY);
+        }
+        return value;
+    }
+
+    /**
+     * Compare record key with the key.
+     * @param idx Record index
+     * @param key Key
+     * @return Comparison result
+     */
+    private int compare(final int idx, final byte[] key) {
+        final int pos = UtxoFile.HEADER + idx * UtxoFile.RECORD;
+        int res = 0;
+        for (int off = 0; off < UtxoFile.KEY && res == 0; ++off) {
+            res = Integer.compare(
+                this.buf.get(pos + off) & 0xff, key[off] & 0xff
+            );
+        }
+        return res;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.locks.ReentrantLock;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Lock of the wallet.
+ * <p>
+ * The lock is internal to bitcoinj, but reading transactions outside of
+ * it races with wallet threads changing them, so it's taken from the
+ * wallet field.
+ * </p>
+ * @since 1.0
+ */
+public final class WalletLock {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     */
+    public WalletLock(final Wallet wallet) {
+        this.wlt = wallet;
+    }
+
+    /**
+     * The lock.
+     * @return Lock
+     */
+    public ReentrantLock value() {
+        try {
+            final Field field = Wallet.class.getDeclaredField("lock");
+            field.setAccessible(true);
+            return (ReentrantLock) field.get(this.wlt);
+        } catch (final ReflectiveOperationException err) {
+            throw new IllegalStateException(
+                "Wallet lock is not accessible", err
+            );
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.listeners.WalletChangeEventListener;
+
+/**
+ * Monotonic wallet change counter.
+ * <p>
+ * Bumped on every wallet change event, so any value derived from the
+ * wallet stays valid while the version is the same.
+ * </p>
+ * @since 1.0
+ */
+public final class WalletVersion implements WalletChangeEventListener {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Current version.
+     */
+    private final AtomicLong ver;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     */
+    public WalletVersion(final Wallet wallet) {
+        this.wlt = wallet;
+        this.ver = new AtomicLong();
+    }
+
+    /**
+     * Subscribe to wallet change events.
+     * @return This version
+     */
+    public WalletVersion attach() {
+        this.wlt.addChangeEventListener(this);
+        return this;
+    }
+
+    /**
+     * Current version.
+     * @return Version
+     */
+    public long current() {
+        return this.ver.get();
+    }
+
+    @Override
+    public void onWalletChanged(final Wallet wallet) {
+        this.ver.incrementAndGet();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.watch;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Import job of watched addresses.
+ *
+ * @since 1.0
+ */
+public final class Import {
+
+    /**
+     * Job id.
+     */
+    private final String ident;
+
+    /**
+     * Rescan height, empty if blocks are not scanned again.
+     */
+    private final OptionalInt from;
+
+    /**
+     * Current status.
+     */
+    private final AtomicReference<Import.Status> state;
+
+    /**
+     * Number of processed items of current step.
+     */
+    private final AtomicInteger processed;
+
+    /**
+     * Number of items of current step.
+     */
+    private final AtomicInteger count;
+
+    /**
+     * Failure message.
+     */
+    private final AtomicReference<String> failure;
+
+    /**
+     * Ctor.
+     * @param ident Job id
+     * @param height Rescan height
+     */
+    Import(final String ident, final OptionalInt height) {
+        this.ident = ident;
+        this.from = height;
+        this.state = new AtomicReference<>(Import.Status.QUEUED);
+        this.processed = new AtomicInteger();
+        this.count = new AtomicInteger();
+        this.failure = new AtomicReference<>();
+    }
+
+    /**
+     * Job id.
+     * @return Id
+     */
+    public String id() {
+        return this.ident;
+    }
+
+    /**
+     * Rescan height.
+     * @return Height, empty if blocks are not scanned again
+     */
+    public OptionalInt height() {
+        return this.from;
+    }
+
+    /**
+     * Current status.
+     * @return Status
+     */
+    public Import.Status status() {
+        return this.state.get();
+    }
+
+    /**
+     * Number of processed items of current step: derived addresses,
+     * watched addresses or scanned blocks.
+     * @return Number of items
+     */
+    public int done() {
+        return this.processed.get();
+    }
+
+    /**
+     * Number of items of current step.
+     * @return Number of items
+     */
+    public int total() {
+        return this.count.get();
+    }
+
+    /**
+     * Failure message if job failed.
+     * @return Message
+     */
+    public Optional<String> error() {
+        return Optional.ofNullable(this.failure.get());
+    }
+
+    /**
+     * Start next step.
+     * @param status Status of the step
+     * @param total Number of items of the step
+     */
+    void step(final Import.Status status, final int total) {
+        this.processed.set(0);
+        this.count.set(total);
+        this.state.set(status);
+    }
+
+    /**
+     * Report progress of current step.
+     * @param done Number of processed items
+     */
+    void progress(final int done) {
+        this.processed.set(done);
+    }
+
+    /**
+     * Mark job as failed.
+     * @param err Failure
+     */
+    void fail(final Throwable err) {
+        this.failure.set(err.getMessage());
+        this.state.set(Import.Status.FAILED);
+    }
+
+    /**
+     * Import status.
+     */
+    public enum Status {
+        /**
+         * Waiting in the queue.
+         */
+        QUEUED,
+        /**
+         * Deriving addresses of extended key.
+         */
+        DERIVING,
+        /**
+         * Adding addresses to the wallet.
+         */
+        WATCHING,
+        /**
+         * Sending new Bloom filter to peers.
+         */
+        FILTERING,
+        /**
+         * Fetching blocks after rescan height again.
+         */
+        RESCANNING,
+        /**
+         * Addresses are watched.
+         */
+        DONE,
+        /**
+         * Failed.
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.watch;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.wallet.Wallet;
+import wtf.harvest.btcops.chain.ScanChain;
+
+/**
+ * Bulk import of watched addresses.
+ * <p>
+ * Imports run one by one on a single worker. All addresses of an import
+ * are added to the wallet at once, so peers get one new Bloom filter per
+ * import instead of one per address, and the journal writes one snapshot.
+ * With rescan height blocks after it are fetched again in full from the
+ * download peer, one by one, and past payments to imported addresses are
+ * added to the wallet, see {@link ScanChain#scan}. The chain head is not
+ * moved. Only heights kept by the SPV block store can be scanned again.
+ * An import fails if the filter or a block is not ready in time.
+ * </p>
+ * @since 1.0
+ */
+public final class Imports {
+
+    /**
+     * Seconds to wait for a new Bloom filter or a block fetched by rescan.
+     */
+    private static final long WAIT = 60L;
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wallet;
+
+    /**
+     * Watchlist.
+     */
+    private final Watchlist list;
+
+    /**
+     * Peers.
+     */
+    private final PeerGroup peers;
+
+    /**
+     * Block chain.
+     */
+    private final ScanChain chain;
+
+    /**
+     * Import worker.
+     */
+    private final ThreadPoolExecutor worker;
+
+    /**
+     * Recent imports by id.
+     */
+    private final Map<String, Import> recent;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param list Watchlist
+     * @param peers Peers
+     * @param chain Block chain
+     * @param queue Max number of queued imports
+     * @param history Max number of imports to remember
+     * @checkstyle ParameterNumberCheck (4 lines)
+     */
+    public Imports(final Wallet wallet, final Watchlist list,
+        final PeerGroup peers, final ScanChain chain, final int queue,
+        final int history) {
+        this.wallet = wallet;
+        this.list = list;
+        this.peers = peers;
+        this.chain = chain;
+        this.worker = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queue),
+            run -> {
+                final Thread thread = new Thread(run, "btcops-import");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.recent = Collections.synchronizedMap(
+            new LinkedHashMap<String, Import>(history) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(
+                    final Map.Entry<String, Import> eldest) {
+                    return this.size() > history;
+                }
+            }
+        );
+    }
+
+    /**
+     * Submit addresses.
+     * @param addrs Addresses, read by the import job; the import fails if
+     *  they throw {@link IllegalArgumentException}
+     * @param height Rescan height, empty to watch only new payments
+     * @return Queued import
+     * @throws IllegalArgumentException If the height is not in the store
+     * @throws RejectedExecutionException If import queue is full
+     */
+    public Import addresses(final Supplier<List<Address>> addrs,
+        final OptionalInt height) {
+        return this.submit(height, job -> addrs.get());
+    }
+
+    /**
+     * Submit extended public key.
+     * @param xpub Extended public key in base58
+     * @param gap Gap limit
+     * @param height Rescan height, empty to watch only new payments
+     * @return Queued import
+     * @throws IllegalArgumentException If the key is not valid or
+     *  the height is not in the store
+     * @throws RejectedExecutionException If import queue is full
+     */
+    public Import xpub(final String xpub, final int gap,
+        final OptionalInt height) {
+        this.list.validate(xpub);
+        return this.submit(
+            height,
+            job -> {
+                job.step(Import.Status.DERIVING, gap);
+                final List<Address> addrs = this.list.add(
+                    xpub, gap, job::progress
+                );
+                try {
+                    this.list.save();
+                } catch (final IOException err) {
+                    throw new IllegalStateException(err);
+                }
+                return addrs;
+            }
+        );
+    }
+
+    /**
+     * Import by id.
+     * @param id Import id
+     * @return Import, empty if it's unknown or too old
+     */
+    public Optional<Import> job(final String id) {
+        return Optional.ofNullable(this.recent.get(id));
+    }
+
+    /**
+     * Queue import.
+     * @param height Rescan height
+     * @param addrs Addresses to import
+     * @return Queued import
+     */
+    private Import submit(final OptionalInt height,
+        final Imports.Source addrs) {
+        if (height.isPresent()) {
+            try {
+                this.chain.block(height.getAsInt());
+            } catch (final BlockStoreException err) {
+                throw new IllegalArgumentException(err.getMessage(), err);
+            }
+        }
+        final Import job = new Import(UUID.randomUUID().toString(), height);
+        this.worker.execute(() -> this.run(job, addrs));
+        this.recent.put(job.id(), job);
+        return job;
+    }
+
+    /**
+     * Run import.
+     * @param job Import
+     * @param addrs Addresses to import
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void run(final Import job, final Imports.Source addrs) {
+        try {
+            final List<Address> all = addrs.get(job);
+            long time = Utils.currentTimeSeconds();
+            if (job.height().isPresent()) {
+                time = this.chain.block(job.height().getAsInt())
+                    .getHeader().getTimeSeconds();
+            }
+            job.step(Import.Status.WATCHING, all.size());
+            this.list.watch(all, time);
+            job.progress(all.size());
+            job.step(Import.Status.FILTERING, 1);
+            this.peers.recalculateFastCatchupAndFilter(
+                PeerGroup.FilterRecalculateMode.SEND_IF_CHANGED
+            ).get(Imports.WAIT, TimeUnit.SECONDS);
+            job.progress(1);
+            if (job.height().isPresent()) {
+                this.rescan(job, job.height().getAsInt());
+            }
+            job.step(Import.Status.DONE, all.size());
+            job.progress(all.size());
+            Logger.info(
+                this, "Imported %d addresses, import %s",
+                all.size(), job.id()
+            );
+        } catch (final InterruptedException err) {
+            Thread.currentThread().interrupt();
+            job.fail(err);
+        } catch (final ExecutionException err) {
+            Logger.error(
+                this, "Import %s failed: %[exception]s",
+                job.id(), err.getCause()
+            );
+            job.fail(err.getCause());
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final BlockStoreException | TimeoutException
+            | RuntimeException err) {
+            Logger.error(
+                this, "Import %s failed: %[exception]s", job.id(), err
+            );
+            job.fail(err);
+        }
+    }
+
+    /**
+     * Fetch blocks after the height again and add past payments to
+     * imported addresses.
+     * @param job Import
+     * @param height Rescan height
+     * @throws BlockStoreException If the height is not in the store
+     * @throws InterruptedException If interrupted while waiting
+     * @throws ExecutionException If the peer fails to send a block
+     * @throws TimeoutException If a block doesn't arrive in time
+     */
+    private void rescan(final Import job, final int height)
+        throws BlockStoreException, InterruptedException, ExecutionException,
+        TimeoutException {
+        final List<StoredBlock> blocks = this.chain.after(height);
+        job.step(Import.Status.RESCANNING, blocks.size());
+        int found = 0;
+        for (int idx = 0; idx < blocks.size(); ++idx) {
+            final StoredBlock stored = blocks.get(idx);
+            found += this.chain.scan(this.wallet, stored, this.fetch(stored));
+            job.progress(idx + 1);
+        }
+        Logger.info(
+            this, "Rescan of %d blocks found %d transactions, import %s",
+            blocks.size(), found, job.id()
+        );
+    }
+
+    /**
+     * Fetch full block from the download peer.
+     * @param stored Stored block
+     * @return Block
+     * @throws InterruptedException If interrupted while waiting
+     * @throws ExecutionException If the peer fails to send the block
+     * @throws TimeoutException If the block doesn't arrive in time
+     */
+    private Block fetch(final StoredBlock stored)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        final Peer peer = this.peers.getDownloadPeer();
+        if (peer == null) {
+            throw new IllegalStateException(
+                String.format(
+                    "No download peer to fetch block %d", stored.getHeight()
+                )
+            );
+        }
+        return peer.getBlock(stored.getHeader().getHash())
+            .get(Imports.WAIT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Addresses of import.
+     * @since 1.0
+     */
+    private interface Source {
+        /**
+         * Addresses to import.
+         * @param job Import
+         * @return Addresses
+         */
+        List<Address> get(Import job);
+    }
+}
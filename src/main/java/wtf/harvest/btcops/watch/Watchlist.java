@@ -0,0 +1,332 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.watch;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.listeners.WalletCoinsReceivedEventListener;
+
+/**
+ * Watched extended public keys.
+ * <p>
+ * Addresses of the receive chain of an xpub are derived up to the gap
+ * limit after the last used one. Payments to derived addresses extend
+ * the derived range, so the gap of unused addresses is kept. Keys are
+ * stored as {@code xpub gap derived} lines. Derived addresses are watched
+ * by the wallet, which keeps them with its snapshot, the file only keeps
+ * what's needed to derive more.
+ * </p>
+ * @since 1.0
+ */
+public final class Watchlist implements WalletCoinsReceivedEventListener {
+
+    /**
+     * Wallet.
+     */
+    private final Wallet wlt;
+
+    /**
+     * Watchlist file.
+     */
+    private final Path file;
+
+    /**
+     * Keys by their base58 form.
+     */
+    private final Map<String, Watchlist.Xpub> xpubs;
+
+    /**
+     * Key and index of derived addresses.
+     */
+    private final Map<Address, Map.Entry<Watchlist.Xpub, Integer>> derived;
+
+    /**
+     * Ctor.
+     * @param wallet Wallet
+     * @param file Watchlist file
+     */
+    public Watchlist(final Wallet wallet, final Path file) {
+        this.wlt = wallet;
+        this.file = file;
+        this.xpubs = new LinkedHashMap<>(0);
+        this.derived = new HashMap<>(0);
+    }
+
+    /**
+     * Load keys from the file and watch their addresses, if the wallet
+     * doesn't watch them yet.
+     * @return This
+     * @throws IOException If fails to read the file
+     */
+    public synchronized Watchlist load() throws IOException {
+        this.xpubs.clear();
+        this.derived.clear();
+        final List<Address> missing = new ArrayList<>(0);
+        if (Files.exists(this.file)) {
+            for (final String line
+                : Files.readAllLines(this.file, StandardCharsets.UTF_8)) {
+                final String[] parts = line.split(" ");
+                // @checkstyle MagicNumberCheck (1 line)
+                if (parts.length == 3) {
+                    final Watchlist.Xpub xpub = new Watchlist.Xpub(
+                        this.wlt, parts[0], Integer.parseInt(parts[1])
+                    );
+                    this.xpubs.put(parts[0], xpub);
+                    for (final Address addr : this.derive(
+                        xpub, Integer.parseInt(parts[2]), num -> { }
+                    )) {
+                        if (!this.wlt.isAddressWatched(addr)) {
+                            missing.add(addr);
+                        }
+                    }
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            this.wlt.addWatchedAddresses(missing, Utils.currentTimeSeconds());
+        }
+        Logger.info(
+            this, "Watching %d xpubs, %d derived addresses",
+            this.xpubs.size(), this.derived.size()
+        );
+        return this;
+    }
+
+    /**
+     * Subscribe to payments to extend derived addresses.
+     * @return This
+     */
+    public Watchlist attach() {
+        this.wlt.addCoinsReceivedEventListener(this);
+        return this;
+    }
+
+    /**
+     * Add key and derive its addresses up to the gap limit.
+     * @param base Extended public key in base58
+     * @param gap Gap limit
+     * @param progress Consumer of the number of derived addresses
+     * @return Addresses to watch
+     * @throws IllegalArgumentException If the key is not valid
+     */
+    public synchronized List<Address> add(final String base, final int gap,
+        final IntConsumer progress) {
+        Watchlist.Xpub xpub = this.xpubs.get(base);
+        if (xpub == null) {
+            xpub = new Watchlist.Xpub(this.wlt, base, gap);
+            this.xpubs.put(base, xpub);
+        } else {
+            xpub.gap = gap;
+        }
+        return this.derive(xpub, xpub.used + 1 + gap, progress);
+    }
+
+    /**
+     * Check extended public key.
+     * @param base Extended public key in base58
+     * @throws IllegalArgumentException If the key is not valid
+     */
+    public void validate(final String base) {
+        if (DeterministicKey.deserializeB58(base, this.wlt.getParams())
+            .hasPrivKey()) {
+            throw new IllegalArgumentException(
+                "Extended private keys are not accepted"
+            );
+        }
+    }
+
+    /**
+     * Watch addresses.
+     * <p>
+     * All addresses are added to the wallet at once, so the Bloom filter
+     * is recalculated once for all of them.
+     * </p>
+     * @param addrs Addresses
+     * @param time Creation time in epoch seconds, blocks before it are not
+     *  scanned for payments
+     */
+    public void watch(final List<Address> addrs, final long time) {
+        if (!addrs.isEmpty()) {
+            this.wlt.addWatchedAddresses(addrs, time);
+        }
+    }
+
+    /**
+     * Write keys to the file.
+     * @throws IOException If fails to write the file
+     */
+    public synchronized void save() throws IOException {
+        final List<String> all = new ArrayList<>(this.xpubs.size());
+        for (final Map.Entry<String, Watchlist.Xpub> ent
+            : this.xpubs.entrySet()) {
+            all.add(
+                String.format(
+                    "%s %d %d",
+                    ent.getKey(), ent.getValue().gap, ent.getValue().next
+                )
+            );
+        }
+        final Path tmp = this.file.resolveSibling(
+            String.format("%s.tmp", this.file.getFileName())
+        );
+        Files.write(
+            tmp, all, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        Files.move(
+            tmp, this.file,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE
+        );
+    }
+
+    @Override
+    public void onCoinsReceived(final Wallet wallet, final Transaction txn,
+        final Coin prev, final Coin next) {
+        final List<Address> more = new ArrayList<>(0);
+        synchronized (this) {
+            for (final TransactionOutput out : txn.getOutputs()) {
+                final Script script = out.getScriptPubKey();
+                if (script.isSentToAddress()) {
+                    final Map.Entry<Watchlist.Xpub, Integer> owner =
+                        this.derived.get(
+                            script.getToAddress(this.wlt.getParams())
+                        );
+                    if (owner != null
+                        && owner.getValue() > owner.getKey().used) {
+                        final Watchlist.Xpub xpub = owner.getKey();
+                        xpub.used = owner.getValue();
+                        more.addAll(
+                            this.derive(
+                                xpub, xpub.used + 1 + xpub.gap, num -> { }
+                            )
+                        );
+                    }
+                }
+            }
+        }
+        if (!more.isEmpty()) {
+            this.watch(more, Utils.currentTimeSeconds());
+            try {
+                this.save();
+            } catch (final IOException err) {
+                Logger.error(
+                    this, "Failed to save watchlist: %[exception]s", err
+                );
+            }
+        }
+    }
+
+    /**
+     * Derive addresses of the key up to the count.
+     * @param xpub Key
+     * @param count Number of addresses to derive
+     * @param progress Consumer of the number of derived addresses
+     * @return Newly derived addresses
+     */
+    private List<Address> derive(final Watchlist.Xpub xpub, final int count,
+        final IntConsumer progress) {
+        final List<Address> res = new ArrayList<>(
+            Math.max(count - xpub.next, 0)
+        );
+        while (xpub.next < count) {
+            final Address addr = HDKeyDerivation.deriveChildKey(
+                xpub.chain, new ChildNumber(xpub.next, false)
+            ).toAddress(this.wlt.getParams());
+            this.derived.put(
+                addr, new LinkedHashMap.SimpleImmutableEntry<>(xpub, xpub.next)
+            );
+            res.add(addr);
+            ++xpub.next;
+            progress.accept(res.size());
+        }
+        return res;
+    }
+
+    /**
+     * Extended public key.
+     * @since 1.0
+     */
+    private static final class Xpub {
+
+        /**
+         * Receive chain of the key.
+         */
+        private final DeterministicKey chain;
+
+        /**
+         * Gap limit, changed when the key is added again with another one.
+         */
+        private int gap;
+
+        /**
+         * Number of derived addresses.
+         */
+        private int next;
+
+        /**
+         * Index of the last used address, -1 if none is used.
+         */
+        private int used;
+
+        /**
+         * Ctor.
+         * @param wallet Wallet
+         * @param base Extended public key in base58
+         * @param gap Gap limit
+         * @throws IllegalArgumentException If the key is not valid
+         */
+        Xpub(final Wallet wallet, final String base, final int gap) {
+            this.chain = HDKeyDerivation.deriveChildKey(
+                DeterministicKey.deserializeB58(base, wallet.getParams())
+                    .dropParent(),
+                ChildNumber.ZERO
+            );
+            this.gap = gap;
+            this.used = -1;
+        }
+    }
+}
@@ -24,6 +24,7 @@
 package wtf.harvest.btcops;
 
 import java.io.File;
+import org.bitcoinj.core.Coin;
 import org.bitcoinj.params.TestNet3Params;
 import org.cactoos.list.ListOf;
 import org.hamcrest.MatcherAssert;
@@ -87,6 +88,97 @@ public final class ArgumentsTest {
         );
     }
 
+    @Test
+    public void returnsCorrectBatchSize() {
+        MatcherAssert.assertThat(
+            new Arguments("--batch-size=50").batchSize(),
+            new IsEqual<>(50)
+        );
+    }
+
+    @Test
+    public void disablesBatchingByDefault() {
+        MatcherAssert.assertThat(
+            new Arguments().batchSize(),
+            new IsEqual<>(1)
+        );
+    }
+
+    @Test
+    public void waitsForBatchByDefault() {
+        MatcherAssert.assertThat(
+            new Arguments("--batch-size=50").batchWindow(),
+            new IsEqual<>(500L)
+        );
+    }
+
+    @Test
+    public void returnsCorrectConsolidationFee() {
+        MatcherAssert.assertThat(
+            new Arguments("--consolidate-fee=0.0001").consolidateFee(),
+            new IsEqual<>(Coin.parseCoin("0.0001"))
+        );
+    }
+
+    @Test
+    public void disablesConsolidationByDefault() {
+        MatcherAssert.assertThat(
+            new Arguments().consolidateInterval(),
+            new IsEqual<>(0L)
+        );
+    }
+
+    @Test
+    public void returnsCheckpointsFile() {
+        MatcherAssert.assertThat(
+            new Arguments("--checkpoints=/tmp/main.checkpoints")
+                .checkpoints().get(),
+            new IsEqual<>(new File("/tmp/main.checkpoints"))
+        );
+    }
+
+    @Test
+    public void usesBundledCheckpointsByDefault() {
+        MatcherAssert.assertThat(
+            new Arguments().checkpoints().isPresent(),
+            new IsEqual<>(false)
+        );
+    }
+
+    @Test
+    public void returnsSendTimeout() {
+        MatcherAssert.assertThat(
+            new Arguments("--send-timeout=1500").sendTimeout(),
+            new IsEqual<>(1500L)
+        );
+    }
+
+    @Test
+    public void leavesHttpWorkersToReadsByDefault() {
+        final Arguments args = new Arguments();
+        MatcherAssert.assertThat(
+            args.sendThreads() + args.sendQueue() < args.httpThreads(),
+            new IsEqual<>(true)
+        );
+    }
+
+    @Test
+    public void rejectsSendsTakingAllHttpWorkers() {
+        this.thrown.expect(IllegalStateException.class);
+        this.thrown.expectMessage(
+            "send-threads plus send-queue must be less than http-threads"
+        );
+        new Arguments("--http-threads=8", "--send-queue=4").sendQueue();
+    }
+
+    @Test
+    public void boundsHttpQueueByDefault() {
+        MatcherAssert.assertThat(
+            new Arguments().httpQueue(),
+            new IsEqual<>(100)
+        );
+    }
+
     @Test
     public void throwsExceptionIfNetNotFound() {
         this.thrown.expect(IllegalStateException.class);
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * Payment to an address from an unknown outpoint, for tests.
+ * <p>
+ * Every payment spends its own outpoint, so payments never double spend
+ * each other.
+ * </p>
+ * @since 1.0
+ */
+public final class FakePayment {
+
+    /**
+     * Index of the next spent outpoint.
+     */
+    private static final AtomicLong OUTPOINTS = new AtomicLong();
+
+    /**
+     * Receive address.
+     */
+    private final Address addr;
+
+    /**
+     * Amount.
+     */
+    private final Coin value;
+
+    /**
+     * Ctor.
+     * @param addr Receive address
+     */
+    public FakePayment(final Address addr) {
+        this(addr, Coin.COIN);
+    }
+
+    /**
+     * Ctor.
+     * @param addr Receive address
+     * @param value Amount
+     */
+    public FakePayment(final Address addr, final Coin value) {
+        this.addr = addr;
+        this.value = value;
+    }
+
+    /**
+     * Transaction of the payment.
+     * @return Transaction
+     */
+    public Transaction tx() {
+        final NetworkParameters net = this.addr.getParameters();
+        final Transaction txn = new Transaction(net);
+        txn.addInput(
+            new TransactionInput(
+                net, txn, new byte[0],
+                new TransactionOutPoint(
+                    net, FakePayment.OUTPOINTS.incrementAndGet(),
+                    Sha256Hash.of(this.addr.getHash160())
+                )
+            )
+        );
+        txn.addOutput(this.value, this.addr);
+        return txn;
+    }
+
+    /**
+     * Receive the payment as pending.
+     * @param wallet Wallet
+     * @return Received transaction
+     */
+    public Transaction pending(final Wallet wallet) {
+        final Transaction txn = this.tx();
+        wallet.receivePending(txn, null);
+        return txn;
+    }
+
+    /**
+     * Receive the payment and mark it as confirmed.
+     * @param wallet Wallet
+     * @param depth Confirmations
+     * @return Received transaction
+     */
+    public Transaction confirmed(final Wallet wallet, final int depth) {
+        final Transaction txn = this.pending(wallet);
+        final TransactionConfidence conf = txn.getConfidence();
+        conf.setConfidenceType(TransactionConfidence.ConfidenceType.BUILDING);
+        conf.setAppearedAtChainHeight(1);
+        conf.setDepthInBlocks(depth);
+        return txn;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.KeyChain;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.hamcrest.number.OrderingComparison;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link FilterPeerGroup}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class FilterPeerGroupTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(FilterPeerGroupTest.NET));
+    }
+
+    @Test
+    public void mergesKeyBurstIntoOneRecalculation() throws Exception {
+        final FilterPeerGroup peers = new FilterPeerGroup(
+            FilterPeerGroupTest.NET,
+            new BlockChain(
+                FilterPeerGroupTest.NET,
+                new MemoryBlockStore(FilterPeerGroupTest.NET)
+            ),
+            2000L
+        );
+        final Wallet wallet = new Wallet(FilterPeerGroupTest.NET);
+        peers.addWallet(wallet);
+        peers.start();
+        for (int idx = 0; idx < 100; ++idx) {
+            wallet.freshKey(KeyChain.KeyPurpose.RECEIVE_FUNDS);
+        }
+        peers.recalculateFastCatchupAndFilter(
+            PeerGroup.FilterRecalculateMode.SEND_IF_CHANGED
+        ).get(10L, TimeUnit.SECONDS);
+        peers.stop();
+        MatcherAssert.assertThat(
+            peers.requests(),
+            OrderingComparison.greaterThan(1L)
+        );
+        MatcherAssert.assertThat(peers.recalculations(), new IsEqual<>(1L));
+    }
+
+    @Test
+    public void sizesFalsePositiveRateToElements() {
+        MatcherAssert.assertThat(
+            FilterPeerGroup.sized(1000L),
+            new IsEqual<>(PeerGroup.DEFAULT_BLOOM_FILTER_FP_RATE)
+        );
+        MatcherAssert.assertThat(
+            FilterPeerGroup.sized(100_000L),
+            OrderingComparison.greaterThan(
+                PeerGroup.DEFAULT_BLOOM_FILTER_FP_RATE
+            )
+        );
+        MatcherAssert.assertThat(
+            FilterPeerGroup.sized(10_000_000L), new IsEqual<>(0.1)
+        );
+    }
+}
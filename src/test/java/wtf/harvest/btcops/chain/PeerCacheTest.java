@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.net.discovery.PeerDiscovery;
+import org.bitcoinj.net.discovery.PeerDiscoveryException;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.collection.IsArrayContainingInOrder;
+import org.hamcrest.core.IsEqual;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test for {@link PeerCache} and {@link CachedDiscovery}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class PeerCacheTest {
+
+    /**
+     * Local stand-in peer.
+     */
+    private static final InetSocketAddress LOCAL = new InetSocketAddress(
+        InetAddress.getLoopbackAddress(), 18_444
+    );
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresFastestPeersFirst() throws IOException {
+        final Path file = this.folder.newFile().toPath();
+        final PeerCache cache = new PeerCache(file, 10);
+        final InetSocketAddress slow = new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), 18_445
+        );
+        cache.good(slow, 300L);
+        cache.good(PeerCacheTest.LOCAL, 20L);
+        cache.save();
+        MatcherAssert.assertThat(
+            new PeerCache(file, 10).load().addresses(),
+            new IsEqual<>(Arrays.asList(PeerCacheTest.LOCAL, slow))
+        );
+    }
+
+    @Test
+    public void survivesSeedOutage() throws Exception {
+        final PeerCache cache = new PeerCache(
+            this.folder.newFile().toPath(), 10
+        );
+        cache.good(PeerCacheTest.LOCAL, 20L);
+        MatcherAssert.assertThat(
+            new CachedDiscovery(
+                cache,
+                Collections.singletonList(new PeerCacheTest.Outage()),
+                2
+            ).getPeers(0L, 1L, TimeUnit.SECONDS),
+            new IsArrayContainingInOrder<>(
+                Collections.singletonList(
+                    new IsEqual<>(PeerCacheTest.LOCAL)
+                )
+            )
+        );
+    }
+
+    @Test(expected = PeerDiscoveryException.class)
+    public void failsWithoutAnyPeers() throws Exception {
+        new CachedDiscovery(
+            new PeerCache(this.folder.newFile().toPath(), 10),
+            Collections.singletonList(new PeerCacheTest.Outage()),
+            2
+        ).getPeers(0L, 1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * DNS seed which is down.
+     * @since 1.0
+     */
+    private static final class Outage implements PeerDiscovery {
+        @Override
+        public InetSocketAddress[] getPeers(final long services,
+            final long timeout, final TimeUnit unit)
+            throws PeerDiscoveryException {
+            throw new PeerDiscoveryException("Seed is down");
+        }
+
+        @Override
+        public void shutdown() {
+            // nothing to stop
+        }
+    }
+}
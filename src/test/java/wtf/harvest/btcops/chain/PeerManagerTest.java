@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.InventoryMessage;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerAddress;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.VersionMessage;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test for {@link PeerManager}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+public final class PeerManagerTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(PeerManagerTest.NET));
+    }
+
+    @Test
+    public void countsHeadersWithoutFilteredBlocks() throws Exception {
+        final BlockChain chain = PeerManagerTest.chain();
+        final PeerManager manager = this.manager(
+            new PeerGroup(PeerManagerTest.NET, chain), chain
+        );
+        final Peer peer = PeerManagerTest.peer();
+        manager.onPeerConnected(peer, 1);
+        manager.onBlocksDownloaded(
+            peer, PeerManagerTest.NET.getGenesisBlock().cloneAsHeader(),
+            null, 1
+        );
+        MatcherAssert.assertThat(
+            manager.scores().iterator().next().blocks(), new IsEqual<>(1L)
+        );
+    }
+
+    @Test
+    public void countsAnnouncementsOfOwnTransactions() throws Exception {
+        final BlockChain chain = PeerManagerTest.chain();
+        final PeerManager manager = this.manager(
+            new PeerGroup(PeerManagerTest.NET, chain), chain
+        );
+        final Peer peer = PeerManagerTest.peer();
+        manager.onPeerConnected(peer, 1);
+        final Transaction txn = new Transaction(PeerManagerTest.NET);
+        Context.get().getConfidenceTable().getOrCreate(txn.getHash())
+            .setSource(TransactionConfidence.Source.SELF);
+        final InventoryMessage inv = new InventoryMessage(PeerManagerTest.NET);
+        inv.addTransaction(txn);
+        manager.onPreMessageReceived(peer, inv);
+        MatcherAssert.assertThat(
+            manager.scores().iterator().next().acks(), new IsEqual<>(1L)
+        );
+    }
+
+    @Test
+    public void forgetsDisconnectedPeer() throws Exception {
+        final BlockChain chain = PeerManagerTest.chain();
+        final PeerManager manager = this.manager(
+            new PeerGroup(PeerManagerTest.NET, chain), chain
+        );
+        final Peer peer = PeerManagerTest.peer();
+        manager.onPeerConnected(peer, 1);
+        manager.onPeerDisconnected(peer, 0);
+        manager.onBlocksDownloaded(
+            peer, PeerManagerTest.NET.getGenesisBlock().cloneAsHeader(),
+            null, 1
+        );
+        MatcherAssert.assertThat(manager.scores().size(), new IsEqual<>(0));
+    }
+
+    @Test
+    public void survivesFailedEvaluation() throws Exception {
+        final BlockChain chain = PeerManagerTest.chain();
+        final PeerManager manager = this.manager(
+            new PeerGroup(PeerManagerTest.NET, chain) {
+                @Override
+                public int getMostCommonChainHeight() {
+                    throw new IllegalStateException("No peers");
+                }
+            },
+            chain
+        );
+        manager.onPeerConnected(PeerManagerTest.peer(), 1);
+        manager.evaluate();
+        MatcherAssert.assertThat(manager.scores().size(), new IsEqual<>(1));
+    }
+
+    /**
+     * Peer manager.
+     * @param peers Peer group
+     * @param chain Block chain
+     * @return Manager
+     * @throws IOException If fails
+     */
+    private PeerManager manager(final PeerGroup peers, final BlockChain chain)
+        throws IOException {
+        return new PeerManager(
+            peers, chain,
+            new PeerCache(this.folder.newFile().toPath(), 1).load(), 1
+        );
+    }
+
+    /**
+     * Empty block chain.
+     * @return Chain
+     * @throws BlockStoreException If fails
+     */
+    private static BlockChain chain() throws BlockStoreException {
+        return new BlockChain(
+            PeerManagerTest.NET, new MemoryBlockStore(PeerManagerTest.NET)
+        );
+    }
+
+    /**
+     * Peer which is not connected.
+     * @return Peer
+     */
+    private static Peer peer() {
+        return new Peer(
+            PeerManagerTest.NET,
+            new VersionMessage(PeerManagerTest.NET, 0),
+            new PeerAddress(
+                PeerManagerTest.NET, InetAddress.getLoopbackAddress()
+            ),
+            null
+        );
+    }
+}
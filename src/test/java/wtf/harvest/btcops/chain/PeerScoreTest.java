@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import java.net.InetAddress;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerAddress;
+import org.bitcoinj.core.VersionMessage;
+import org.bitcoinj.params.UnitTestParams;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link PeerScore}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class PeerScoreTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(PeerScoreTest.NET));
+    }
+
+    @Test
+    public void measuresDeliveryRate() {
+        final PeerScore score = new PeerScore(PeerScoreTest.peer());
+        for (int idx = 0; idx < 50; ++idx) {
+            score.block();
+        }
+        score.evaluate(10_000L, true, 5000L);
+        MatcherAssert.assertThat(score.rate(), new IsEqual<>(5.0));
+        score.evaluate(10_000L, true, 5000L);
+        MatcherAssert.assertThat(score.rate(), new IsEqual<>(0.0));
+    }
+
+    @Test
+    public void strikesPeerWithoutPings() {
+        final PeerScore score = new PeerScore(PeerScoreTest.peer());
+        score.evaluate(1000L, false, 5000L);
+        score.evaluate(1000L, false, 5000L);
+        MatcherAssert.assertThat(score.strikes(), new IsEqual<>(2));
+    }
+
+    /**
+     * Peer which is not connected.
+     * @return Peer
+     */
+    private static Peer peer() {
+        return new Peer(
+            PeerScoreTest.NET,
+            new VersionMessage(PeerScoreTest.NET, 0),
+            new PeerAddress(
+                PeerScoreTest.NET, InetAddress.getLoopbackAddress()
+            ),
+            null
+        );
+    }
+}
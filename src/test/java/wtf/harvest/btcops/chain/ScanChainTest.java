@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.chain;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.VerificationException;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Test;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link ScanChain}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class ScanChainTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(ScanChainTest.NET));
+    }
+
+    @Test
+    public void addsOnlyTransactionsWalletDoesNotKnow() throws Exception {
+        final Wallet wallet = new Wallet(ScanChainTest.NET);
+        final ScanChain chain = new ScanChain(
+            ScanChainTest.NET, new MemoryBlockStore(ScanChainTest.NET)
+        );
+        chain.addWallet(wallet);
+        final Address watched = new ECKey().toAddress(ScanChainTest.NET);
+        final Transaction past = new FakePayment(watched).tx();
+        final Transaction own = new FakePayment(
+            wallet.freshReceiveAddress()
+        ).tx();
+        final Block first = ScanChainTest.next(
+            chain, ScanChainTest.NET.getGenesisBlock(), past, own
+        );
+        final Block second = ScanChainTest.next(chain, first);
+        wallet.addWatchedAddress(watched, 0L);
+        MatcherAssert.assertThat(
+            chain.scan(wallet, chain.block(1), first), new IsEqual<>(1)
+        );
+        MatcherAssert.assertThat(chain.getBestChainHeight(), new IsEqual<>(2));
+        MatcherAssert.assertThat(
+            ScanChainTest.depth(wallet, past), new IsEqual<>(2)
+        );
+        MatcherAssert.assertThat(
+            ScanChainTest.depth(wallet, own), new IsEqual<>(2)
+        );
+        ScanChainTest.next(chain, second);
+        MatcherAssert.assertThat(
+            ScanChainTest.depth(wallet, past), new IsEqual<>(3)
+        );
+        MatcherAssert.assertThat(
+            ScanChainTest.depth(wallet, own), new IsEqual<>(3)
+        );
+    }
+
+    @Test(expected = VerificationException.class)
+    public void rejectsBlockOfOtherHeight() throws Exception {
+        final Wallet wallet = new Wallet(ScanChainTest.NET);
+        final ScanChain chain = new ScanChain(
+            ScanChainTest.NET, new MemoryBlockStore(ScanChainTest.NET)
+        );
+        chain.addWallet(wallet);
+        final Block first = ScanChainTest.next(
+            chain, ScanChainTest.NET.getGenesisBlock()
+        );
+        ScanChainTest.next(chain, first);
+        chain.scan(wallet, chain.block(2), first);
+    }
+
+    /**
+     * Add next block to the chain.
+     * @param chain Chain
+     * @param prev Previous block
+     * @param txs Transactions of the block
+     * @return Block
+     * @throws Exception If fails
+     */
+    private static Block next(final ScanChain chain, final Block prev,
+        final Transaction... txs) throws Exception {
+        final Block block = prev.createNextBlock(
+            new ECKey().toAddress(ScanChainTest.NET)
+        );
+        for (final Transaction txn : txs) {
+            block.addTransaction(txn);
+        }
+        block.solve();
+        chain.add(block);
+        return block;
+    }
+
+    /**
+     * Depth of the transaction in the wallet.
+     * @param wallet Wallet
+     * @param txn Transaction
+     * @return Depth
+     */
+    private static int depth(final Wallet wallet, final Transaction txn) {
+        return wallet.getTransaction(txn.getHash()).getConfidence()
+            .getDepthInBlocks();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.coins;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.UnitTestParams;
+import org.cactoos.list.ListOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for coin selectors.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class SelectorsTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(SelectorsTest.NET));
+    }
+
+    @Test
+    public void selectsHighestCoinDaysFirst() {
+        final TransactionOutput old = SelectorsTest.output(1L, 10);
+        final List<TransactionOutput> outs = new ArrayList<>(2);
+        outs.add(SelectorsTest.output(5L, 1));
+        outs.add(old);
+        MatcherAssert.assertThat(
+            new Selectors().get(Selectors.DEFAULT)
+                .select(Coin.CENT, outs).gathered,
+            new IsIterableContainingInAnyOrder<>(
+                new ListOf<>(new IsEqual<>(old))
+            )
+        );
+    }
+
+    @Test
+    public void findsExactMatchWithoutChange() {
+        final TransactionOutput three = SelectorsTest.output(3L, 6);
+        final TransactionOutput two = SelectorsTest.output(2L, 6);
+        final List<TransactionOutput> outs = new ArrayList<>(3);
+        outs.add(SelectorsTest.output(4L, 6));
+        outs.add(three);
+        outs.add(two);
+        MatcherAssert.assertThat(
+            new Selectors().get("exact")
+                .select(Coin.COIN.multiply(5L), outs).gathered,
+            new IsIterableContainingInAnyOrder<>(
+                new ListOf<>(new IsEqual<>(three), new IsEqual<>(two))
+            )
+        );
+    }
+
+    @Test
+    public void minimisesInputsAndChange() {
+        final List<TransactionOutput> outs = new ArrayList<>(3);
+        outs.add(SelectorsTest.output(6L, 6));
+        outs.add(SelectorsTest.output(5L, 6));
+        outs.add(SelectorsTest.output(3L, 6));
+        MatcherAssert.assertThat(
+            new Selectors().get("knapsack")
+                .select(Coin.COIN.multiply(8L), outs).valueGathered,
+            new IsEqual<>(Coin.COIN.multiply(9L))
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownStrategy() {
+        new Selectors().get("unknown");
+    }
+
+    /**
+     * Confirmed output.
+     * @param coins Value in coins
+     * @param depth Confirmations
+     * @return Output
+     */
+    private static TransactionOutput output(final long coins,
+        final int depth) {
+        final Transaction txn = new Transaction(SelectorsTest.NET);
+        txn.addOutput(
+            Coin.COIN.multiply(coins),
+            new ECKey().toAddress(SelectorsTest.NET)
+        );
+        final TransactionConfidence conf = txn.getConfidence();
+        conf.setConfidenceType(TransactionConfidence.ConfidenceType.BUILDING);
+        conf.setAppearedAtChainHeight(1);
+        conf.setDepthInBlocks(depth);
+        return txn.getOutput(0L);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.fees;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+/**
+ * Test for fee buckets.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class FeeBucketsTest {
+
+    @Test
+    public void estimatesLowestRateConfirmedWithinTarget() {
+        final FeeBuckets buckets = new FeeBuckets();
+        for (int idx = 0; idx < 10; ++idx) {
+            buckets.add(50_000L, 1);
+            buckets.add(10_000L, 6);
+        }
+        final long[] rates = buckets.estimates();
+        MatcherAssert.assertThat(
+            rates[0] > 10_000L && rates[0] <= 50_000L, new IsEqual<>(true)
+        );
+        MatcherAssert.assertThat(
+            rates[5] <= 10_000L && rates[5] > 0L, new IsEqual<>(true)
+        );
+    }
+
+    @Test
+    public void doesNotEstimateWithoutSamples() {
+        MatcherAssert.assertThat(
+            new FeeBuckets().estimates()[0], new IsEqual<>(0L)
+        );
+    }
+}
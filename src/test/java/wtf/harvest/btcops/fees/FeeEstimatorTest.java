@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.fees;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.FilteredBlock;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PartialMerkleTree;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link FeeEstimator}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class FeeEstimatorTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Test
+    public void fallsBackWithoutConfirmedTransactions() throws Exception {
+        final Wallet wallet = new Wallet(FeeEstimatorTest.NET);
+        final FeeEstimator fees = FeeEstimatorTest.estimator(
+            wallet, FeeEstimatorTest.chain(wallet)
+        );
+        MatcherAssert.assertThat(fees.estimated(1), new IsEqual<>(false));
+        MatcherAssert.assertThat(
+            fees.rate(1), new IsEqual<>(Coin.MILLICOIN)
+        );
+    }
+
+    @Test
+    public void estimatesRateOfConfirmedTransactions() throws Exception {
+        final Wallet wallet = new Wallet(FeeEstimatorTest.NET);
+        final BlockChain chain = FeeEstimatorTest.chain(wallet);
+        final FeeEstimator fees = FeeEstimatorTest.estimator(wallet, chain);
+        final long rate = FeeEstimatorTest.confirm(fees, chain, wallet, 0);
+        MatcherAssert.assertThat(fees.estimated(1), new IsEqual<>(true));
+        MatcherAssert.assertThat(
+            fees.rate(1).value <= rate
+                && fees.rate(1).value * 1.25 > rate,
+            new IsEqual<>(true)
+        );
+    }
+
+    @Test
+    public void fallsBackForTargetWithoutEstimate() throws Exception {
+        final Wallet wallet = new Wallet(FeeEstimatorTest.NET);
+        final BlockChain chain = FeeEstimatorTest.chain(wallet);
+        final FeeEstimator fees = FeeEstimatorTest.estimator(wallet, chain);
+        FeeEstimatorTest.confirm(fees, chain, wallet, 2);
+        MatcherAssert.assertThat(fees.estimated(2), new IsEqual<>(true));
+        MatcherAssert.assertThat(fees.estimated(1), new IsEqual<>(false));
+        MatcherAssert.assertThat(
+            fees.rate(1), new IsEqual<>(Coin.MILLICOIN)
+        );
+    }
+
+    /**
+     * Confirm three paying transactions seen by the estimator.
+     * @param fees Estimator
+     * @param chain Chain of the estimator
+     * @param wallet Wallet
+     * @param blocks Number of blocks mined before the confirmation
+     * @return Fee rate of transactions per kB
+     * @throws Exception If fails
+     */
+    private static long confirm(final FeeEstimator fees,
+        final BlockChain chain, final Wallet wallet, final int blocks)
+        throws Exception {
+        final Address addr = wallet.freshReceiveAddress();
+        final Coin fee = Coin.valueOf(10_000L);
+        final List<Transaction> paid = new ArrayList<>(3);
+        long rate = 0L;
+        for (int idx = 0; idx < 3; ++idx) {
+            final Transaction txn = new Transaction(FeeEstimatorTest.NET);
+            txn.addInput(new FakePayment(addr).tx().getOutput(0));
+            txn.addOutput(
+                Coin.COIN.subtract(fee),
+                new ECKey().toAddress(FeeEstimatorTest.NET)
+            );
+            rate = fee.value * 1000L / txn.unsafeBitcoinSerialize().length;
+            fees.onTransaction(null, txn);
+            paid.add(txn);
+        }
+        Block prev = chain.getChainHead().getHeader();
+        for (int idx = 0; idx < blocks; ++idx) {
+            prev = prev.createNextBlock(new ECKey().toAddress(
+                FeeEstimatorTest.NET
+            ));
+            chain.add(prev);
+        }
+        final Block block = prev.createNextBlock(addr);
+        for (final Transaction txn : paid) {
+            block.addTransaction(txn);
+        }
+        final List<Sha256Hash> hashes = new ArrayList<>(5);
+        final byte[] bits = new byte[1];
+        for (final Transaction txn : block.getTransactions()) {
+            if (paid.contains(txn)) {
+                bits[0] |= 1 << hashes.size();
+            }
+            hashes.add(txn.getHash());
+        }
+        fees.onBlocksDownloaded(
+            null, block,
+            new FilteredBlock(
+                FeeEstimatorTest.NET, block.cloneAsHeader(),
+                PartialMerkleTree.buildFromLeaves(
+                    FeeEstimatorTest.NET, bits, hashes
+                )
+            ),
+            0
+        );
+        return rate;
+    }
+
+    /**
+     * Estimator with 0.001 BTC/kB fallback.
+     * @param wallet Wallet
+     * @param chain Chain
+     * @return Estimator
+     */
+    private static FeeEstimator estimator(final Wallet wallet,
+        final BlockChain chain) {
+        return new FeeEstimator(
+            new PeerGroup(FeeEstimatorTest.NET, chain), chain, wallet,
+            Coin.MILLICOIN
+        );
+    }
+
+    /**
+     * Chain of the wallet.
+     * @param wallet Wallet
+     * @return Chain
+     * @throws Exception If fails
+     */
+    private static BlockChain chain(final Wallet wallet) throws Exception {
+        return new BlockChain(
+            FeeEstimatorTest.NET, wallet,
+            new MemoryBlockStore(FeeEstimatorTest.NET)
+        );
+    }
+}
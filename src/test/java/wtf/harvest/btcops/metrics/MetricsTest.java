@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.StringContains;
+import org.junit.Test;
+
+/**
+ * Test for {@link Metrics}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class MetricsTest {
+
+    @Test
+    public void printsCumulativeBuckets() {
+        final Metrics metrics = new Metrics();
+        final Histogram hist = metrics.histogram(
+            "test_seconds", "Test", "route=\"/a\""
+        );
+        hist.record(TimeUnit.MILLISECONDS.toNanos(3L));
+        hist.record(TimeUnit.MILLISECONDS.toNanos(40L));
+        hist.record(TimeUnit.MINUTES.toNanos(1L));
+        final String text = metrics.text();
+        MatcherAssert.assertThat(
+            text,
+            new StringContains(
+                "test_seconds_bucket{route=\"/a\",le=\"0.005\"} 1"
+            )
+        );
+        MatcherAssert.assertThat(
+            text,
+            new StringContains(
+                "test_seconds_bucket{route=\"/a\",le=\"0.05\"} 2"
+            )
+        );
+        MatcherAssert.assertThat(
+            text,
+            new StringContains(
+                "test_seconds_bucket{route=\"/a\",le=\"+Inf\"} 3"
+            )
+        );
+        MatcherAssert.assertThat(
+            text, new StringContains("test_seconds_count{route=\"/a\"} 3")
+        );
+    }
+
+    @Test
+    public void printsCountersAndGauges() {
+        final Metrics metrics = new Metrics()
+            .gauge("test_peers", "Peers", () -> 7);
+        metrics.counter("test_total", "Test", "").add(5L);
+        final String text = metrics.text();
+        MatcherAssert.assertThat(
+            text, new StringContains("# TYPE test_peers gauge")
+        );
+        MatcherAssert.assertThat(text, new StringContains("test_peers 7\n"));
+        MatcherAssert.assertThat(text, new StringContains("test_total 5\n"));
+    }
+
+    @Test
+    public void printsCountersMaintainedElsewhere() {
+        MatcherAssert.assertThat(
+            new Metrics().counter("test_runs_total", "Runs", () -> 3L).text(),
+            new StringContains("# TYPE test_runs_total counter\ntest_runs")
+        );
+    }
+
+    @Test
+    public void probesHeldLock() throws Exception {
+        final ReentrantLock lock = new ReentrantLock();
+        final Metrics metrics = new Metrics();
+        final LockProbe probe = new LockProbe(lock, metrics);
+        lock.lock();
+        final Thread thread = new Thread(probe::probe);
+        try {
+            thread.start();
+            while (!lock.hasQueuedThreads()) {
+                Thread.sleep(10L);
+            }
+            MatcherAssert.assertThat(
+                metrics.text(),
+                new StringContains("btcops_wallet_lock_queue 1\n")
+            );
+        } finally {
+            lock.unlock();
+        }
+        thread.join();
+        MatcherAssert.assertThat(
+            metrics.text(),
+            new StringContains("btcops_wallet_lock_busy_samples_total 1\n")
+        );
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionBroadcast;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.DefaultCoinSelector;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.hamcrest.core.IsNot;
+import org.junit.Before;
+import org.junit.Test;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link BatchPayments}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class BatchPaymentsTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(BatchPaymentsTest.NET));
+    }
+
+    @Test
+    public void sendsFullBatchByOneTransaction() throws Exception {
+        final Wallet wallet = BatchPaymentsTest.wallet();
+        final Payments payments = new BatchPayments(wallet, 60_000L, 2);
+        final DefaultCoinSelector selector = new DefaultCoinSelector();
+        final ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Sent> first = threads.submit(
+                () -> payments.pay(
+                    new ECKey().toAddress(BatchPaymentsTest.NET),
+                    Coin.CENT, selector, Coin.MILLICOIN
+                )
+            );
+            final Future<Sent> second = threads.submit(
+                () -> payments.pay(
+                    new ECKey().toAddress(BatchPaymentsTest.NET),
+                    Coin.CENT, selector, Coin.MILLICOIN
+                )
+            );
+            final Sent one = first.get(10L, TimeUnit.SECONDS);
+            final Sent two = second.get(10L, TimeUnit.SECONDS);
+            MatcherAssert.assertThat(two.tx(), new IsEqual<>(one.tx()));
+            MatcherAssert.assertThat(
+                two.output(), new IsNot<>(new IsEqual<>(one.output()))
+            );
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sendsOthersWhenOnePayoutIsDust() throws Exception {
+        final Wallet wallet = BatchPaymentsTest.wallet();
+        final Payments payments = new BatchPayments(wallet, 60_000L, 2);
+        final DefaultCoinSelector selector = new DefaultCoinSelector();
+        final ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Sent> good = threads.submit(
+                () -> payments.pay(
+                    new ECKey().toAddress(BatchPaymentsTest.NET),
+                    Coin.CENT, selector, Coin.MILLICOIN
+                )
+            );
+            final Future<Sent> dust = threads.submit(
+                () -> payments.pay(
+                    new ECKey().toAddress(BatchPaymentsTest.NET),
+                    Coin.SATOSHI, selector, Coin.MILLICOIN
+                )
+            );
+            final Sent sent = good.get(10L, TimeUnit.SECONDS);
+            MatcherAssert.assertThat(
+                wallet.getTransaction(sent.tx()).getOutput(sent.output())
+                    .getValue(),
+                new IsEqual<>(Coin.CENT)
+            );
+            boolean failed = false;
+            try {
+                dust.get(10L, TimeUnit.SECONDS);
+            } catch (final ExecutionException ex) {
+                failed = true;
+            }
+            MatcherAssert.assertThat(failed, new IsEqual<>(true));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void flushesBatchWhenWindowEnds() throws Exception {
+        final Wallet wallet = BatchPaymentsTest.wallet();
+        final Sent sent = new BatchPayments(wallet, 100L, 10).pay(
+            new ECKey().toAddress(BatchPaymentsTest.NET),
+            Coin.CENT, new DefaultCoinSelector(), Coin.MILLICOIN
+        );
+        MatcherAssert.assertThat(
+            wallet.getTransaction(sent.tx()).getOutput(sent.output())
+                .getValue(),
+            new IsEqual<>(Coin.CENT)
+        );
+    }
+
+    /**
+     * Wallet with confirmed coins, which broadcasts at once.
+     * @return Wallet
+     */
+    private static Wallet wallet() {
+        final Wallet wallet = new Wallet(BatchPaymentsTest.NET);
+        wallet.setTransactionBroadcaster(
+            txn -> {
+                final SettableFuture<Transaction> done =
+                    SettableFuture.create();
+                done.set(txn);
+                return TransactionBroadcast.createMockBroadcast(txn, done);
+            }
+        );
+        new FakePayment(wallet.freshReceiveAddress()).confirmed(wallet, 6);
+        return wallet;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.IOException;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionBroadcast;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.hamcrest.core.StringStartsWith;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import wtf.harvest.btcops.FakePayment;
+import wtf.harvest.btcops.fees.FeeEstimator;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+
+/**
+ * Test for {@link Consolidator}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class ConsolidatorTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(ConsolidatorTest.NET));
+    }
+
+    @Test
+    public void mergesSmallOutputs() throws Exception {
+        final Wallet wallet = ConsolidatorTest.wallet(60);
+        try (Jobs jobs = this.jobs(wallet)) {
+            final Consolidator cons = new Consolidator(
+                wallet, new UtxoIndex(wallet).attach(),
+                ConsolidatorTest.fees(wallet), jobs, Coin.MILLICOIN
+            );
+            cons.run();
+            Threading.waitForUserCode();
+            MatcherAssert.assertThat(cons.merged(), new IsEqual<>(60L));
+            MatcherAssert.assertThat(cons.small(), new IsEqual<>(0));
+        }
+    }
+
+    @Test
+    public void skipsFewSmallOutputs() throws Exception {
+        final Wallet wallet = ConsolidatorTest.wallet(10);
+        try (Jobs jobs = this.jobs(wallet)) {
+            final Consolidator cons = new Consolidator(
+                wallet, new UtxoIndex(wallet).attach(),
+                ConsolidatorTest.fees(wallet), jobs, Coin.MILLICOIN
+            );
+            cons.run();
+            MatcherAssert.assertThat(
+                cons.outcome(), new IsEqual<>("skipped: 10 small outputs")
+            );
+            MatcherAssert.assertThat(cons.merged(), new IsEqual<>(0L));
+        }
+    }
+
+    @Test
+    public void waitsForFeeEstimates() throws Exception {
+        final Wallet wallet = ConsolidatorTest.wallet(60);
+        try (Jobs jobs = this.jobs(wallet)) {
+            final Consolidator cons = new Consolidator(
+                wallet, new UtxoIndex(wallet).attach(),
+                ConsolidatorTest.fees(wallet), jobs, Coin.valueOf(5_000L)
+            );
+            cons.run();
+            MatcherAssert.assertThat(
+                cons.outcome(),
+                new StringStartsWith("skipped: fee rate is not estimated")
+            );
+            MatcherAssert.assertThat(cons.small(), new IsEqual<>(60));
+        }
+    }
+
+    /**
+     * Idle send pipeline of the wallet.
+     * @param wallet Wallet
+     * @return Jobs
+     * @throws IOException If fails
+     */
+    private Jobs jobs(final Wallet wallet) throws IOException {
+        return new Jobs(
+            new WalletPayments(wallet), 1, 1, 1,
+            new Receipts(this.folder.newFile().toPath(), 1).load()
+        );
+    }
+
+    /**
+     * Fee estimator without estimates, 0.001 BTC/kB fallback.
+     * @param wallet Wallet
+     * @return Estimator
+     * @throws BlockStoreException If fails
+     */
+    private static FeeEstimator fees(final Wallet wallet)
+        throws BlockStoreException {
+        final BlockChain chain = new BlockChain(
+            ConsolidatorTest.NET, wallet,
+            new MemoryBlockStore(ConsolidatorTest.NET)
+        );
+        return new FeeEstimator(
+            new PeerGroup(ConsolidatorTest.NET, chain), chain, wallet
+        );
+    }
+
+    /**
+     * Wallet with small confirmed outputs, which broadcasts at once.
+     * @param outputs Number of outputs
+     * @return Wallet
+     */
+    private static Wallet wallet(final int outputs) {
+        final Wallet wallet = new Wallet(ConsolidatorTest.NET);
+        wallet.setTransactionBroadcaster(
+            txn -> {
+                final SettableFuture<Transaction> done =
+                    SettableFuture.create();
+                done.set(txn);
+                return TransactionBroadcast.createMockBroadcast(txn, done);
+            }
+        );
+        final Address addr = wallet.freshReceiveAddress();
+        for (int idx = 0; idx < outputs; ++idx) {
+            new FakePayment(addr, Coin.valueOf(50_000L))
+                .confirmed(wallet, 6);
+        }
+        return wallet;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.send;
+
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.DefaultCoinSelector;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test for send pipeline.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+public final class JobsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Test
+    public void tracksBroadcastOfSignedPayment() throws Exception {
+        final SettableFuture<Transaction> bcast = SettableFuture.create();
+        final Sent sent = new Sent(Sha256Hash.ZERO_HASH, 1, bcast);
+        final Job job;
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> sent, 1, 1, 1, this.receipts()
+        )) {
+            job = jobs.submit(
+                JobsTest.address(), Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+            MatcherAssert.assertThat(job.result(), new IsEqual<>(sent));
+            MatcherAssert.assertThat(
+                job.status(), new IsEqual<>(Job.Status.BROADCASTING)
+            );
+            bcast.set(new Transaction(JobsTest.NET));
+        }
+        MatcherAssert.assertThat(
+            job.status(), new IsEqual<>(Job.Status.SENT)
+        );
+    }
+
+    @Test
+    public void reportsPaymentWithFailedBroadcast() throws Exception {
+        final SettableFuture<Transaction> bcast = SettableFuture.create();
+        bcast.setException(new IOException("No peers"));
+        final Sent sent = new Sent(Sha256Hash.ZERO_HASH, 1, bcast);
+        final Job job;
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> sent, 1, 1, 1, this.receipts()
+        )) {
+            job = jobs.submit(
+                JobsTest.address(), Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+            MatcherAssert.assertThat(job.result(), new IsEqual<>(sent));
+        }
+        MatcherAssert.assertThat(
+            job.status(), new IsEqual<>(Job.Status.FAILED)
+        );
+    }
+
+    @Test
+    public void keepsJobsById() throws Exception {
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> new Sent(
+                Sha256Hash.ZERO_HASH, 0, SettableFuture.create()
+            ),
+            1, 1, 1, this.receipts()
+        )) {
+            final Job job = jobs.submit(
+                JobsTest.address(), Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+            MatcherAssert.assertThat(
+                jobs.job(job.id()).get(), new IsEqual<>(job)
+            );
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsWhenQueueIsFull() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> {
+                try {
+                    latch.await(1L, TimeUnit.MINUTES);
+                } catch (final InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Sent(
+                    Sha256Hash.ZERO_HASH, 0, SettableFuture.create()
+                );
+            },
+            1, 1, 1, this.receipts()
+        )) {
+            try {
+                for (int idx = 0; idx < 3; ++idx) {
+                    jobs.submit(
+                        JobsTest.address(), Coin.CENT,
+                        new DefaultCoinSelector(), Coin.MILLICOIN
+                    );
+                }
+            } finally {
+                latch.countDown();
+            }
+        }
+    }
+
+    @Test
+    public void sendsOncePerKey() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> {
+                try {
+                    latch.await(1L, TimeUnit.MINUTES);
+                } catch (final InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Sent(
+                    Sha256Hash.of(new byte[]{(byte) count.incrementAndGet()}),
+                    0, SettableFuture.create()
+                );
+            },
+            2, 2, 2, this.receipts()
+        )) {
+            final Address addr = JobsTest.address();
+            final Job first = jobs.submit(
+                "order-1", addr, Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+            final Job second = jobs.submit(
+                "order-1", addr, Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+            latch.countDown();
+            MatcherAssert.assertThat(
+                second.result(), new IsEqual<>(first.result())
+            );
+            MatcherAssert.assertThat(count.get(), new IsEqual<>(1));
+        }
+    }
+
+    @Test
+    public void restoresReceiptsFromFile() throws Exception {
+        final Path file = this.folder.newFile().toPath();
+        final Sent sent = new Sent(Sha256Hash.of(new byte[]{1}), 2);
+        new Receipts(file, 1).load().put("key", new Job("job", ""), sent);
+        MatcherAssert.assertThat(
+            new Receipts(file, 1).load().get("key").get().sent().get().tx(),
+            new IsEqual<>(sent.tx())
+        );
+    }
+
+    @Test
+    public void findsRestoredJobById() throws Exception {
+        final Path file = this.folder.newFile().toPath();
+        new Receipts(file, 1).load().put(
+            "key", new Job("job", ""),
+            new Sent(Sha256Hash.of(new byte[]{1}), 0)
+        );
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> {
+                throw new IllegalStateException("Must not send");
+            },
+            1, 1, 1, new Receipts(file, 1).load()
+        )) {
+            MatcherAssert.assertThat(
+                jobs.job("job").get().status(),
+                new IsEqual<>(Job.Status.SENT)
+            );
+        }
+    }
+
+    @Test
+    public void savesReceiptBeforeReportingPayment() throws Exception {
+        final Path file = this.folder.newFile().toPath();
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> new Sent(
+                Sha256Hash.ZERO_HASH, 0, SettableFuture.create()
+            ),
+            1, 1, 1, new Receipts(file, 1).load()
+        )) {
+            final Job job = jobs.submit(
+                "order-1", JobsTest.address(), Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+            job.result();
+            MatcherAssert.assertThat(
+                new Receipts(file, 1).load().get("order-1").get().id(),
+                new IsEqual<>(job.id())
+            );
+        }
+    }
+
+    @Test
+    public void keepsKeyOfPaymentWithUnsavedReceipt() throws Exception {
+        final Path file = this.folder.getRoot().toPath().resolve("receipts");
+        final Receipts receipts = new Receipts(file, 1).load();
+        Files.createDirectory(file);
+        final AtomicInteger count = new AtomicInteger();
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> new Sent(
+                Sha256Hash.of(new byte[]{(byte) count.incrementAndGet()}),
+                0, SettableFuture.create()
+            ),
+            1, 1, 1, receipts
+        )) {
+            final Address addr = JobsTest.address();
+            final Job job = jobs.submit(
+                "order-1", addr, Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+            boolean failed = false;
+            try {
+                job.result();
+            } catch (final IOException ex) {
+                failed = true;
+            }
+            MatcherAssert.assertThat(failed, new IsEqual<>(true));
+            MatcherAssert.assertThat(
+                jobs.submit(
+                    "order-1", addr, Coin.CENT,
+                    new DefaultCoinSelector(), Coin.MILLICOIN
+                ),
+                new IsEqual<>(job)
+            );
+            MatcherAssert.assertThat(count.get(), new IsEqual<>(1));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsKeyOfAnotherPayment() throws Exception {
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> new Sent(
+                Sha256Hash.ZERO_HASH, 0, SettableFuture.create()
+            ),
+            1, 1, 1, this.receipts()
+        )) {
+            final Address addr = JobsTest.address();
+            jobs.submit(
+                "order-1", addr, Coin.CENT,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            ).result();
+            jobs.submit(
+                "order-1", addr, Coin.COIN,
+                new DefaultCoinSelector(), Coin.MILLICOIN
+            );
+        }
+    }
+
+    /**
+     * Empty receipts.
+     * @return Receipts
+     * @throws IOException If fails
+     */
+    private Receipts receipts() throws IOException {
+        return new Receipts(this.folder.newFile().toPath(), 1).load();
+    }
+
+    /**
+     * Random address.
+     * @return Address
+     */
+    private static Address address() {
+        return new ECKey().toAddress(JobsTest.NET);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.takes.tk.TkEmpty;
+import wtf.harvest.btcops.FakePayment;
+import wtf.harvest.btcops.events.Events;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+
+/**
+ * Test for {@link BkEvents}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class BkEventsTest {
+
+    @Test
+    public void streamsInitialBalance() throws IOException {
+        final NetworkParameters net = UnitTestParams.get();
+        final Wallet wallet = new Wallet(net);
+        final Address addr = wallet.freshReceiveAddress();
+        final Events events =
+            new Events(wallet, new UtxoIndex(wallet).attach()).attach();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.socket().bind(new InetSocketAddress(0));
+            try (Socket client = new Socket(
+                "localhost", server.socket().getLocalPort()
+            )) {
+                client.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10L));
+                client.getOutputStream().write(
+                    String.format(
+                        "GET /events?address=%s HTTP/1.1\r\nHost: x\r\n\r\n",
+                        addr
+                    ).getBytes(StandardCharsets.UTF_8)
+                );
+                new BkEvents(new TkEmpty(), net, events)
+                    .accept(server.socket().accept());
+                final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(
+                        client.getInputStream(), StandardCharsets.UTF_8
+                    )
+                );
+                MatcherAssert.assertThat(
+                    BkEventsTest.data(reader),
+                    new IsEqual<>(
+                        String.format(
+                            "data: {\"address\":\"%s\",\"balance\":\"0\"}",
+                            addr
+                        )
+                    )
+                );
+            }
+        }
+    }
+
+    @Test
+    public void streamsBalanceAfterSpend() throws IOException {
+        final NetworkParameters net = UnitTestParams.get();
+        final Wallet wallet = new Wallet(net);
+        final Address addr = wallet.freshReceiveAddress();
+        final Transaction paid = new FakePayment(addr).confirmed(wallet, 6);
+        final Events events =
+            new Events(wallet, new UtxoIndex(wallet).attach()).attach();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.socket().bind(new InetSocketAddress(0));
+            try (Socket client = new Socket(
+                "localhost", server.socket().getLocalPort()
+            )) {
+                client.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10L));
+                client.getOutputStream().write(
+                    String.format(
+                        "GET /events?address=%s HTTP/1.1\r\nHost: x\r\n\r\n",
+                        addr
+                    ).getBytes(StandardCharsets.UTF_8)
+                );
+                new BkEvents(new TkEmpty(), net, events)
+                    .accept(server.socket().accept());
+                final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(
+                        client.getInputStream(), StandardCharsets.UTF_8
+                    )
+                );
+                BkEventsTest.data(reader);
+                final Transaction spend = new Transaction(net);
+                spend.addInput(paid.getOutput(0));
+                spend.addOutput(Coin.COIN, new ECKey().toAddress(net));
+                wallet.receivePending(spend, null);
+                MatcherAssert.assertThat(
+                    BkEventsTest.data(reader),
+                    new IsEqual<>(
+                        String.format(
+                            "data: {\"address\":\"%s\",\"balance\":\"0\"}",
+                            addr
+                        )
+                    )
+                );
+            }
+        }
+    }
+
+    /**
+     * Next data line of the event stream.
+     * @param reader Event stream
+     * @return Line
+     * @throws IOException If fails to read
+     */
+    private static String data(final BufferedReader reader)
+        throws IOException {
+        String line = reader.readLine();
+        while (!line.startsWith("data:")) {
+            line = reader.readLine();
+        }
+        return line;
+    }
+}
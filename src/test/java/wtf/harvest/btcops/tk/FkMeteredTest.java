@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.StringContains;
+import org.junit.Test;
+import org.takes.HttpException;
+import org.takes.facets.fork.FkRegex;
+import org.takes.rq.RqFake;
+import org.takes.tk.TkFailure;
+import wtf.harvest.btcops.metrics.Metrics;
+
+/**
+ * Test for {@link FkMetered}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+public final class FkMeteredTest {
+
+    @Test
+    public void skipsClientErrors() throws Exception {
+        MatcherAssert.assertThat(
+            FkMeteredTest.metrics(HttpURLConnection.HTTP_BAD_REQUEST),
+            new StringContains("btcops_http_errors_total{route=\"/a\"} 0\n")
+        );
+    }
+
+    @Test
+    public void countsServerErrors() throws Exception {
+        MatcherAssert.assertThat(
+            FkMeteredTest.metrics(HttpURLConnection.HTTP_UNAVAILABLE),
+            new StringContains("btcops_http_errors_total{route=\"/a\"} 1\n")
+        );
+    }
+
+    /**
+     * Metrics after the route failed with HTTP error.
+     * @param code HTTP status code
+     * @return Metrics text
+     * @throws IOException If route didn't fail with HTTP error
+     */
+    private static String metrics(final int code) throws IOException {
+        final Metrics metrics = new Metrics();
+        try {
+            new FkMetered(
+                metrics, "/a",
+                new FkRegex("/a", new TkFailure(new HttpException(code)))
+            ).route(new RqFake("GET", "/a"));
+            throw new IOException("Route didn't fail");
+        } catch (final HttpException err) {
+            return metrics.text();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.io.StringReader;
+import javax.json.Json;
+import javax.json.JsonArray;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.takes.HttpException;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+import wtf.harvest.btcops.FakePayment;
+import wtf.harvest.btcops.wallet.UtxoIndex;
+
+/**
+ * Test for {@link TkBalances}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class TkBalancesTest {
+
+    @Test
+    public void streamsBalancesOfAllAddresses() throws IOException {
+        final Wallet wallet = new Wallet(UnitTestParams.get());
+        final Address first = wallet.freshReceiveAddress();
+        final Address second = wallet.freshReceiveAddress();
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkBalances(wallet, new UtxoIndex(wallet).attach()).act(
+                    new RqFake(
+                        "POST", "/balances",
+                        String.format(
+                            "[\"%s\", \"%s\", \"bad\"]", first, second
+                        )
+                    )
+                )
+            ).printBody(),
+            new IsEqual<>(
+                String.format(
+                    // @checkstyle LineLength (1 line)
+                    "[{\"address\":\"%s\",\"balance\":\"0\"},{\"address\":\"%s\",\"balance\":\"0\"},{\"address\":\"bad\",\"error\":\"%s\"}]",
+                    first, second, "Input too short"
+                )
+            )
+        );
+    }
+
+    @Test
+    public void returnsBalancesOfConfirmedOutputs() throws IOException {
+        final Wallet wallet = new Wallet(UnitTestParams.get());
+        final Address addr = wallet.freshReceiveAddress();
+        new FakePayment(addr, Coin.COIN).confirmed(wallet, 6);
+        new FakePayment(addr, Coin.CENT).confirmed(wallet, 6);
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkBalances(wallet, new UtxoIndex(wallet).attach()).act(
+                    new RqFake(
+                        "POST", "/balances", String.format("[\"%s\"]", addr)
+                    )
+                )
+            ).printBody(),
+            new IsEqual<>(
+                String.format(
+                    "[{\"address\":\"%s\",\"balance\":\"1.01\"}]", addr
+                )
+            )
+        );
+    }
+
+    @Test(expected = HttpException.class)
+    public void rejectsMalformedJson() throws IOException {
+        final Wallet wallet = new Wallet(UnitTestParams.get());
+        new TkBalances(wallet, new UtxoIndex(wallet).attach()).act(
+            new RqFake("POST", "/balances", "[\"mfwcs8AZ")
+        );
+    }
+
+    @Test
+    public void endsArrayWithErrorOnInvalidItem() throws IOException {
+        final Wallet wallet = new Wallet(UnitTestParams.get());
+        final Address addr = wallet.freshReceiveAddress();
+        final JsonArray res = Json.createReader(
+            new StringReader(
+                new RsPrint(
+                    new TkBalances(wallet, new UtxoIndex(wallet).attach()).act(
+                        new RqFake(
+                            "POST", "/balances",
+                            String.format("[\"%s\", 42, \"%1$s\"]", addr)
+                        )
+                    )
+                ).printBody()
+            )
+        ).readArray();
+        MatcherAssert.assertThat(res.size(), new IsEqual<>(2));
+        MatcherAssert.assertThat(
+            res.getJsonObject(1).getString("error"),
+            new IsEqual<>("JSON string expected, found VALUE_NUMBER")
+        );
+    }
+}
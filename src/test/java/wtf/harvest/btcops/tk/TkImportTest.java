@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.json.Json;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.BloomFilter;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.takes.Response;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+import wtf.harvest.btcops.chain.ScanChain;
+import wtf.harvest.btcops.watch.Import;
+import wtf.harvest.btcops.watch.Imports;
+import wtf.harvest.btcops.watch.Watchlist;
+
+/**
+ * Test for {@link TkImport}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class TkImportTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(TkImportTest.NET));
+    }
+
+    @Test
+    public void failsImportOfInvalidAddress() throws Exception {
+        final Wallet wallet = new Wallet(TkImportTest.NET);
+        final Imports imports = this.imports(wallet);
+        final Import job = TkImportTest.finished(
+            imports,
+            new TkImport(wallet, imports).act(
+                new RqFake("POST", "/import", "[\"bad\"]")
+            )
+        );
+        MatcherAssert.assertThat(
+            job.status(), new IsEqual<>(Import.Status.FAILED)
+        );
+    }
+
+    @Test
+    public void skipsImportOfCancelledRequest() throws Exception {
+        final Wallet wallet = new Wallet(TkImportTest.NET);
+        final Imports imports = this.imports(wallet);
+        final TkImport take = new TkImport(wallet, imports);
+        Thread.currentThread().interrupt();
+        boolean cancelled = false;
+        try {
+            take.act(
+                new RqFake(
+                    "POST", "/import",
+                    String.format(
+                        "[\"%s\"]", new ECKey().toAddress(TkImportTest.NET)
+                    )
+                )
+            );
+        } catch (final InterruptedIOException ex) {
+            cancelled = true;
+        }
+        MatcherAssert.assertThat(cancelled, new IsEqual<>(true));
+        final Address addr = new ECKey().toAddress(TkImportTest.NET);
+        final Import job = TkImportTest.finished(
+            imports,
+            take.act(
+                new RqFake("POST", "/import", String.format("[\"%s\"]", addr))
+            )
+        );
+        MatcherAssert.assertThat(
+            job.status(), new IsEqual<>(Import.Status.DONE)
+        );
+        MatcherAssert.assertThat(
+            wallet.getWatchedAddresses(),
+            new IsEqual<>(Collections.singletonList(addr))
+        );
+    }
+
+    /**
+     * Imports of the wallet with peers which are not started, so new
+     * filters are never sent.
+     * @param wallet Wallet
+     * @return Imports
+     * @throws Exception If fails
+     */
+    private Imports imports(final Wallet wallet) throws Exception {
+        final ScanChain chain = new ScanChain(
+            TkImportTest.NET, new MemoryBlockStore(TkImportTest.NET)
+        );
+        return new Imports(
+            wallet,
+            new Watchlist(wallet, this.folder.newFile().toPath()),
+            new PeerGroup(TkImportTest.NET, chain) {
+                @Override
+                public ListenableFuture<BloomFilter>
+                    recalculateFastCatchupAndFilter(
+                        final PeerGroup.FilterRecalculateMode mode) {
+                    return Futures.immediateFuture(null);
+                }
+            },
+            chain, 1, 1
+        );
+    }
+
+    /**
+     * Wait until the import of the response is done or failed.
+     * @param imports Imports
+     * @param res Response with import status
+     * @return Import
+     * @throws Exception If fails
+     */
+    private static Import finished(final Imports imports,
+        final Response res) throws Exception {
+        final Import job = imports.job(
+            Json.createReader(
+                new StringReader(new RsPrint(res).printBody())
+            ).readObject().getString("job")
+        ).get();
+        final long end = System.currentTimeMillis() + 10_000L;
+        while (System.currentTimeMillis() < end
+            && job.status() != Import.Status.DONE
+            && job.status() != Import.Status.FAILED) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return job;
+    }
+}
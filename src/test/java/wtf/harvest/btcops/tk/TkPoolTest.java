@@ -0,0 +1,225 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsCollectionContaining;
+import org.hamcrest.core.StringStartsWith;
+import org.junit.Test;
+import org.takes.Take;
+import org.takes.facets.fork.FkRegex;
+import org.takes.facets.fork.TkFork;
+import org.takes.http.BkBasic;
+import org.takes.http.FtBasic;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsText;
+
+/**
+ * Test for {@link TkPool}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class TkPoolTest {
+
+    @Test
+    public void rejectsWhenPoolIsFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Pool pool = new Pool("test", 1, 1, 10_000L);
+        final Take slow = req -> {
+            try {
+                release.await();
+            } catch (final InterruptedException err) {
+                Thread.currentThread().interrupt();
+                throw new IOException(err);
+            }
+            return new RsText("slow");
+        };
+        final Thread first = new Thread(() -> TkPoolTest.act(pool, slow));
+        final Thread second = new Thread(() -> TkPoolTest.act(pool, slow));
+        first.start();
+        second.start();
+        while (first.getState() != Thread.State.TIMED_WAITING
+            || second.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(10L);
+        }
+        try {
+            MatcherAssert.assertThat(
+                new TkPool(pool, req -> new RsText("fast"))
+                    .act(new RqFake()).head(),
+                new IsCollectionContaining<>(
+                    new StringStartsWith("HTTP/1.1 429")
+                )
+            );
+        } finally {
+            release.countDown();
+            first.join();
+            second.join();
+        }
+    }
+
+    @Test
+    public void abandonsSlowRequest() throws Exception {
+        MatcherAssert.assertThat(
+            new TkPool(
+                new Pool("test", 1, 1, 50L),
+                req -> {
+                    try {
+                        Thread.sleep(10_000L);
+                    } catch (final InterruptedException err) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new RsText("late");
+                }
+            ).act(new RqFake()).head(),
+            new IsCollectionContaining<>(
+                new StringStartsWith("HTTP/1.1 503")
+            )
+        );
+    }
+
+    @Test
+    public void servesReadsWhileSendsAreSaturated() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Take app = new TkFork(
+            new FkRegex(
+                "/send",
+                new TkPool(
+                    new Pool("send", 1, 1, 10_000L),
+                    req -> {
+                        try {
+                            release.await();
+                        } catch (final InterruptedException err) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException(err);
+                        }
+                        return new RsText("sent");
+                    }
+                )
+            ),
+            new FkRegex(
+                "/balance",
+                new TkPool(
+                    new Pool("read", 3, 10, 10_000L), req -> new RsText("0")
+                )
+            )
+        );
+        final AtomicBoolean stop = new AtomicBoolean();
+        final ExecutorService clients = Executors.newFixedThreadPool(5);
+        try (ServerSocket server = new ServerSocket(0)) {
+            final Thread front = new Thread(
+                () -> {
+                    try {
+                        new FtBasic(
+                            new BkShed(new BkBasic(app), 3, 10), server
+                        ).start(stop::get);
+                    } catch (final IOException err) {
+                        throw new UncheckedIOException(err);
+                    }
+                }
+            );
+            front.start();
+            try {
+                final CompletionService<String> sends =
+                    new ExecutorCompletionService<>(clients);
+                for (int idx = 0; idx < 5; ++idx) {
+                    sends.submit(
+                        () -> TkPoolTest.status(server.getLocalPort(), "/send")
+                    );
+                }
+                for (int idx = 0; idx < 3; ++idx) {
+                    MatcherAssert.assertThat(
+                        sends.poll(5L, TimeUnit.SECONDS).get(),
+                        new StringStartsWith("HTTP/1.1 429")
+                    );
+                }
+                MatcherAssert.assertThat(
+                    TkPoolTest.status(server.getLocalPort(), "/balance"),
+                    new StringStartsWith("HTTP/1.1 200")
+                );
+            } finally {
+                release.countDown();
+                stop.set(true);
+                front.join();
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    /**
+     * Serve fake request in the pool.
+     * @param pool Pool
+     * @param take Take
+     */
+    private static void act(final Pool pool, final Take take) {
+        try {
+            new TkPool(pool, take).act(new RqFake());
+        } catch (final IOException err) {
+            throw new IllegalStateException(err);
+        }
+    }
+
+    /**
+     * Status line of GET request.
+     * @param port Server port
+     * @param path Path
+     * @return Status line
+     * @throws IOException If fails
+     */
+    private static String status(final int port, final String path)
+        throws IOException {
+        try (Socket socket = new Socket(
+            InetAddress.getLoopbackAddress(), port
+        )) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(
+                String.format(
+                    "GET %s HTTP/1.1\r\nHost: localhost\r\n\r\n", path
+                ).getBytes(StandardCharsets.UTF_8)
+            );
+            return new BufferedReader(
+                new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8
+                )
+            ).readLine();
+        }
+    }
+}
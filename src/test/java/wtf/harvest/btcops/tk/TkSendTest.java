@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsCollectionContaining;
+import org.hamcrest.core.StringContains;
+import org.hamcrest.core.StringStartsWith;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.takes.Response;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+import wtf.harvest.btcops.fees.FeeEstimator;
+import wtf.harvest.btcops.send.Jobs;
+import wtf.harvest.btcops.send.Receipts;
+import wtf.harvest.btcops.send.Sent;
+
+/**
+ * Test for {@link TkSend}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+public final class TkSendTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void acceptsPaymentNotSignedInTime() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Wallet wallet = new Wallet(TkSendTest.NET);
+        final BlockChain chain = new BlockChain(
+            TkSendTest.NET, wallet, new MemoryBlockStore(TkSendTest.NET)
+        );
+        try (Jobs jobs = new Jobs(
+            (to, amount, sel, fee) -> {
+                try {
+                    release.await(1L, TimeUnit.MINUTES);
+                } catch (final InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Sent(
+                    Sha256Hash.ZERO_HASH, 0, SettableFuture.create()
+                );
+            },
+            1, 1, 1,
+            new Receipts(this.folder.newFile().toPath(), 1).load()
+        )) {
+            try {
+                final Response res = new TkSend(
+                    wallet, jobs,
+                    new FeeEstimator(
+                        new PeerGroup(TkSendTest.NET, chain), chain, wallet
+                    ),
+                    100L
+                ).act(
+                    new RqFake(
+                        "POST",
+                        String.format(
+                            "/send?to=%s&amount=0.01",
+                            new ECKey().toAddress(TkSendTest.NET)
+                        )
+                    )
+                );
+                MatcherAssert.assertThat(
+                    res.head(),
+                    new IsCollectionContaining<>(
+                        new StringStartsWith("HTTP/1.1 202")
+                    )
+                );
+                MatcherAssert.assertThat(
+                    new RsPrint(res).printBody(),
+                    new StringContains("\"status\":\"")
+                );
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+}
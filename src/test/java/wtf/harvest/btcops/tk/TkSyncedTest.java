@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsCollectionContaining;
+import org.hamcrest.core.StringStartsWith;
+import org.junit.Before;
+import org.junit.Test;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsText;
+import org.takes.tk.TkFailure;
+import wtf.harvest.btcops.chain.Sync;
+
+/**
+ * Test for {@link TkSynced} and {@link TkStale}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+public final class TkSyncedTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(TkSyncedTest.NET));
+    }
+
+    @Test
+    public void refusesWhileSyncing() throws Exception {
+        final Sync sync = TkSyncedTest.sync();
+        sync.onChainDownloadStarted(null, 10);
+        MatcherAssert.assertThat(
+            new TkSynced(sync, new TkFailure()).act(new RqFake()).head(),
+            new IsCollectionContaining<>(
+                new StringStartsWith("HTTP/1.1 503")
+            )
+        );
+    }
+
+    @Test
+    public void servesWhenSynced() throws Exception {
+        final Sync sync = TkSyncedTest.sync();
+        sync.onChainDownloadStarted(null, 0);
+        MatcherAssert.assertThat(
+            new TkSynced(sync, req -> new RsText("sent"))
+                .act(new RqFake()).head(),
+            new IsCollectionContaining<>(
+                new StringStartsWith("HTTP/1.1 200")
+            )
+        );
+    }
+
+    @Test
+    public void marksStaleResponse() throws Exception {
+        final Sync sync = TkSyncedTest.sync();
+        sync.onChainDownloadStarted(null, 42);
+        MatcherAssert.assertThat(
+            new TkStale(sync, req -> new RsText("balance"))
+                .act(new RqFake()).head(),
+            new IsCollectionContaining<>(
+                new StringStartsWith("X-Btcops-Blocks-Behind: 42")
+            )
+        );
+    }
+
+    /**
+     * Sync of a new chain.
+     * @return Sync
+     * @throws BlockStoreException If fails to create chain
+     */
+    private static Sync sync() throws BlockStoreException {
+        final BlockChain chain = new BlockChain(
+            TkSyncedTest.NET, new MemoryBlockStore(TkSyncedTest.NET)
+        );
+        return new Sync(new PeerGroup(TkSyncedTest.NET, chain), chain);
+    }
+}
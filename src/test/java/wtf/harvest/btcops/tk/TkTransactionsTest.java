@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.io.StringReader;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.takes.HttpException;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+import wtf.harvest.btcops.FakePayment;
+import wtf.harvest.btcops.wallet.TxHistory;
+
+/**
+ * Test for {@link TkTransactions}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class TkTransactionsTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Test
+    public void walksPagesWithCursor() throws IOException {
+        final Wallet wallet = new Wallet(TkTransactionsTest.NET);
+        final Address addr = wallet.freshReceiveAddress();
+        for (int idx = 0; idx < 5; ++idx) {
+            new FakePayment(addr).pending(wallet);
+        }
+        final TkTransactions take = new TkTransactions(
+            wallet, new TxHistory(wallet).attach()
+        );
+        final JsonObject first = TkTransactionsTest.page(
+            take, "/transactions?limit=3"
+        );
+        final JsonObject second = TkTransactionsTest.page(
+            take,
+            String.format(
+                "/transactions?limit=3&cursor=%s", first.getString("next")
+            )
+        );
+        MatcherAssert.assertThat(
+            second.getJsonArray("transactions").size(),
+            new IsEqual<>(2)
+        );
+        MatcherAssert.assertThat(
+            second.containsKey("next"),
+            new IsEqual<>(false)
+        );
+    }
+
+    @Test(expected = HttpException.class)
+    public void rejectsUnknownState() throws IOException {
+        final Wallet wallet = new Wallet(TkTransactionsTest.NET);
+        new TkTransactions(wallet, new TxHistory(wallet).attach())
+            .act(new RqFake("GET", "/transactions?state=lost"));
+    }
+
+    /**
+     * Page of transactions.
+     * @param take Take
+     * @param uri Request URI
+     * @return JSON page
+     * @throws IOException If fails
+     */
+    private static JsonObject page(final TkTransactions take,
+        final String uri) throws IOException {
+        return Json.createReader(
+            new StringReader(
+                new RsPrint(take.act(new RqFake("GET", uri))).printBody()
+            )
+        ).readObject();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.tk;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsCollectionContaining;
+import org.hamcrest.core.StringStartsWith;
+import org.junit.Test;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsText;
+import org.takes.tk.TkFailure;
+import wtf.harvest.btcops.wallet.WalletVersion;
+
+/**
+ * Test for {@link TkVersioned}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+public final class TkVersionedTest {
+
+    @Test
+    public void repliesNotModifiedForMatchingTag() throws IOException {
+        MatcherAssert.assertThat(
+            new TkVersioned(
+                new WalletVersion(new Wallet(UnitTestParams.get())),
+                new TkFailure()
+            ).act(
+                new RqFake(
+                    Arrays.asList(
+                        "GET /balance",
+                        "Host: localhost",
+                        "If-None-Match: \"0\""
+                    ),
+                    ""
+                )
+            ).head(),
+            new IsCollectionContaining<>(
+                new StringStartsWith("HTTP/1.1 304")
+            )
+        );
+    }
+
+    @Test
+    public void addsEntityTag() throws IOException {
+        MatcherAssert.assertThat(
+            new TkVersioned(
+                new WalletVersion(new Wallet(UnitTestParams.get())),
+                req -> new RsText("balance")
+            ).act(new RqFake()).head(),
+            new IsCollectionContaining<>(
+                new StringStartsWith("ETag: \"0\"")
+            )
+        );
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link AddressPool}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class AddressPoolTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(AddressPoolTest.NET));
+    }
+
+    @Test
+    public void givesDistinctWalletAddresses() {
+        final Wallet wallet = new Wallet(AddressPoolTest.NET);
+        final AddressPool pool = new AddressPool(wallet, 4).start();
+        final Set<Address> taken = new HashSet<>(10);
+        boolean mine = true;
+        for (int idx = 0; idx < 10; ++idx) {
+            final Address addr = pool.next();
+            taken.add(addr);
+            mine &= wallet.isPubKeyHashMine(addr.getHash160());
+        }
+        MatcherAssert.assertThat(taken.size(), new IsEqual<>(10));
+        MatcherAssert.assertThat(mine, new IsEqual<>(true));
+    }
+
+    @Test
+    public void issuesManyAddressesInChunks() {
+        final Wallet wallet = new Wallet(AddressPoolTest.NET);
+        final AddressPool pool = new AddressPool(wallet, 4).start();
+        final Iterator<Address> addrs = pool.next(2500);
+        final Set<Address> taken = new HashSet<>(2500);
+        boolean mine = true;
+        while (addrs.hasNext()) {
+            final Address addr = addrs.next();
+            taken.add(addr);
+            mine &= wallet.isPubKeyHashMine(addr.getHash160());
+        }
+        MatcherAssert.assertThat(taken.size(), new IsEqual<>(2500));
+        MatcherAssert.assertThat(mine, new IsEqual<>(true));
+    }
+}
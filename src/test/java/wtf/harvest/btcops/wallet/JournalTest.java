@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link Journal} and {@link Snapshot}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class JournalTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(JournalTest.NET));
+    }
+
+    @Test
+    public void restoresChangesAfterSnapshot() throws IOException {
+        final File snapshot = this.folder.newFile();
+        final File file = this.folder.newFile();
+        final Wallet wallet = new Wallet(JournalTest.NET);
+        final Journal journal = new Journal(wallet, snapshot, file).attach();
+        new FakePayment(wallet.freshReceiveAddress()).pending(wallet);
+        wallet.freshReceiveAddress();
+        Threading.waitForUserCode();
+        journal.flush();
+        final Wallet loaded = new Snapshot(snapshot, file).load();
+        MatcherAssert.assertThat(
+            loaded.getTransactions(true).size(), new IsEqual<>(1)
+        );
+        MatcherAssert.assertThat(
+            loaded.getIssuedReceiveAddresses().size(), new IsEqual<>(2)
+        );
+    }
+
+    @Test
+    public void ignoresTornRecord() throws IOException {
+        final File snapshot = this.folder.newFile();
+        final File file = this.folder.newFile();
+        final Wallet wallet = new Wallet(JournalTest.NET);
+        final Journal journal = new Journal(wallet, snapshot, file).attach();
+        new FakePayment(wallet.freshReceiveAddress()).pending(wallet);
+        Threading.waitForUserCode();
+        journal.flush();
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{1, 0, 0, 1, 0, 42});
+        }
+        MatcherAssert.assertThat(
+            new Snapshot(snapshot, file).load().getBalance(
+                Wallet.BalanceType.ESTIMATED
+            ),
+            new IsEqual<>(Coin.COIN)
+        );
+    }
+
+    @Test
+    public void writesChangesAgainAfterFailure() throws IOException {
+        final File snapshot = this.folder.newFile();
+        final File file = this.folder.newFile();
+        final AtomicBoolean broken = new AtomicBoolean();
+        final Wallet wallet = new Wallet(JournalTest.NET) {
+            @Override
+            public Transaction getTransaction(final Sha256Hash hash) {
+                if (broken.getAndSet(false)) {
+                    throw new IllegalStateException("Wallet is changing");
+                }
+                return super.getTransaction(hash);
+            }
+        };
+        final Journal journal = new Journal(wallet, snapshot, file).attach();
+        new FakePayment(wallet.freshReceiveAddress()).pending(wallet);
+        Threading.waitForUserCode();
+        broken.set(true);
+        boolean failed = false;
+        try {
+            journal.flush();
+        } catch (final IllegalStateException ex) {
+            failed = true;
+        }
+        MatcherAssert.assertThat(failed, new IsEqual<>(true));
+        journal.flush();
+        MatcherAssert.assertThat(
+            new Snapshot(snapshot, file).load().getTransactions(true).size(),
+            new IsEqual<>(1)
+        );
+    }
+}
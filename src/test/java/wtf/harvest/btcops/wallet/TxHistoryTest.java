@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.After;
+import org.junit.Test;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link TxHistory}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class TxHistoryTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @After
+    public void resetClock() {
+        Utils.mockTime = null;
+    }
+
+    @Test
+    public void pagesNewestFirst() {
+        final Wallet wallet = new Wallet(TxHistoryTest.NET);
+        final TxHistory history = new TxHistory(wallet).attach();
+        final Address addr = wallet.freshReceiveAddress();
+        for (int idx = 1; idx <= 5; ++idx) {
+            Utils.setMockClock(idx * 1000L);
+            new FakePayment(addr).pending(wallet);
+        }
+        Threading.waitForUserCode();
+        final Iterator<Map.Entry<String, Transaction>> first = history.find(
+            Optional.empty(), 0L, Long.MAX_VALUE, Optional.empty()
+        );
+        first.next();
+        final String cursor = first.next().getKey();
+        MatcherAssert.assertThat(
+            TxHistoryTest.times(
+                history.find(
+                    Optional.empty(), 0L, Long.MAX_VALUE, Optional.of(cursor)
+                )
+            ),
+            new IsEqual<>(TxHistoryTest.list(3000L, 2000L, 1000L))
+        );
+    }
+
+    @Test
+    public void filtersByAddressAndTime() {
+        final Wallet wallet = new Wallet(TxHistoryTest.NET);
+        final Address addr = wallet.freshReceiveAddress();
+        final Address other = wallet.freshReceiveAddress();
+        for (int idx = 1; idx <= 6; ++idx) {
+            Utils.setMockClock(idx * 1000L);
+            new FakePayment(idx % 2 == 0 ? addr : other).pending(wallet);
+        }
+        MatcherAssert.assertThat(
+            TxHistoryTest.times(
+                new TxHistory(wallet).attach().find(
+                    Optional.of(addr), 2_000_000L, 6_000_000L,
+                    Optional.empty()
+                )
+            ),
+            new IsEqual<>(TxHistoryTest.list(4000L, 2000L))
+        );
+    }
+
+    /**
+     * Update times of transactions.
+     * @param txns Transactions by cursors
+     * @return Times in seconds
+     */
+    private static List<Long> times(
+        final Iterator<Map.Entry<String, Transaction>> txns) {
+        final List<Long> times = new ArrayList<>(0);
+        while (txns.hasNext()) {
+            times.add(txns.next().getValue().getUpdateTime().getTime() / 1000L);
+        }
+        return times;
+    }
+
+    /**
+     * List of times.
+     * @param times Times
+     * @return List
+     */
+    private static List<Long> list(final Long... times) {
+        final List<Long> list = new ArrayList<>(times.length);
+        for (final Long time : times) {
+            list.add(time);
+        }
+        return list;
+    }
+}
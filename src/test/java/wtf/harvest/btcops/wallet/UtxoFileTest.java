@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import java.io.File;
+import java.io.IOException;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link UtxoFile} and {@link UtxoView}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class UtxoFileTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(UtxoFileTest.NET));
+    }
+
+    @Test
+    public void readsBalancesOfSnapshot() throws IOException {
+        final Wallet wallet = new Wallet(UtxoFileTest.NET);
+        final Address first = wallet.freshReceiveAddress();
+        final Address second = wallet.freshReceiveAddress();
+        new FakePayment(first, Coin.COIN).confirmed(wallet, 6);
+        new FakePayment(second, Coin.CENT).confirmed(wallet, 6);
+        new FakePayment(first, Coin.MILLICOIN).confirmed(wallet, 6);
+        final File file = this.folder.newFile();
+        final UtxoFile utxos = new UtxoFile(file);
+        utxos.save(wallet);
+        final UtxoView view = utxos.view();
+        MatcherAssert.assertThat(
+            view.balance(first), new IsEqual<>(Coin.COIN.add(Coin.MILLICOIN))
+        );
+        MatcherAssert.assertThat(
+            view.balance(second), new IsEqual<>(Coin.CENT)
+        );
+        MatcherAssert.assertThat(
+            view.balance(new ECKey().toAddress(UtxoFileTest.NET)),
+            new IsEqual<>(Coin.ZERO)
+        );
+        MatcherAssert.assertThat(
+            view.total(),
+            new IsEqual<>(Coin.COIN.add(Coin.CENT).add(Coin.MILLICOIN))
+        );
+    }
+
+    @Test
+    public void matchesLiveBalances() throws IOException {
+        final Wallet wallet = new Wallet(UtxoFileTest.NET);
+        final Address addr = wallet.freshReceiveAddress();
+        final Address watched = new ECKey().toAddress(UtxoFileTest.NET);
+        wallet.addWatchedAddress(watched);
+        new FakePayment(addr, Coin.COIN).confirmed(wallet, 6);
+        new FakePayment(addr, Coin.CENT).confirmed(wallet, 1);
+        new FakePayment(watched, Coin.MILLICOIN).confirmed(wallet, 6);
+        final UtxoFile utxos = new UtxoFile(this.folder.newFile());
+        utxos.save(wallet);
+        final UtxoView view = utxos.view();
+        final UtxoIndex index = new UtxoIndex(wallet).attach();
+        MatcherAssert.assertThat(
+            view.balance(addr), new IsEqual<>(Coin.COIN)
+        );
+        MatcherAssert.assertThat(
+            view.balance(addr), new IsEqual<>(index.balance(addr))
+        );
+        MatcherAssert.assertThat(
+            view.balance(watched), new IsEqual<>(index.balance(watched))
+        );
+        MatcherAssert.assertThat(
+            view.total(), new IsEqual<>(wallet.getBalance())
+        );
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsBrokenFile() throws IOException {
+        new UtxoFile(this.folder.newFile()).view();
+    }
+}
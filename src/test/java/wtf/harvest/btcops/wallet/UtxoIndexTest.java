@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.wallet;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import wtf.harvest.btcops.AddressBalance;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link UtxoIndex}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ */
+public final class UtxoIndexTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    @Test
+    public void matchesAddressBalanceSelector() {
+        final Wallet wallet = new Wallet(UtxoIndexTest.NET);
+        final UtxoIndex index = new UtxoIndex(wallet).attach();
+        final Address addr = wallet.freshReceiveAddress();
+        new FakePayment(addr, Coin.COIN).confirmed(wallet, 6);
+        new FakePayment(addr, Coin.CENT).confirmed(wallet, 2);
+        new FakePayment(wallet.freshReceiveAddress(), Coin.COIN)
+            .confirmed(wallet, 6);
+        Threading.waitForUserCode();
+        MatcherAssert.assertThat(
+            wallet.getBalance(new AddressBalance(addr)),
+            new IsEqual<>(Coin.COIN)
+        );
+        MatcherAssert.assertThat(
+            index.balance(addr),
+            new IsEqual<>(wallet.getBalance(new AddressBalance(addr)))
+        );
+    }
+
+    @Test
+    public void indexesOutputsReceivedBeforeAttach() {
+        final Wallet wallet = new Wallet(UtxoIndexTest.NET);
+        final Address addr = wallet.freshReceiveAddress();
+        new FakePayment(addr, Coin.COIN).confirmed(wallet, 5);
+        MatcherAssert.assertThat(
+            new UtxoIndex(wallet).attach().balance(addr),
+            new IsEqual<>(Coin.COIN)
+        );
+    }
+
+    @Test
+    public void listsCandidatesOfAllAddresses() {
+        final Wallet wallet = new Wallet(UtxoIndexTest.NET);
+        new FakePayment(wallet.freshReceiveAddress(), Coin.COIN)
+            .confirmed(wallet, 6);
+        new FakePayment(wallet.freshReceiveAddress(), Coin.CENT)
+            .confirmed(wallet, 6);
+        MatcherAssert.assertThat(
+            new UtxoIndex(wallet).attach().candidates().size(),
+            new IsEqual<>(2)
+        );
+    }
+
+    @Test
+    public void returnsZeroForUnknownAddress() {
+        final Wallet wallet = new Wallet(UtxoIndexTest.NET);
+        MatcherAssert.assertThat(
+            new UtxoIndex(wallet).attach().balance(
+                new Wallet(UtxoIndexTest.NET).freshReceiveAddress()
+            ),
+            new IsEqual<>(Coin.ZERO)
+        );
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.watch;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BloomFilter;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerAddress;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.VersionMessage;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import wtf.harvest.btcops.FakePayment;
+import wtf.harvest.btcops.chain.ScanChain;
+
+/**
+ * Test for {@link Imports}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class ImportsTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(ImportsTest.NET));
+    }
+
+    @Test
+    public void findsPastPaymentsByRescan() throws Exception {
+        final Wallet wallet = new Wallet(ImportsTest.NET);
+        final ScanChain chain = ImportsTest.chain(wallet);
+        final Address addr = new ECKey().toAddress(ImportsTest.NET);
+        final Transaction past = new FakePayment(addr).tx();
+        final Block block = ImportsTest.NET.getGenesisBlock()
+            .createNextBlock(new ECKey().toAddress(ImportsTest.NET));
+        block.addTransaction(past);
+        block.solve();
+        chain.add(block);
+        final Import job = ImportsTest.finished(
+            this.imports(wallet, chain, ImportsTest.peer(block)).addresses(
+                () -> Collections.singletonList(addr), OptionalInt.of(0)
+            )
+        );
+        MatcherAssert.assertThat(
+            job.status(), new IsEqual<>(Import.Status.DONE)
+        );
+        MatcherAssert.assertThat(
+            wallet.getTransaction(past.getHash()).getConfidence()
+                .getDepthInBlocks(),
+            new IsEqual<>(1)
+        );
+        MatcherAssert.assertThat(chain.getBestChainHeight(), new IsEqual<>(1));
+    }
+
+    @Test
+    public void failsRescanWithoutDownloadPeer() throws Exception {
+        final Wallet wallet = new Wallet(ImportsTest.NET);
+        final ScanChain chain = ImportsTest.chain(wallet);
+        final Block block = ImportsTest.NET.getGenesisBlock()
+            .createNextBlock(new ECKey().toAddress(ImportsTest.NET));
+        chain.add(block);
+        final Import job = ImportsTest.finished(
+            this.imports(wallet, chain, null).addresses(
+                () -> Collections.singletonList(
+                    new ECKey().toAddress(ImportsTest.NET)
+                ),
+                OptionalInt.of(0)
+            )
+        );
+        MatcherAssert.assertThat(
+            job.status(), new IsEqual<>(Import.Status.FAILED)
+        );
+        MatcherAssert.assertThat(chain.getBestChainHeight(), new IsEqual<>(1));
+    }
+
+    /**
+     * Imports with the download peer and peers which are not started,
+     * so new filters are never sent.
+     * @param wallet Wallet
+     * @param chain Chain
+     * @param peer Download peer, NULL if there is none
+     * @return Imports
+     * @throws Exception If fails
+     */
+    private Imports imports(final Wallet wallet, final ScanChain chain,
+        final Peer peer) throws Exception {
+        final PeerGroup peers = new PeerGroup(ImportsTest.NET, chain) {
+            @Override
+            public Peer getDownloadPeer() {
+                return peer;
+            }
+            @Override
+            public ListenableFuture<BloomFilter>
+                recalculateFastCatchupAndFilter(
+                    final PeerGroup.FilterRecalculateMode mode) {
+                return Futures.immediateFuture(null);
+            }
+        };
+        return new Imports(
+            wallet,
+            new Watchlist(wallet, this.folder.newFile().toPath()),
+            peers, chain, 1, 1
+        );
+    }
+
+    /**
+     * Chain of the wallet.
+     * @param wallet Wallet
+     * @return Chain
+     * @throws Exception If fails
+     */
+    private static ScanChain chain(final Wallet wallet) throws Exception {
+        final ScanChain chain = new ScanChain(
+            ImportsTest.NET, new MemoryBlockStore(ImportsTest.NET)
+        );
+        chain.addWallet(wallet);
+        return chain;
+    }
+
+    /**
+     * Peer which sends the block.
+     * @param block Block
+     * @return Peer
+     */
+    private static Peer peer(final Block block) {
+        return new Peer(
+            ImportsTest.NET,
+            new VersionMessage(ImportsTest.NET, 0),
+            new PeerAddress(ImportsTest.NET, InetAddress.getLoopbackAddress()),
+            null
+        ) {
+            @Override
+            public ListenableFuture<Block> getBlock(final Sha256Hash hash) {
+                return Futures.immediateFuture(block);
+            }
+        };
+    }
+
+    /**
+     * Wait until the import is done or failed.
+     * @param job Import
+     * @return Import
+     * @throws InterruptedException If interrupted
+     */
+    private static Import finished(final Import job)
+        throws InterruptedException {
+        final long end = System.currentTimeMillis() + 10_000L;
+        while (System.currentTimeMillis() < end
+            && job.status() != Import.Status.DONE
+            && job.status() != Import.Status.FAILED) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return job;
+    }
+}
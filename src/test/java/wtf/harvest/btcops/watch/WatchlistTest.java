@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Harvest foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package wtf.harvest.btcops.watch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import wtf.harvest.btcops.FakePayment;
+
+/**
+ * Test for {@link Watchlist}.
+ *
+ * @since 1.0
+ * @checkstyle JavadocMethodCheck (500 lines)
+ * @checkstyle MagicNumberCheck (500 lines)
+ */
+public final class WatchlistTest {
+
+    /**
+     * Network.
+     */
+    private static final NetworkParameters NET = UnitTestParams.get();
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifierCheck (3 lines)
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void context() {
+        Context.propagate(new Context(WatchlistTest.NET));
+    }
+
+    @Test
+    public void keepsGapAfterUsedAddress() throws IOException {
+        final Wallet wallet = new Wallet(WatchlistTest.NET);
+        final DeterministicKey key = WatchlistTest.key();
+        final Watchlist list = new Watchlist(
+            wallet, this.folder.newFile().toPath()
+        ).attach();
+        final List<Address> addrs = list.add(
+            key.serializePubB58(WatchlistTest.NET), 5, num -> { }
+        );
+        list.watch(addrs, 0L);
+        MatcherAssert.assertThat(
+            addrs.get(0),
+            new IsEqual<>(
+                HDKeyDerivation.deriveChildKey(
+                    HDKeyDerivation.deriveChildKey(key, ChildNumber.ZERO),
+                    ChildNumber.ZERO
+                ).toAddress(WatchlistTest.NET)
+            )
+        );
+        new FakePayment(addrs.get(3)).pending(wallet);
+        Threading.waitForUserCode();
+        MatcherAssert.assertThat(
+            wallet.getWatchedAddresses().size(),
+            new IsEqual<>(9)
+        );
+    }
+
+    @Test
+    public void watchesSavedKeysAgain() throws IOException {
+        final Path file = this.folder.newFile().toPath();
+        final Watchlist list = new Watchlist(
+            new Wallet(WatchlistTest.NET), file
+        );
+        final List<Address> addrs = list.add(
+            WatchlistTest.key().serializePubB58(WatchlistTest.NET), 7,
+            num -> { }
+        );
+        list.save();
+        final Wallet wallet = new Wallet(WatchlistTest.NET);
+        new Watchlist(wallet, file).load();
+        MatcherAssert.assertThat(
+            new HashSet<>(wallet.getWatchedAddresses()),
+            new IsEqual<>(new HashSet<>(addrs))
+        );
+    }
+
+    @Test
+    public void extendsKeyAddedAgainWithAnotherGap() throws IOException {
+        final Wallet wallet = new Wallet(WatchlistTest.NET);
+        final Path file = this.folder.newFile().toPath();
+        final Watchlist list = new Watchlist(wallet, file).attach();
+        final String base = WatchlistTest.key()
+            .serializePubB58(WatchlistTest.NET);
+        final List<Address> addrs = list.add(base, 5, num -> { });
+        list.watch(addrs, 0L);
+        list.watch(list.add(base, 7, num -> { }), 0L);
+        new FakePayment(addrs.get(3)).pending(wallet);
+        Threading.waitForUserCode();
+        MatcherAssert.assertThat(
+            wallet.getWatchedAddresses().size(),
+            new IsEqual<>(11)
+        );
+        MatcherAssert.assertThat(
+            Files.readAllLines(file, StandardCharsets.UTF_8),
+            new IsEqual<>(
+                Collections.singletonList(String.format("%s 7 11", base))
+            )
+        );
+    }
+
+    /**
+     * Extended public key.
+     * @return Key
+     */
+    private static DeterministicKey key() {
+        return HDKeyDerivation.createMasterPrivateKey(
+            Sha256Hash.hash(new byte[] {1, 2, 3})
+        ).dropPrivateBytes();
+    }
+}